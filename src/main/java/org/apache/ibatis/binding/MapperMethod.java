@@ -34,8 +34,10 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.reflection.TypeParameterResolver;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetBounds;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.Slice;
 import org.apache.ibatis.session.SqlSession;
 
 /**
@@ -105,6 +107,8 @@ public class MapperMethod {
           result = executeForMap(sqlSession, args);
         } else if (method.returnsCursor()) { // 游标类型结果查询
           result = executeForCursor(sqlSession, args);
+        } else if (method.returnsSlice()) { // 键集分页查询
+          result = executeForSlice(sqlSession, args);
         } else { // 单条结果查询
           Object param = method.convertArgsToSqlCommandParam(args);
           result = sqlSession.selectOne(command.getName(), param);
@@ -193,6 +197,16 @@ public class MapperMethod {
     return result;
   }
 
+  private <E> Slice<E> executeForSlice(SqlSession sqlSession, Object[] args) {
+    RowBounds rowBounds = method.extractRowBounds(args);
+    if (!(rowBounds instanceof KeysetBounds)) {
+      throw new BindingException("Mapper method '" + command.getName()
+          + "' returns a Slice and must have a non-null KeysetBounds parameter.");
+    }
+    Object param = method.convertArgsToSqlCommandParam(args);
+    return sqlSession.selectSlice(command.getName(), param, (KeysetBounds) rowBounds);
+  }
+
   private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
     Object collection = config.getObjectFactory().create(method.getReturnType());
     MetaObject metaObject = config.newMetaObject(collection);
@@ -324,6 +338,8 @@ public class MapperMethod {
     private final boolean returnsCursor;
     // 返回类型是否是optional类型
     private final boolean returnsOptional;
+    // 返回类型是否是slice类型
+    private final boolean returnsSlice;
     // 返回类型
     private final Class<?> returnType;
     // 如果返回为map,这里记录所有的map的key
@@ -348,6 +364,7 @@ public class MapperMethod {
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
       this.returnsOptional = Optional.class.equals(this.returnType);
+      this.returnsSlice = Slice.class.equals(this.returnType);
       this.mapKey = getMapKey(method);
       this.returnsMap = this.mapKey != null;
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
@@ -408,6 +425,15 @@ public class MapperMethod {
       return returnsOptional;
     }
 
+    /**
+     * return whether return type is {@link Slice}.
+     * @return return {@code true}, if return type is {@link Slice}
+     * @since 3.5.3
+     */
+    public boolean returnsSlice() {
+      return returnsSlice;
+    }
+
     // 返回指定参数的index
     private Integer getUniqueParamIndex(Method method, Class<?> paramType) {
       Integer index = null;
@@ -0,0 +1,187 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+
+/**
+ * A bounded, thread safe cache of the result of {@link SqlSourceBuilder#parse}: the SQL with
+ * {@code #{}} placeholders replaced by {@code ?} and the resolved {@link ParameterMapping}s.
+ * <p>
+ * Entries are keyed by the generated SQL text and the parameter type. Since a parameter mapping
+ * may take its java type from an additional parameter (e.g. a {@code <bind>} variable or a
+ * {@code <foreach>} item), every entry also remembers the types that were found in the additional
+ * parameters when it was parsed, and is only reused when the current ones are the same.
+ * <p>
+ * When the cache is full an arbitrary entry is evicted; dynamic statements usually produce a small
+ * number of distinct SQL texts so the bound is only a safeguard against unbounded growth.
+ *
+ * 动态SQL解析结果的缓存，键为拼接后的SQL语句和参数类型
+ *
+ * @since 3.5.3
+ */
+public class ParsedSqlCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final int maxSize;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public ParsedSqlCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public ParsedSqlCache(int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("The maximum size of the parsed SQL cache must be positive but was " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the cached entry for the given SQL, or null when there is none or when the cached one
+   * was parsed with different additional parameter types.
+   */
+  public Entry get(String originalSql, Class<?> parameterType, MetaObject metaParameters) {
+    Entry entry = entries.get(new Key(originalSql, parameterType));
+    if (entry != null && entry.matches(metaParameters)) {
+      hits.increment();
+      return entry;
+    }
+    misses.increment();
+    return null;
+  }
+
+  public void put(String originalSql, Class<?> parameterType, Entry entry) {
+    if (entries.size() >= maxSize) {
+      Iterator<Key> iterator = entries.keySet().iterator();
+      if (iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+        evictions.increment();
+      }
+    }
+    entries.put(new Key(originalSql, parameterType), entry);
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ParsedSqlCache[size=" + getSize() + ", maxSize=" + maxSize + ", hits=" + getHits()
+        + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+  }
+
+  /**
+   * A parsed SQL: the statement text, its parameter mappings and the additional parameter types
+   * the mappings were resolved with.
+   */
+  public static class Entry {
+    private final String sql;
+    private final List<ParameterMapping> parameterMappings;
+    // 每个参数映射解析时在附加参数中找到的类型，未找到时为null
+    private final Class<?>[] additionalParameterTypes;
+
+    public Entry(String sql, List<ParameterMapping> parameterMappings, Class<?>[] additionalParameterTypes) {
+      this.sql = sql;
+      this.parameterMappings = parameterMappings;
+      this.additionalParameterTypes = additionalParameterTypes;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public List<ParameterMapping> getParameterMappings() {
+      return parameterMappings;
+    }
+
+    boolean matches(MetaObject metaParameters) {
+      for (int i = 0; i < additionalParameterTypes.length; i++) {
+        if (additionalParameterTypes[i] != resolveAdditionalParameterType(metaParameters, parameterMappings.get(i).getProperty())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  static Class<?> resolveAdditionalParameterType(MetaObject metaParameters, String property) {
+    return metaParameters.hasGetter(property) ? metaParameters.getGetterType(property) : null;
+  }
+
+  private static final class Key {
+    private final String sql;
+    private final Class<?> parameterType;
+    private final int hashCode;
+
+    Key(String sql, Class<?> parameterType) {
+      this.sql = sql;
+      this.parameterType = parameterType;
+      this.hashCode = 31 * sql.hashCode() + parameterType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return parameterType == other.parameterType && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
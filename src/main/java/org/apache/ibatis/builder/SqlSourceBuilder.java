@@ -64,6 +64,33 @@ public class SqlSourceBuilder extends BaseBuilder {
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
   }
 
+  /**
+   * Same as {@link #parse(String, Class, Map)} but reuses the SQL and parameter mappings parsed by a
+   * previous call with the same SQL text, parameter type and additional parameter types.
+   *
+   * @since 3.5.3
+   */
+  public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters, ParsedSqlCache cache) {
+    ParsedSqlCache.Entry entry = cache.get(originalSql, parameterType, configuration.newMetaObject(additionalParameters));
+    if (entry == null) {
+      entry = parseEntry(originalSql, parameterType, additionalParameters);
+      cache.put(originalSql, parameterType, entry);
+    }
+    return new StaticSqlSource(configuration, entry.getSql(), entry.getParameterMappings());
+  }
+
+  /**
+   * Parses the SQL into an entry that can be stored in a {@link ParsedSqlCache}.
+   *
+   * @since 3.5.3
+   */
+  public ParsedSqlCache.Entry parseEntry(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+    GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
+    String sql = parser.parse(originalSql);
+    return new ParsedSqlCache.Entry(sql, handler.getParameterMappings(), handler.getAdditionalParameterTypes());
+  }
+
   // 用以替换占位符的处理器
   // 用来处理形如#｛ id, javaType= int, jdbcType=NUMERIC, typeHandler=DemoTypeHandler ｝
   private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
@@ -74,6 +101,8 @@ public class SqlSourceBuilder extends BaseBuilder {
     private Class<?> parameterType;
     // 参数的Meta对象
     private MetaObject metaParameters;
+    // 各个参数映射在附加参数中找到的类型，供ParsedSqlCache校验缓存项
+    private List<Class<?>> additionalParameterTypes = new ArrayList<>();
 
     public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
       super(configuration);
@@ -85,6 +114,10 @@ public class SqlSourceBuilder extends BaseBuilder {
       return parameterMappings;
     }
 
+    public Class<?>[] getAdditionalParameterTypes() {
+      return additionalParameterTypes.toArray(new Class<?>[0]);
+    }
+
     /**
      * 在这里，${}被替换为？
      * 但同时，用户传入的实际参数也被记录了
@@ -107,8 +140,10 @@ public class SqlSourceBuilder extends BaseBuilder {
       Map<String, String> propertiesMap = parseParameterMapping(content);
       String property = propertiesMap.get("property");
       Class<?> propertyType;
-      if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
-        propertyType = metaParameters.getGetterType(property);
+      Class<?> additionalParameterType = ParsedSqlCache.resolveAdditionalParameterType(metaParameters, property);
+      additionalParameterTypes.add(additionalParameterType);
+      if (additionalParameterType != null) { // issue #448 get type from additional params
+        propertyType = additionalParameterType;
       } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
         propertyType = parameterType;
       } else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
@@ -22,6 +22,7 @@ import javax.sql.DataSource;
 
 import org.apache.ibatis.builder.BaseBuilder;
 import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
@@ -290,6 +291,21 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), false));
+    configuration.setMethodHandleInvokersEnabled(booleanValueOf(props.getProperty("methodHandleInvokersEnabled"), false));
+    configuration.setParsedSqlCacheEnabled(booleanValueOf(props.getProperty("parsedSqlCacheEnabled"), false));
+    configuration.setSqlShapeCacheEnabled(booleanValueOf(props.getProperty("sqlShapeCacheEnabled"), false));
+    configuration.setCompiledOgnlExpressionsEnabled(booleanValueOf(props.getProperty("compiledOgnlExpressionsEnabled"), false));
+    configuration.setBatchReorderingEnabled(booleanValueOf(props.getProperty("batchReorderingEnabled"), false));
+    configuration.setBatchMaxSize(integerValueOf(props.getProperty("batchMaxSize"), 0));
+    configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), 0));
+    configuration.setBatchMultiRowInsertSize(integerValueOf(props.getProperty("batchMultiRowInsertSize"), 0));
+    configuration.setNestedSelectBatchSize(integerValueOf(props.getProperty("nestedSelectBatchSize"), 0));
+    configuration.setRowBoundsPushdownEnabled(booleanValueOf(props.getProperty("rowBoundsPushdownEnabled"), false));
+    configuration.setPaginationDialect(resolveClass(props.getProperty("paginationDialect")));
+    configuration.setInterceptorPipelineEnabled(booleanValueOf(props.getProperty("interceptorPipelineEnabled"), false));
+    configuration.setCursorPrefetchEnabled(booleanValueOf(props.getProperty("cursorPrefetchEnabled"), false));
+    configuration.setParsedSqlCacheSize(integerValueOf(props.getProperty("parsedSqlCacheSize"), ParsedSqlCache.DEFAULT_MAX_SIZE));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     configuration.setConfigurationFactory(resolveClass(props.getProperty("configurationFactory")));
   }
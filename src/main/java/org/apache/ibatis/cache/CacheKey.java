@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -27,38 +26,41 @@ import org.apache.ibatis.reflection.ArrayUtil;
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = 8176829312087653476L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
-  private static final int DEFAULT_MULTIPLYER = 37;
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
 
-  // 乘数，用来计算hashcode时使用
-  private final int multiplier;
-  // 哈希值，整个CacheKey的哈希值。如果两个CacheKey该值不同，则两个CacheKey一定不同
-  private int hashcode;
-  // 求和校验值，整个CacheKey的求和校验值。如果两个CacheKey该值不同，则两个CacheKey一定不同
-  private long checksum;
+  // 64位哈希的乘数（黄金分割数）
+  private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+  // FNV-1a 64位字符串哈希的初始值和乘数
+  private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+  private static final long FNV_PRIME = 0x100000001B3L;
+
+  // 64位哈希值，逐次混入每次更新的参数。如果两个CacheKey该值不同，则两个CacheKey一定不同
+  private long hash;
+  // 更新历史，只有前count个元素有效
+  private Object[] updateArray;
   // 更新次数，整个CacheKey的更新次数
   private int count;
-  // 更新历史
-  private List<Object> updateList;
 
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
-    this.count = 0;
-    this.updateList = new ArrayList<>();
+    this(DEFAULT_CAPACITY);
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
+  private CacheKey(int capacity) {
+    this.updateArray = new Object[capacity];
+  }
+
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   /**
@@ -66,15 +68,13 @@ public class CacheKey implements Cloneable, Serializable {
    * @param object 此次更新的参数
    */
   public void update(Object object) {
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
-
-    count++;
-    checksum += baseHashCode;
-    baseHashCode *= count;
+    hash = (hash ^ hash64(object)) * HASH_MULTIPLIER;
+    hash ^= hash >>> 29;
 
-    hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
+    if (count == updateArray.length) {
+      updateArray = Arrays.copyOf(updateArray, Math.max(DEFAULT_CAPACITY, count * 2));
+    }
+    updateArray[count++] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -83,6 +83,41 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  /**
+   * Returns a 64-bit hash of the object, consistent with {@link ArrayUtil#equals(Object, Object)}.
+   * <p>
+   * Strings (statement ids, SQL), longs, doubles and object arrays are hashed from their contents into 64 bits. Other
+   * objects contribute their 32-bit hash code.
+   */
+  private static long hash64(Object object) {
+    if (object == null) {
+      return 1;
+    }
+    if (object instanceof String) {
+      String string = (String) object;
+      long h = FNV_OFFSET_BASIS;
+      for (int i = 0, n = string.length(); i < n; i++) {
+        h = (h ^ string.charAt(i)) * FNV_PRIME;
+      }
+      return h;
+    }
+    if (object instanceof Long) {
+      return (Long) object;
+    }
+    if (object instanceof Double) {
+      return Double.doubleToLongBits((Double) object);
+    }
+    if (object instanceof Object[]) {
+      // ArrayUtil.equals按元素逐个比较
+      long h = 1;
+      for (Object element : (Object[]) object) {
+        h = (h ^ hash64(element)) * HASH_MULTIPLIER;
+      }
+      return h;
+    }
+    return ArrayUtil.hashCode(object);
+  }
+
   /**
    * 比较当前对象和入参对象（通常也是CacheKey对象）是否相等
    * @param object 入参对象
@@ -99,22 +134,19 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
     final CacheKey cacheKey = (CacheKey) object;
-    // 依次通过hashcode、checksum、count判断。必须完全一致才相等
-    if (hashcode != cacheKey.hashcode) {
-      return false;
-    }
-    if (checksum != cacheKey.checksum) {
+    // 依次通过hash、count判断。必须完全一致才相等
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (count != cacheKey.count) {
       return false;
     }
 
-    // 详细比较变更历史中的每次变更
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    // 详细比较变更历史中的每次变更。语句id、SQL等通常是同一个引用，不必调用equals
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateArray[i];
+      Object thatObject = cacheKey.updateArray[i];
+      if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -123,23 +155,65 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ (hash >>> 32));
   }
 
   @Override
   public String toString() {
     StringJoiner returnValue = new StringJoiner(":");
-    returnValue.add(String.valueOf(hashcode));
-    returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    returnValue.add(String.valueOf(hashCode()));
+    returnValue.add(String.valueOf(hash));
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(updateArray[i]));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updateArray = Arrays.copyOf(updateArray, Math.max(count, DEFAULT_CAPACITY));
     return clonedCacheKey;
   }
 
+  /**
+   * Builds a cache key whose update history is sized up front.
+   * <p>
+   * The key returned by {@link #build()} is a regular {@link CacheKey} and can still be updated, for example by
+   * interceptors that add their own values to the key created by an executor.
+   *
+   * @since 3.5.3
+   */
+  public static class Builder {
+
+    private CacheKey cacheKey;
+
+    /**
+     * @param expectedUpdateCount the number of updates the key is expected to receive
+     */
+    public Builder(int expectedUpdateCount) {
+      cacheKey = new CacheKey(Math.max(expectedUpdateCount, 1));
+    }
+
+    public Builder update(Object object) {
+      checkNotBuilt();
+      cacheKey.update(object);
+      return this;
+    }
+
+    public CacheKey build() {
+      checkNotBuilt();
+      CacheKey built = cacheKey;
+      // 构建后不能再通过Builder修改
+      cacheKey = null;
+      return built;
+    }
+
+    private void checkNotBuilt() {
+      if (cacheKey == null) {
+        throw new IllegalStateException("The cache key has already been built. Update the built key or use a new Builder.");
+      }
+    }
+  }
+
 }
@@ -15,8 +15,13 @@
  */
 package org.apache.ibatis.cache.decorators;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -29,6 +34,13 @@ import org.apache.ibatis.cache.CacheException;
  * Simple and inefficient version of EhCache's BlockingCache decorator.
  * It sets a lock over a cache key when the element is not found in cache.
  * This way, other threads will wait until this element is filled instead of hitting the database.
+ * <p>
+ * By default a lock is created per cache key. Two other modes can be enabled with the cache properties:
+ * <ul>
+ * <li>{@code lockStripes}: keys are hashed over a fixed number of locks, so that no lock is created per miss.</li>
+ * <li>{@code singleFlight}: no lock is held. The first thread missing a key loads it while the others wait
+ * for that load to complete and then read the loaded value from the cache.</li>
+ * </ul>
  *
  * @author Eduardo Macarron
  *
@@ -45,6 +57,12 @@ public class BlockingCache implements Cache {
   private final Cache delegate;
   // 锁的映射表。键为缓存记录的键，值为对应的锁。
   private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  // 分段锁，设置了lockStripes时使用
+  private volatile ReentrantLock[] stripes;
+  // 正在加载的键，开启singleFlight时使用
+  private volatile ConcurrentHashMap<Object, CompletableFuture<Void>> loadings;
+  // 当前线程持有的键（分段锁或加载任务），用于只释放自己获取的键。不再持有任何键时移除，避免线程池中的线程一直引用
+  private final ThreadLocal<Map<Object, Object>> heldKeys = ThreadLocal.withInitial(HashMap::new);
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
@@ -84,6 +102,10 @@ public class BlockingCache implements Cache {
    */
   @Override
   public Object getObject(Object key) {
+    final ConcurrentHashMap<Object, CompletableFuture<Void>> loadings = this.loadings;
+    if (loadings != null) {
+      return getObjectOrStartLoading(key, loadings);
+    }
     // 获取锁
     acquireLock(key);
     // 读取结果
@@ -116,14 +138,82 @@ public class BlockingCache implements Cache {
    * @return 该键对应的锁
    */
   private ReentrantLock getLockForKey(Object key) {
+    final ReentrantLock[] stripes = this.stripes;
+    if (stripes != null) {
+      int h = key.hashCode();
+      return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
     return locks.computeIfAbsent(key, k -> new ReentrantLock());
   }
 
+  /**
+   * singleFlight模式下读取缓存：未命中时，第一个线程负责加载，其他线程等待加载结束后重新读取缓存
+   */
+  private Object getObjectOrStartLoading(Object key, ConcurrentHashMap<Object, CompletableFuture<Void>> loadings) {
+    final Map<Object, Object> held = heldKeys.get();
+    while (true) {
+      Object value = delegate.getObject(key);
+      if (value != null || held.containsKey(key)) {
+        // 当前线程已经在加载该键，不能等待自己
+        removeHeldKeysIfEmpty(held);
+        return value;
+      }
+      CompletableFuture<Void> loading = new CompletableFuture<>();
+      CompletableFuture<Void> existing = loadings.putIfAbsent(key, loading);
+      if (existing == null) {
+        // 在登记加载任务之前，其他线程可能刚刚完成了加载
+        value = delegate.getObject(key);
+        if (value != null) {
+          loadings.remove(key, loading);
+          loading.complete(null);
+          removeHeldKeysIfEmpty(held);
+          return value;
+        }
+        held.put(key, loading);
+        return null;
+      }
+      awaitLoading(existing, key);
+    }
+  }
+
+  private void awaitLoading(CompletableFuture<Void> loading, Object key) {
+    try {
+      if (timeout > 0) {
+        loading.get(timeout, TimeUnit.MILLISECONDS);
+      } else {
+        loading.get();
+      }
+    } catch (TimeoutException e) {
+      throw new CacheException("Couldn't get a lock in " + timeout + " for the key " +  key + " at the cache " + delegate.getId());
+    } catch (InterruptedException e) {
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+    } catch (ExecutionException e) {
+      throw new CacheException("Loading of key " + key + " failed at the cache " + delegate.getId(), e.getCause());
+    }
+  }
+
   /**
    * 获取某个键的锁
    * @param key 数据的键
    */
   private void acquireLock(Object key) {
+    final boolean striped = stripes != null;
+    if (striped) {
+      Map<Object, Object> held = heldKeys.get();
+      if (held.containsKey(key)) {
+        // 已持有该键对应的分段锁
+        return;
+      }
+      if (!held.isEmpty()) {
+        // 已持有其他分段锁时不再等待新的分段锁，否则两个线程以相反顺序未命中时会互相等待而死锁。
+        // 拿不到锁就不加锁直接返回，该键可能被重复加载
+        Lock lock = getLockForKey(key);
+        if (lock.tryLock()) {
+          held.put(key, lock);
+        }
+        return;
+      }
+    }
     // 找出指定对象的锁
     Lock lock = getLockForKey(key);
     if (timeout > 0) {
@@ -139,6 +229,9 @@ public class BlockingCache implements Cache {
       // 锁住
       lock.lock();
     }
+    if (striped) {
+      heldKeys.get().put(key, lock);
+    }
   }
 
   /**
@@ -146,6 +239,25 @@ public class BlockingCache implements Cache {
    * @param key 被锁的对象
    */
   private void releaseLock(Object key) {
+    final ConcurrentHashMap<Object, CompletableFuture<Void>> loadings = this.loadings;
+    if (loadings != null) {
+      // 加载结束（无论是否写入了缓存），唤醒等待的线程
+      @SuppressWarnings("unchecked")
+      CompletableFuture<Void> loading = (CompletableFuture<Void>) removeHeldKey(key);
+      if (loading != null) {
+        loadings.remove(key, loading);
+        loading.complete(null);
+      }
+      return;
+    }
+    if (stripes != null) {
+      // 同一分段锁可能被多个键共享，只释放当前线程为该键获取的锁
+      Lock lock = (Lock) removeHeldKey(key);
+      if (lock != null) {
+        lock.unlock();
+      }
+      return;
+    }
     // 找出指定对象的锁
     ReentrantLock lock = locks.get(key);
     if (lock.isHeldByCurrentThread()) {
@@ -154,6 +266,24 @@ public class BlockingCache implements Cache {
     }
   }
 
+  /**
+   * 移除当前线程为某个键持有的分段锁或加载任务
+   * @param key 数据的键
+   * @return 持有的分段锁或加载任务，没有持有时为null
+   */
+  private Object removeHeldKey(Object key) {
+    Map<Object, Object> held = heldKeys.get();
+    Object value = held.remove(key);
+    removeHeldKeysIfEmpty(held);
+    return value;
+  }
+
+  private void removeHeldKeysIfEmpty(Map<Object, Object> held) {
+    if (held.isEmpty()) {
+      heldKeys.remove();
+    }
+  }
+
   public long getTimeout() {
     return timeout;
   }
@@ -161,4 +291,57 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  /**
+   * Returns the number of locks keys are hashed to, or 0 if a lock is created per key.
+   *
+   * @since 3.5.3
+   */
+  public int getLockStripes() {
+    final ReentrantLock[] stripes = this.stripes;
+    return stripes == null ? 0 : stripes.length;
+  }
+
+  /**
+   * Hashes the keys over a fixed number of locks instead of creating a lock per key. The number is rounded up to a
+   * power of two; 0 restores a lock per key.
+   * <p>
+   * A miss keeps its stripe locked until the value is put or the transaction ends, so a thread already holding a
+   * stripe never waits for another one: if that stripe is busy the key is read without blocking and may be loaded
+   * more than once. This prevents two sessions missing keys on the same stripes in opposite order from deadlocking.
+   *
+   * @since 3.5.3
+   */
+  public void setLockStripes(int lockStripes) {
+    if (lockStripes <= 0) {
+      this.stripes = null;
+      return;
+    }
+    int size = 1;
+    while (size < lockStripes) {
+      size <<= 1;
+    }
+    ReentrantLock[] newStripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      newStripes[i] = new ReentrantLock();
+    }
+    this.stripes = newStripes;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isSingleFlight() {
+    return loadings != null;
+  }
+
+  /**
+   * When enabled, threads missing a key that another thread is loading wait for that load to complete instead of
+   * holding a lock, and then read the loaded value from the cache. Takes precedence over {@link #setLockStripes(int)}.
+   *
+   * @since 3.5.3
+   */
+  public void setSingleFlight(boolean singleFlight) {
+    this.loadings = singleFlight ? new ConcurrentHashMap<>() : null;
+  }
 }
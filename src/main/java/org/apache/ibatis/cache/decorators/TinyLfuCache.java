@@ -0,0 +1,501 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * W-TinyLFU (window tiny least frequently used) cache decorator.
+ * <p>
+ * New entries go to a small LRU window. Entries leaving the window must then beat the eviction victim of the main
+ * segmented LRU region in a frequency estimate kept by a count-min sketch, so that a scan of rarely used keys does not
+ * flush the frequently used ones. The entries are kept by this decorator in a concurrent map: reads do not take any
+ * lock and only record the access in a lossy buffer that is replayed against the policy when writing or when the
+ * buffer fills up. Hence the cache built with this decorator is not wrapped in a {@link SynchronizedCache}.
+ * <p>
+ * The cache is bounded by its number of entries ({@link #setSize(int)}) or, when {@link #setMaximumWeight(long)} is
+ * set, by the total weight of its entries. By default the weight of a cached list is its number of rows.
+ *
+ * 基于W-TinyLFU淘汰策略的缓存装饰器，读操作不加锁
+ *
+ * @since 3.5.3
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int REMOVED = -1;
+
+  private static final int READ_BUFFER_SIZE = 128;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+  private static final int READ_BUFFER_DRAIN_THRESHOLD = 32;
+
+  private static final ToIntFunction<Object> DEFAULT_WEIGHER = value ->
+      value instanceof Collection ? Math.max(1, ((Collection<?>) value).size()) : 1;
+
+  // 被装饰对象
+  private final Cache delegate;
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  // 调整淘汰策略的数据结构时需持有该锁，读操作只会尝试获取
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  // 读缓冲区：记录被访问的节点，满了则丢弃
+  private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+  private final AtomicLong readBufferWriteCount = new AtomicLong();
+  private volatile long readBufferReadCount;
+
+  private final AccessOrderQueue window = new AccessOrderQueue();
+  private final AccessOrderQueue probation = new AccessOrderQueue();
+  private final AccessOrderQueue protectedQueue = new AccessOrderQueue();
+  private long windowWeight;
+  private long protectedWeight;
+  private long totalWeight;
+
+  private int size;
+  private long maximumWeight;
+  private ToIntFunction<Object> weigher = DEFAULT_WEIGHER;
+  private FrequencySketch sketch;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    setSize(1024);
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return data.size();
+  }
+
+  /**
+   * Sets the maximum number of entries. Clears the cache.
+   */
+  public void setSize(int size) {
+    evictionLock.lock();
+    try {
+      this.size = size;
+      reset();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Bounds the cache by the total weight of its entries instead of their number. Clears the cache.
+   *
+   * @param maximumWeight the maximum total weight, 0 to bound the number of entries
+   */
+  public void setMaximumWeight(long maximumWeight) {
+    evictionLock.lock();
+    try {
+      this.maximumWeight = maximumWeight;
+      reset();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * Sets the function computing the weight of a cached value, used when a maximum weight is set. Clears the cache.
+   */
+  public void setWeigher(ToIntFunction<Object> weigher) {
+    evictionLock.lock();
+    try {
+      this.weigher = weigher == null ? DEFAULT_WEIGHER : weigher;
+      reset();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * Returns the current total weight of the entries, i.e. their number when no maximum weight is set.
+   */
+  public long getWeight() {
+    evictionLock.lock();
+    try {
+      return totalWeight;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = data.get(key);
+    if (node == null) {
+      return null;
+    }
+    recordRead(node);
+    return node.value;
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    evictionLock.lock();
+    try {
+      drainReadBuffer();
+      sketch.increment(key.hashCode());
+      int weight = weigh(value);
+      Node node = data.get(key);
+      if (node == null) {
+        node = new Node(key, value, weight);
+        data.put(key, node);
+        window.addLast(node);
+        windowWeight += weight;
+        totalWeight += weight;
+      } else {
+        node.value = value;
+        adjustWeight(node, weight - node.weight);
+        onAccess(node);
+      }
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    evictionLock.lock();
+    try {
+      Node node = data.remove(key);
+      if (node == null) {
+        return null;
+      }
+      unlink(node);
+      return node.value;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      delegate.clear();
+      // 保留访问频率的统计
+      drainReadBuffer();
+      // 读缓冲区中可能还残留这些节点，标记为已删除
+      for (Node node : data.values()) {
+        node.queue = REMOVED;
+      }
+      data.clear();
+      window.clear();
+      probation.clear();
+      protectedQueue.clear();
+      windowWeight = 0;
+      protectedWeight = 0;
+      totalWeight = 0;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private void reset() {
+    clear();
+    sketch = new FrequencySketch(maximumWeight > 0 ? (int) Math.min(maximumWeight, 1 << 20) : size);
+  }
+
+  private int weigh(Object value) {
+    return maximumWeight > 0 ? weigher.applyAsInt(value) : 1;
+  }
+
+  private long capacity() {
+    return maximumWeight > 0 ? maximumWeight : size;
+  }
+
+  private void recordRead(Node node) {
+    long writeCount = readBufferWriteCount.get();
+    long pending = writeCount - readBufferReadCount;
+    if (pending < READ_BUFFER_SIZE && readBufferWriteCount.compareAndSet(writeCount, writeCount + 1)) {
+      readBuffer.lazySet((int) (writeCount & READ_BUFFER_MASK), node);
+      pending++;
+    }
+    // 缓冲区满时读记录被丢弃，淘汰策略只是近似的访问顺序
+    if (pending >= READ_BUFFER_DRAIN_THRESHOLD && evictionLock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  private void drainReadBuffer() {
+    long readCount = readBufferReadCount;
+    long writeCount = readBufferWriteCount.get();
+    while (readCount < writeCount) {
+      int index = (int) (readCount & READ_BUFFER_MASK);
+      Node node = readBuffer.get(index);
+      if (node == null) {
+        // 写入者已占位但尚未写入
+        break;
+      }
+      readBuffer.lazySet(index, null);
+      sketch.increment(node.key.hashCode());
+      onAccess(node);
+      readCount++;
+    }
+    readBufferReadCount = readCount;
+  }
+
+  private void onAccess(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.moveToBack(node);
+        break;
+      case PROBATION:
+        // 再次被访问的试用区数据晋升到保护区
+        probation.remove(node);
+        node.queue = PROTECTED;
+        protectedQueue.addLast(node);
+        protectedWeight += node.weight;
+        demoteProtected();
+        break;
+      case PROTECTED:
+        protectedQueue.moveToBack(node);
+        break;
+      default:
+        // 已被删除
+        break;
+    }
+  }
+
+  private void adjustWeight(Node node, int delta) {
+    node.weight += delta;
+    totalWeight += delta;
+    if (node.queue == WINDOW) {
+      windowWeight += delta;
+    } else if (node.queue == PROTECTED) {
+      protectedWeight += delta;
+    }
+  }
+
+  private void demoteProtected() {
+    long maximumProtected = (capacity() - maximumWindow()) * 4 / 5;
+    while (protectedWeight > maximumProtected && protectedQueue.first != null) {
+      Node demoted = protectedQueue.first;
+      protectedQueue.remove(demoted);
+      protectedWeight -= demoted.weight;
+      demoted.queue = PROBATION;
+      probation.addLast(demoted);
+    }
+  }
+
+  private long maximumWindow() {
+    return Math.max(1, capacity() / 100);
+  }
+
+  private void evict() {
+    // 窗口区溢出的数据进入试用区，作为淘汰候选
+    long maximumWindow = maximumWindow();
+    while (windowWeight > maximumWindow && window.first != null) {
+      Node node = window.first;
+      window.remove(node);
+      windowWeight -= node.weight;
+      node.queue = PROBATION;
+      probation.addLast(node);
+    }
+    long capacity = capacity();
+    while (totalWeight > capacity) {
+      Node victim = probation.first;
+      Node candidate = probation.last;
+      Node evicted;
+      if (victim == null) {
+        evicted = protectedQueue.first != null ? protectedQueue.first : window.first;
+      } else if (candidate == victim) {
+        evicted = victim;
+      } else {
+        // 访问频率更高的数据才能留下
+        evicted = sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode()) ? victim : candidate;
+      }
+      if (evicted == null) {
+        break;
+      }
+      data.remove(evicted.key, evicted);
+      unlink(evicted);
+    }
+  }
+
+  private void unlink(Node node) {
+    switch (node.queue) {
+      case WINDOW:
+        window.remove(node);
+        windowWeight -= node.weight;
+        break;
+      case PROBATION:
+        probation.remove(node);
+        break;
+      case PROTECTED:
+        protectedQueue.remove(node);
+        protectedWeight -= node.weight;
+        break;
+      default:
+        return;
+    }
+    totalWeight -= node.weight;
+    node.queue = REMOVED;
+  }
+
+  private static final class Node {
+    private final Object key;
+    private volatile Object value;
+    // 以下字段只在持有evictionLock时访问
+    private int weight;
+    private int queue = WINDOW;
+    private Node prev;
+    private Node next;
+
+    Node(Object key, Object value, int weight) {
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  /**
+   * Doubly linked list of nodes, least recently used first.
+   */
+  private static final class AccessOrderQueue {
+    private Node first;
+    private Node last;
+
+    void addLast(Node node) {
+      node.prev = last;
+      node.next = null;
+      if (last == null) {
+        first = node;
+      } else {
+        last.next = node;
+      }
+      last = node;
+    }
+
+    void remove(Node node) {
+      if (node.prev == null) {
+        first = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        last = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+
+    void moveToBack(Node node) {
+      if (node != last) {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    void clear() {
+      first = null;
+      last = null;
+    }
+  }
+
+  /**
+   * Count-min sketch of 4-bit counters estimating how often a key was accessed. All counters are halved periodically
+   * so that the estimate follows the recent accesses.
+   */
+  private static final class FrequencySketch {
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+      int length = 16;
+      while (length < maximumSize) {
+        length <<= 1;
+      }
+      this.table = new long[length];
+      this.tableMask = length - 1;
+      this.sampleSize = 10 * length;
+    }
+
+    int frequency(int hashCode) {
+      int hash = spread(hashCode);
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offsetOf(hash, i)) & 0xfL));
+      }
+      return frequency;
+    }
+
+    void increment(int hashCode) {
+      int hash = spread(hashCode);
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int offset = offsetOf(hash, i);
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+          table[index] += 1L << offset;
+          added = true;
+        }
+      }
+      if (added && ++additions == sampleSize) {
+        for (int i = 0; i < table.length; i++) {
+          table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+      }
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return ((int) h) & tableMask;
+    }
+
+    private static int offsetOf(int hash, int i) {
+      // 每个long包含16个计数器
+      return ((hash >>> (i << 3)) & 15) << 2;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+  }
+}
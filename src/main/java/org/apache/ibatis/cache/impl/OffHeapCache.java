@@ -0,0 +1,350 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Cache keeping the serialized values outside of the Java heap.
+ * <p>
+ * Values are serialized with a {@link CacheSerializer} and copied into fixed size blocks carved out of direct
+ * {@link ByteBuffer} slabs, so that large caches do not add to the garbage collector's work. Slabs are allocated on
+ * demand up to {@link #setMaxMemory(long)}; once it is reached, the least recently used entries are evicted. Only the
+ * keys and the block indexes of each entry stay on the heap. The memory, block and slab sizes are checked against each
+ * other once all of them are set, in {@link #initialize()} or at the first allocation. Like {@link org.apache.ibatis.cache.decorators.SerializedCache},
+ * every read returns a new copy of the cached value.
+ * <p>
+ * Use it as the cache implementation of a namespace:
+ * <pre>
+ * &lt;cache type="org.apache.ibatis.cache.impl.OffHeapCache"&gt;
+ *   &lt;property name="maxMemory" value="1073741824"/&gt;
+ * &lt;/cache&gt;
+ * </pre>
+ *
+ * 堆外缓存：序列化后的值存放在直接内存的定长块中，按最近最少使用淘汰
+ *
+ * @since 3.5.3
+ */
+public class OffHeapCache implements Cache, InitializingObject {
+
+  private final String id;
+  private CacheSerializer serializer = new CompactCacheSerializer();
+  private long maxMemory = 64L * 1024 * 1024;
+  private int blockSize = 512;
+  private int slabSize = 4 * 1024 * 1024;
+  // 各项大小是否已相互校验过
+  private boolean initialized;
+
+  // 以下字段需持有this锁访问
+  private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, .75F, true);
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  // 空闲块的栈
+  private int[] freeBlocks = new int[0];
+  private int freeBlockCount;
+  private long usedMemory;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public synchronized int getSize() {
+    return entries.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      removeObject(key);
+      return;
+    }
+    byte[] bytes = serializer.serialize(value);
+    synchronized (this) {
+      release(entries.remove(key));
+      int[] blocks = allocate((bytes.length + blockSize - 1) / blockSize);
+      if (blocks == null) {
+        // 大于整个缓存空间的值不缓存
+        return;
+      }
+      for (int i = 0; i < blocks.length; i++) {
+        int offset = i * blockSize;
+        copy(blocks[i], bytes, offset, Math.min(blockSize, bytes.length - offset), true);
+      }
+      entries.put(key, new Entry(blocks, bytes.length));
+      usedMemory += bytes.length;
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] bytes;
+    synchronized (this) {
+      Entry entry = entries.get(key);
+      if (entry == null) {
+        return null;
+      }
+      bytes = new byte[entry.length];
+      for (int i = 0; i < entry.blocks.length; i++) {
+        int offset = i * blockSize;
+        copy(entry.blocks[i], bytes, offset, Math.min(blockSize, bytes.length - offset), false);
+      }
+    }
+    return serializer.deserialize(bytes);
+  }
+
+  @Override
+  public synchronized Object removeObject(Object key) {
+    Entry entry = entries.remove(key);
+    release(entry);
+    return null;
+  }
+
+  @Override
+  public synchronized void clear() {
+    // 保留已分配的内存块供后续使用
+    entries.clear();
+    usedMemory = 0;
+    int blocksPerSlab = slabSize / blockSize;
+    freeBlockCount = 0;
+    for (int i = slabs.size() * blocksPerSlab - 1; i >= 0; i--) {
+      freeBlocks[freeBlockCount++] = i;
+    }
+  }
+
+  /**
+   * Returns the number of bytes taken by the serialized values.
+   */
+  public synchronized long getMemoryUsed() {
+    return usedMemory;
+  }
+
+  /**
+   * Returns the number of bytes of direct memory allocated by this cache.
+   */
+  public synchronized long getMemoryAllocated() {
+    return (long) slabs.size() * (slabSize / blockSize) * blockSize;
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  /**
+   * Sets the maximum number of bytes of direct memory this cache allocates. Default: 64MB.
+   */
+  public synchronized void setMaxMemory(long maxMemory) {
+    if (maxMemory <= 0) {
+      throw new CacheException("Invalid max memory " + maxMemory + " for cache " + id);
+    }
+    this.maxMemory = maxMemory;
+    releaseSlabs();
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Sets the size of the blocks values are stored in, i.e. the allocation unit. Default: 512 bytes.
+   */
+  public synchronized void setBlockSize(int blockSize) {
+    if (blockSize <= 0) {
+      throw new CacheException("Invalid block size " + blockSize + " for cache " + id);
+    }
+    this.blockSize = blockSize;
+    releaseSlabs();
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  /**
+   * Sets the size of the direct buffers allocated at once. Default: 4MB.
+   */
+  public synchronized void setSlabSize(int slabSize) {
+    if (slabSize <= 0) {
+      throw new CacheException("Invalid slab size " + slabSize + " for cache " + id);
+    }
+    this.slabSize = slabSize;
+    releaseSlabs();
+  }
+
+  /**
+   * Checks the memory, block and slab sizes against each other, whatever the order they were set in. Called by the
+   * {@link org.apache.ibatis.mapping.CacheBuilder} once all properties are set, or otherwise at the first allocation.
+   */
+  @Override
+  public synchronized void initialize() {
+    if (maxMemory < blockSize) {
+      throw new CacheException("Invalid max memory " + maxMemory + " for cache " + id + ", smaller than the block size "
+          + blockSize);
+    }
+    if (maxMemory < slabSize) {
+      // 至少能分配一个slab
+      slabSize = (int) maxMemory;
+    }
+    if (slabSize < blockSize) {
+      throw new CacheException("Invalid slab size " + slabSize + " for cache " + id + ", smaller than the block size "
+          + blockSize);
+    }
+    initialized = true;
+  }
+
+  /**
+   * Sets the class name of the {@link CacheSerializer} to use. Default: {@link CompactCacheSerializer}.
+   */
+  public synchronized void setSerializer(String serializerClassName) {
+    try {
+      this.serializer = (CacheSerializer) Resources.classForName(serializerClassName).getDeclaredConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer " + serializerClassName + ". Cause: " + e, e);
+    }
+    clear();
+  }
+
+  public CacheSerializer getCacheSerializer() {
+    return serializer;
+  }
+
+  private void releaseSlabs() {
+    initialized = false;
+    entries.clear();
+    slabs.clear();
+    freeBlocks = new int[0];
+    freeBlockCount = 0;
+    usedMemory = 0;
+  }
+
+  private void release(Entry entry) {
+    if (entry == null) {
+      return;
+    }
+    for (int block : entry.blocks) {
+      freeBlocks[freeBlockCount++] = block;
+    }
+    usedMemory -= entry.length;
+  }
+
+  private int[] allocate(int count) {
+    if (!initialized) {
+      initialize();
+    }
+    int blocksPerSlab = slabSize / blockSize;
+    if ((long) count * blockSize > maxMemory || (long) count > (maxMemory / slabSize) * blocksPerSlab) {
+      return null;
+    }
+    while (freeBlockCount < count) {
+      if ((long) (slabs.size() + 1) * slabSize <= maxMemory) {
+        addSlab(blocksPerSlab);
+      } else {
+        // 淘汰最近最少使用的数据
+        Iterator<Entry> eldest = entries.values().iterator();
+        if (!eldest.hasNext()) {
+          return null;
+        }
+        Entry entry = eldest.next();
+        eldest.remove();
+        release(entry);
+      }
+    }
+    int[] blocks = new int[count];
+    for (int i = 0; i < count; i++) {
+      blocks[i] = freeBlocks[--freeBlockCount];
+    }
+    return blocks;
+  }
+
+  private void addSlab(int blocksPerSlab) {
+    int first = slabs.size() * blocksPerSlab;
+    slabs.add(ByteBuffer.allocateDirect(blocksPerSlab * blockSize));
+    freeBlocks = Arrays.copyOf(freeBlocks, first + blocksPerSlab);
+    // 逆序入栈，使同一个值分到的块尽量连续
+    for (int i = first + blocksPerSlab - 1; i >= first; i--) {
+      freeBlocks[freeBlockCount++] = i;
+    }
+  }
+
+  private void copy(int block, byte[] bytes, int offset, int length, boolean write) {
+    int blocksPerSlab = slabSize / blockSize;
+    ByteBuffer slab = slabs.get(block / blocksPerSlab);
+    // 强转为Buffer以兼容Java 8
+    ((Buffer) slab).position((block % blocksPerSlab) * blockSize);
+    if (write) {
+      slab.put(bytes, offset, length);
+    } else {
+      slab.get(bytes, offset, length);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "OffHeapCache[" + id + ", entries=" + getSize() + ", memoryUsed=" + getMemoryUsed()
+        + ", memoryAllocated=" + getMemoryAllocated() + ", maxMemory=" + maxMemory + "]";
+  }
+
+  private static final class Entry {
+    private final int[] blocks;
+    private final int length;
+
+    Entry(int[] blocks, int length) {
+      this.blocks = blocks;
+      this.length = length;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+/**
+ * Converts cached values to bytes and back, for caches that do not keep the values as objects.
+ * <p>
+ * Implementations must be thread-safe and have a public no-argument constructor so they can be configured by
+ * class name. Deserializing must return a copy that is equal to the serialized value.
+ *
+ * 缓存值的序列化接口
+ *
+ * @since 3.5.3
+ */
+public interface CacheSerializer {
+
+  /**
+   * @param value the value to serialize, never null
+   * @return the serialized value
+   * @throws org.apache.ibatis.cache.CacheException if the value cannot be serialized
+   */
+  byte[] serialize(Object value);
+
+  /**
+   * @param bytes bytes returned by {@link #serialize(Object)}
+   * @return a copy of the serialized value
+   * @throws org.apache.ibatis.cache.CacheException if the bytes cannot be deserialized
+   */
+  Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,295 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * Compact binary serializer for the values typically returned by mapped statements.
+ * <p>
+ * Strings, boxed primitives, {@link BigDecimal}, {@link BigInteger}, dates, byte arrays, {@link ArrayList},
+ * {@link HashMap} and {@link LinkedHashMap} (e.g. results of {@code resultType="map"} statements) are written with a
+ * one byte type tag and no class descriptor. Any other value makes the whole value fall back to Java serialization;
+ * this is checked before anything is written. Only these exact classes are written compactly so that deserializing
+ * restores the same classes.
+ *
+ * 紧凑的二进制序列化：常见的值类型和集合不写入类描述，其他类型整体回退为Java序列化
+ *
+ * @since 3.5.3
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+  private static final int MAX_DEPTH = 32;
+
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte SHORT = 4;
+  private static final byte BYTE = 5;
+  private static final byte DOUBLE = 6;
+  private static final byte FLOAT = 7;
+  private static final byte BOOLEAN = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte BIG_DECIMAL = 10;
+  private static final byte BIG_INTEGER = 11;
+  private static final byte DATE = 12;
+  private static final byte SQL_DATE = 13;
+  private static final byte SQL_TIME = 14;
+  private static final byte SQL_TIMESTAMP = 15;
+  private static final byte BYTE_ARRAY = 16;
+  private static final byte ARRAY_LIST = 17;
+  private static final byte HASH_MAP = 18;
+  private static final byte LINKED_HASH_MAP = 19;
+  private static final byte JDK = 127;
+
+  private static final Set<Class<?>> SCALAR_TYPES = new HashSet<>(Arrays.asList(String.class, Integer.class,
+      Long.class, Short.class, Byte.class, Double.class, Float.class, Boolean.class, Character.class, BigDecimal.class,
+      BigInteger.class, Date.class, java.sql.Date.class, java.sql.Time.class, java.sql.Timestamp.class, byte[].class));
+
+  private final JdkCacheSerializer fallback = new JdkCacheSerializer();
+
+  @Override
+  public byte[] serialize(Object value) {
+    if (!isCompact(value, 0)) {
+      // 先检查再写入，避免写了一部分后才发现需要回退
+      byte[] serialized = fallback.serialize(value);
+      byte[] bytes = new byte[serialized.length + 1];
+      bytes[0] = JDK;
+      System.arraycopy(serialized, 0, bytes, 1, serialized.length);
+      return bytes;
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      write(out, value);
+    } catch (IOException e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+    return bos.toByteArray();
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    if (bytes.length > 0 && bytes[0] == JDK) {
+      return fallback.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      return read(in);
+    } catch (IOException | RuntimeException e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 判断值能否整体以紧凑格式写入。嵌套过深（包括循环引用）时回退为Java序列化
+   */
+  private static boolean isCompact(Object value, int depth) {
+    if (value == null || SCALAR_TYPES.contains(value.getClass())) {
+      return true;
+    }
+    Class<?> type = value.getClass();
+    if (depth >= MAX_DEPTH) {
+      return false;
+    }
+    if (type == ArrayList.class) {
+      for (Object element : (Collection<?>) value) {
+        if (!isCompact(element, depth + 1)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (type == HashMap.class || type == LinkedHashMap.class) {
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!isCompact(entry.getKey(), depth + 1) || !isCompact(entry.getValue(), depth + 1)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private void write(DataOutputStream out, Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      out.writeByte(STRING);
+      writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+    } else if (type == Integer.class) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (type == Long.class) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (type == Short.class) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (type == Byte.class) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (type == Double.class) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (type == Float.class) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (type == Boolean.class) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean) value);
+    } else if (type == Character.class) {
+      out.writeByte(CHARACTER);
+      out.writeChar((Character) value);
+    } else if (type == BigDecimal.class) {
+      out.writeByte(BIG_DECIMAL);
+      out.writeInt(((BigDecimal) value).scale());
+      writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+    } else if (type == BigInteger.class) {
+      out.writeByte(BIG_INTEGER);
+      writeBytes(out, ((BigInteger) value).toByteArray());
+    } else if (type == Date.class) {
+      out.writeByte(DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (type == java.sql.Date.class) {
+      out.writeByte(SQL_DATE);
+      out.writeLong(((Date) value).getTime());
+    } else if (type == java.sql.Time.class) {
+      out.writeByte(SQL_TIME);
+      out.writeLong(((Date) value).getTime());
+    } else if (type == java.sql.Timestamp.class) {
+      out.writeByte(SQL_TIMESTAMP);
+      out.writeLong(((Date) value).getTime());
+      out.writeInt(((java.sql.Timestamp) value).getNanos());
+    } else if (type == byte[].class) {
+      out.writeByte(BYTE_ARRAY);
+      writeBytes(out, (byte[]) value);
+    } else if (type == ArrayList.class) {
+      out.writeByte(ARRAY_LIST);
+      Collection<?> collection = (Collection<?>) value;
+      out.writeInt(collection.size());
+      for (Object element : collection) {
+        write(out, element);
+      }
+    } else if (type == HashMap.class || type == LinkedHashMap.class) {
+      out.writeByte(type == HashMap.class ? HASH_MAP : LINKED_HASH_MAP);
+      Map<?, ?> map = (Map<?, ?>) value;
+      out.writeInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(out, entry.getKey());
+        write(out, entry.getValue());
+      }
+    } else {
+      throw new CacheException("Unsupported type " + type.getName() + " in compact cache value.");
+    }
+  }
+
+  private Object read(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    switch (tag) {
+      case NULL:
+        return null;
+      case STRING:
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case SHORT:
+        return in.readShort();
+      case BYTE:
+        return in.readByte();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case BOOLEAN:
+        return in.readBoolean();
+      case CHARACTER:
+        return in.readChar();
+      case BIG_DECIMAL:
+        int scale = in.readInt();
+        return new BigDecimal(new BigInteger(readBytes(in)), scale);
+      case BIG_INTEGER:
+        return new BigInteger(readBytes(in));
+      case DATE:
+        return new Date(in.readLong());
+      case SQL_DATE:
+        return new java.sql.Date(in.readLong());
+      case SQL_TIME:
+        return new java.sql.Time(in.readLong());
+      case SQL_TIMESTAMP:
+        java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+        timestamp.setNanos(in.readInt());
+        return timestamp;
+      case BYTE_ARRAY:
+        return readBytes(in);
+      case ARRAY_LIST: {
+        int size = in.readInt();
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(read(in));
+        }
+        return list;
+      }
+      case HASH_MAP:
+      case LINKED_HASH_MAP: {
+        int size = in.readInt();
+        Map<Object, Object> map = tag == HASH_MAP ? new HashMap<>() : new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+          Object key = read(in);
+          map.put(key, read(in));
+        }
+        return map;
+      }
+      default:
+        throw new CacheException("Unknown type tag " + tag + " in serialized cache value.");
+    }
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+}
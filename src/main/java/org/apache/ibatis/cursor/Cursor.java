@@ -16,6 +16,10 @@
 package org.apache.ibatis.cursor;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cursor contract to handle fetching items lazily using an Iterator.
@@ -56,4 +60,28 @@ public interface Cursor<T> extends Closeable, Iterable<T> {
    * @return 当前元素的索引
    */
   int getCurrentIndex();
+
+  /**
+   * Returns a sequential stream over the items of this cursor. Closing the stream closes the cursor.
+   * <p>
+   * The stream can be made parallel: the items are then read from the cursor by the thread splitting the stream, in
+   * batches of 1024 items, and the batches are processed by the other threads.
+   *
+   * @return a stream of the items, like the iterator of this cursor it can be obtained only once
+   * @since 3.5.3
+   */
+  /**
+   * 返回遍历游标的流，关闭流时关闭游标
+   * @return 游标中对象的流
+   */
+  default Stream<T> stream() {
+    return StreamSupport.stream(new CursorSpliterator<>(this, CursorSpliterator.DEFAULT_BATCH_SIZE), false)
+        .onClose(() -> {
+          try {
+            close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
 }
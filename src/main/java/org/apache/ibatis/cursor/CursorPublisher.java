@@ -0,0 +1,184 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ * Reactive Streams {@link Publisher} of the items of a {@link Cursor}.
+ * <p>
+ * Items are read from the cursor only when they are requested, by the thread calling {@link Subscription#request(long)},
+ * so a slow subscriber holds back the reading of the result set instead of buffering it. The cursor is closed when all
+ * the items have been published, when the subscription is cancelled or when reading fails. Like the cursor, the
+ * publisher accepts a single subscriber. Requires the {@code org.reactivestreams:reactive-streams} library, whose
+ * {@code FlowAdapters} bridge to {@code java.util.concurrent.Flow}.
+ *
+ * 游标的发布者：只在订阅者请求时从游标中读取对象，订阅完成、取消或出错时关闭游标
+ *
+ * @since 3.5.3
+ */
+public class CursorPublisher<T> implements Publisher<T> {
+
+  private final Cursor<T> cursor;
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  public CursorPublisher(Cursor<T> cursor) {
+    this.cursor = cursor;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("The subscriber is null");
+    }
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Subscription() {
+        @Override
+        public void request(long n) {
+          // 已经终止的订阅忽略请求
+        }
+
+        @Override
+        public void cancel() {
+          // 已经终止的订阅忽略取消
+        }
+      });
+      subscriber.onError(new IllegalStateException("A Cursor can be published to only one subscriber."));
+      return;
+    }
+    CursorSubscription<T> subscription = new CursorSubscription<>(cursor, subscriber);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private static final class CursorSubscription<T> implements Subscription {
+
+    private final Cursor<T> cursor;
+    private final Subscriber<? super T> subscriber;
+    // 尚未满足的请求数，Long.MAX_VALUE表示不限
+    private final AtomicLong demand = new AtomicLong();
+    // 保证同一时刻只有一个线程读取游标并通知订阅者
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    private Iterator<T> iterator;
+    private boolean terminated;
+
+    CursorSubscription(Cursor<T> cursor, Subscriber<? super T> subscriber) {
+      this.cursor = cursor;
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("The number of requested items must be positive but was " + n);
+      } else {
+        demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      drain();
+    }
+
+    /**
+     * 由调用request的线程读取游标，订阅者在onNext中再次请求时只累加请求数，由外层循环继续发布
+     */
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        if (!terminated) {
+          emit();
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+
+    private void emit() {
+      long requested = demand.get();
+      long emitted = 0;
+      while (true) {
+        if (cancelled) {
+          terminate();
+          return;
+        }
+        Throwable error = invalidRequest;
+        if (error != null) {
+          terminate();
+          subscriber.onError(error);
+          return;
+        }
+        if (emitted == requested) {
+          if (requested != Long.MAX_VALUE) {
+            requested = demand.addAndGet(-emitted);
+            emitted = 0;
+          }
+          if (requested == 0) {
+            return;
+          }
+        }
+        T next;
+        try {
+          if (iterator == null) {
+            iterator = cursor.iterator();
+          }
+          if (!iterator.hasNext()) {
+            terminate();
+            subscriber.onComplete();
+            return;
+          }
+          next = iterator.next();
+        } catch (RuntimeException e) {
+          terminate();
+          subscriber.onError(e);
+          return;
+        }
+        try {
+          subscriber.onNext(next);
+        } catch (RuntimeException e) {
+          // 订阅者违反规范抛出异常时视为取消订阅
+          terminate();
+          throw e;
+        }
+        emitted++;
+      }
+    }
+
+    private void terminate() {
+      terminated = true;
+      try {
+        cursor.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+}
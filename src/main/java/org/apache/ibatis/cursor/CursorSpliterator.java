@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over the items of a {@link Cursor}, used by {@link Cursor#stream()}.
+ * <p>
+ * The number of items of a cursor is not known before it is consumed, so the spliterator is not sized. Splitting
+ * takes the next {@code batchSize} items from the cursor into an array, which is sized and can be split further, so a
+ * parallel stream processes batches while the cursor is read, holding a bounded number of items.
+ *
+ * 游标的Spliterator：拆分时从游标中读取固定数量的对象组成一批，供并行流处理
+ *
+ * @since 3.5.3
+ */
+class CursorSpliterator<T> implements Spliterator<T> {
+
+  static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL;
+
+  private final Cursor<T> cursor;
+  private final int batchSize;
+  private Iterator<T> iterator;
+
+  CursorSpliterator(Cursor<T> cursor, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("The batch size must be positive but was " + batchSize);
+    }
+    this.cursor = cursor;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    Iterator<T> it = iterator();
+    if (it.hasNext()) {
+      action.accept(it.next());
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    iterator().forEachRemaining(action);
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    Iterator<T> it = iterator();
+    if (!it.hasNext()) {
+      return null;
+    }
+    Object[] batch = new Object[batchSize];
+    int size = 0;
+    do {
+      batch[size++] = it.next();
+    } while (size < batchSize && it.hasNext());
+    return Spliterators.spliterator(batch, 0, size, CHARACTERISTICS);
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return CHARACTERISTICS;
+  }
+
+  // 开始遍历时才打开游标的迭代器
+  private Iterator<T> iterator() {
+    if (iterator == null) {
+      iterator = cursor.iterator();
+    }
+    return iterator;
+  }
+
+}
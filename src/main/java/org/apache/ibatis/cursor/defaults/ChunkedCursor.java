@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.cursor.Cursor;
+
+/**
+ * A cursor that returns the items of another cursor in chunks of a fixed size; the last chunk may be smaller.
+ * <p>
+ * The objects of a chunk are mapped from the result set in a single pass when the other cursor is a
+ * {@link DefaultCursor}. Every chunk is a new list owned by the caller, so chunks can be kept, and the cursor can be
+ * used through {@link Cursor#stream()}. The current index is the index of the chunk.
+ *
+ * 分块游标：每次返回固定数量的对象，每块都是新的列表
+ *
+ * @since 3.5.3
+ */
+public class ChunkedCursor<T> implements Cursor<List<T>> {
+
+  private final Cursor<T> delegate;
+  private final int chunkSize;
+  private final ChunkIterator iterator = new ChunkIterator();
+  private boolean iteratorRetrieved;
+  private boolean closed;
+  private Iterator<T> delegateIterator;
+
+  public ChunkedCursor(Cursor<T> delegate, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("The chunk size must be positive but was " + chunkSize);
+    }
+    this.delegate = delegate;
+    this.chunkSize = chunkSize;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return delegate.isOpen();
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return delegate.isConsumed();
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return iterator.index;
+  }
+
+  @Override
+  public Iterator<List<T>> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    return iterator;
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    delegate.close();
+  }
+
+  /**
+   * 读取下一块对象到新的列表中，没有对象时返回null
+   */
+  private List<T> fetchChunk() {
+    List<T> chunk = new ArrayList<>(chunkSize);
+    if (delegate instanceof DefaultCursor) {
+      ((DefaultCursor<T>) delegate).fetchChunk(chunk, chunkSize);
+    } else {
+      // 其他游标逐个读取
+      if (delegateIterator == null) {
+        delegateIterator = delegate.iterator();
+      }
+      while (chunk.size() < chunkSize && delegateIterator.hasNext()) {
+        chunk.add(delegateIterator.next());
+      }
+    }
+    return chunk.isEmpty() ? null : chunk;
+  }
+
+  private class ChunkIterator implements Iterator<List<T>> {
+
+    // 已经读取、尚未返回的下一块
+    List<T> chunk;
+    int index = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (chunk == null) {
+        chunk = fetchChunk();
+      }
+      return chunk != null;
+    }
+
+    @Override
+    public List<T> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      List<T> next = chunk;
+      chunk = null;
+      index++;
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+
+}
@@ -18,6 +18,7 @@ package org.apache.ibatis.cursor.defaults;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import org.apache.ibatis.cursor.Cursor;
@@ -47,6 +48,8 @@ public class DefaultCursor<T> implements Cursor<T> {
   private final RowBounds rowBounds;
   // ResultHandler的子类，起到暂存结果的作用
   private final ObjectWrapperResultHandler<T> objectWrapperResultHandler = new ObjectWrapperResultHandler<>();
+  // 分块读取时使用的结果处理器，首次分块读取时创建
+  private ChunkResultHandler chunkResultHandler;
   // 内部迭代器
   private final CursorIterator cursorIterator = new CursorIterator();
   // 迭代器存在标志位
@@ -173,7 +176,7 @@ public class DefaultCursor<T> implements Cursor<T> {
       indexWithRowBound++;
     }
 
-    if (next == null || getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit()) { // 没有新对象或者已经到了rowBounds边界
+    if (next == null || isLimitReached()) { // 没有新对象或者已经到了rowBounds边界
       // 游标内的数据已经消费完毕
       close();
       status = CursorStatus.CONSUMED;
@@ -183,6 +186,46 @@ public class DefaultCursor<T> implements Cursor<T> {
     return next;
   }
 
+  /**
+   * Maps up to {@code size} more objects into the chunk in a single pass over the result set, instead of one pass per
+   * object. Used by {@link ChunkedCursor}; cannot be mixed with the iterator of this cursor.
+   *
+   * 一次遍历结果集读取一块对象，而不是每个对象遍历一次
+   *
+   * @return the number of objects added, less than {@code size} only when the cursor is consumed
+   */
+  int fetchChunk(List<? super T> chunk, int size) {
+    if (isClosed()) {
+      return 0;
+    }
+    if (chunkResultHandler == null) {
+      chunkResultHandler = new ChunkResultHandler();
+    }
+    chunkResultHandler.chunk = chunk;
+    chunkResultHandler.remaining = size;
+    try {
+      status = CursorStatus.OPEN;
+      if (!rsw.getResultSet().isClosed()) {
+        resultSetHandler.handleRowValues(rsw, resultMap, chunkResultHandler, RowBounds.DEFAULT, null);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    } finally {
+      chunkResultHandler.chunk = null;
+    }
+    int added = size - chunkResultHandler.remaining;
+    // 没有填满说明结果集已经读完
+    if (added < size || isLimitReached()) {
+      close();
+      status = CursorStatus.CONSUMED;
+    }
+    return added;
+  }
+
+  private boolean isLimitReached() {
+    return getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit();
+  }
+
   private boolean isClosed() {
     return status == CursorStatus.CLOSED || status == CursorStatus.CONSUMED;
   }
@@ -208,6 +251,26 @@ public class DefaultCursor<T> implements Cursor<T> {
     }
   }
 
+  private class ChunkResultHandler implements ResultHandler<T> {
+
+    private List<? super T> chunk;
+    // 本块还需要读取的对象数
+    private int remaining;
+
+    @Override
+    public void handleResult(ResultContext<? extends T> context) {
+      indexWithRowBound++;
+      // 跳过rowBounds起始位置之前的对象
+      if (indexWithRowBound >= rowBounds.getOffset()) {
+        chunk.add(context.getResultObject());
+        remaining--;
+      }
+      if (remaining == 0 || isLimitReached()) {
+        context.stop();
+      }
+    }
+  }
+
   private class CursorIterator implements Iterator<T> {
     // 缓存下一个要返回的对象，在next操作中完成写入
     T object;
@@ -0,0 +1,281 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+
+/**
+ * A cursor that reads and maps the rows of another cursor on a background thread.
+ * <p>
+ * Up to {@code bufferSize} mapped objects are kept ahead of the consumer, so that fetching and mapping the next rows
+ * overlaps the processing of the current one. The delegate cursor is only used by the background thread once the
+ * iteration has started, so it must not run nested queries on the session. Closing this cursor stops the background
+ * thread after the row being fetched, then closes the delegate.
+ * <p>
+ * <b>While the background thread is reading, it uses the connection of the session.</b> The session must not run
+ * another statement, commit or roll back until this cursor has been read to the end or closed;
+ * {@link org.apache.ibatis.session.defaults.DefaultSqlSession} fails fast with an
+ * {@link org.apache.ibatis.executor.ExecutorException} when it is asked to. Any exception or error thrown while
+ * reading is rethrown to the consumer after the rows read before it.
+ *
+ * 预取游标：后台线程从被包装的游标中读取并映射对象，放入有界缓冲区，消费线程处理当前对象时后续对象已在读取
+ *
+ * @since 3.5.3
+ */
+public class PrefetchingCursor<T> implements Cursor<T> {
+
+  // 缓冲区中表示数据已经读完的标记
+  private static final Object END = new Object();
+
+  // 被包装的游标，开始迭代后只由后台线程访问
+  private final Cursor<T> delegate;
+  // 后台线程放入、消费线程取出的有界缓冲区
+  private final BlockingQueue<Object> buffer;
+  private final PrefetchingIterator iterator = new PrefetchingIterator();
+  // 开始迭代前被包装游标的索引
+  private final int initialIndex;
+  private boolean iteratorRetrieved;
+  private Thread producer;
+  // 通知后台线程停止读取
+  private volatile boolean closing;
+  // 后台线程正在使用连接，关闭被包装的游标后清除
+  private volatile boolean prefetching;
+  private boolean open;
+  private boolean consumed;
+  private boolean closed;
+
+  public PrefetchingCursor(Cursor<T> delegate, int bufferSize) {
+    this.delegate = delegate;
+    this.buffer = new ArrayBlockingQueue<>(bufferSize);
+    this.initialIndex = delegate.getCurrentIndex();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open && !closed;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return initialIndex + iterator.index;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    return iterator;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (producer == null) {
+      closeDelegate();
+      return;
+    }
+    // 清空缓冲区让后台线程不再阻塞，后台线程读完当前行后退出并关闭被包装的游标
+    closing = true;
+    buffer.clear();
+    boolean interrupted = false;
+    while (producer.isAlive()) {
+      try {
+        producer.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    buffer.clear();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Returns whether the background thread has started reading and has not yet closed the delegate cursor. During
+   * that time the connection of the session is in use by the background thread.
+   */
+  public boolean isPrefetching() {
+    return prefetching;
+  }
+
+  private void start() {
+    open = true;
+    prefetching = true;
+    producer = new Thread(this::produce, "mybatis-cursor-prefetch");
+    producer.setDaemon(true);
+    producer.start();
+  }
+
+  private void produce() {
+    Object last = END;
+    try {
+      Iterator<T> rows = delegate.iterator();
+      while (!closing && rows.hasNext()) {
+        if (!put(rows.next())) {
+          if (!closing) {
+            throw new PersistenceException("Interrupted while prefetching the rows of the cursor.");
+          }
+          break;
+        }
+      }
+    } catch (Throwable t) {
+      // Error也要交给消费线程，否则消费线程会一直等待
+      last = new Failure(t);
+    } finally {
+      // 先关闭结果集再通知消费线程，消费线程读到结束标记后即可关闭会话
+      closeDelegate();
+      prefetching = false;
+      putLast(last);
+    }
+  }
+
+  /**
+   * 放入缓冲区，缓冲区满时等待，游标被关闭或线程被中断时放弃
+   */
+  private boolean put(Object item) {
+    try {
+      while (!closing) {
+        if (buffer.offer(item, 10, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return false;
+  }
+
+  /**
+   * 放入结束或失败标记，除非游标已被关闭，否则一直等到放入为止
+   */
+  private void putLast(Object last) {
+    boolean interrupted = Thread.interrupted();
+    while (!closing) {
+      try {
+        if (buffer.offer(last, 10, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void closeDelegate() {
+    try {
+      delegate.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private static final class Failure {
+
+    private final Throwable exception;
+
+    Failure(Throwable exception) {
+      this.exception = exception;
+    }
+  }
+
+  private class PrefetchingIterator implements Iterator<T> {
+
+    // 下一个要返回的对象
+    Object object;
+    int index;
+
+    @Override
+    public boolean hasNext() {
+      if (object == null) {
+        object = take();
+      }
+      return object != END;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      T next = (T) object;
+      object = null;
+      index++;
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+
+    private Object take() {
+      if (closed) {
+        return END;
+      }
+      if (producer == null) {
+        start();
+      }
+      Object item;
+      try {
+        item = buffer.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new PersistenceException("Interrupted while waiting for the next row of the cursor.", e);
+      }
+      if (item == END) {
+        consumed = true;
+        closed = true;
+      } else if (item instanceof Failure) {
+        close();
+        Throwable exception = ((Failure) item).exception;
+        if (exception instanceof RuntimeException) {
+          throw (RuntimeException) exception;
+        } else if (exception instanceof Error) {
+          throw (Error) exception;
+        }
+        throw new PersistenceException("Error prefetching the rows of the cursor.  Cause: " + exception, exception);
+      }
+      return item;
+    }
+  }
+
+}
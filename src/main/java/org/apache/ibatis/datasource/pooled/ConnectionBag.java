@@ -0,0 +1,247 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Holds the connections of a {@link PooledDataSource} running in high concurrency mode.
+ * <p>
+ * Idle connections are kept in a lock-free deque, and the connection a thread returned last is remembered in a
+ * thread local so that the same thread usually gets it back without touching the shared deque. The number of checked
+ * out connections is bounded by a semaphore: threads waiting for a connection are handed a permit as soon as another
+ * thread returns one. A connection taken through the thread local is left in the deque and skipped lazily, so that
+ * neither path has to search the deque. Each {@link PooledConnection} moves from idle to active to released with a
+ * compare and set, so that a connection is never handed out twice and exactly one of returning, reclaiming an
+ * overdue connection or closing the pool gives up its permit.
+ *
+ * 高并发模式下的连接容器，借出和归还连接时无需获取连接池的全局锁
+ *
+ * @since 3.5.3
+ */
+class ConnectionBag {
+
+  // 线程本地快速路径取走的连接仍残留在队列中，累计到该数目后统一清理
+  private static final int STALE_SWEEP_THRESHOLD = 64;
+
+  private final ConcurrentLinkedDeque<PooledConnection> idleConnections = new ConcurrentLinkedDeque<>();
+  private final Set<PooledConnection> activeConnections = ConcurrentHashMap.newKeySet();
+  // 空闲连接数，不含已被线程本地快速路径取走但仍残留在队列中的连接
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final ThreadLocal<PooledConnection> lastReturned = new ThreadLocal<>();
+  // 队列中已被取走、尚未清理的连接数的近似值
+  private final AtomicInteger staleCount = new AtomicInteger();
+  private final ResizableSemaphore permits;
+  private int maximumActiveConnections;
+
+  ConnectionBag(int maximumActiveConnections) {
+    this.maximumActiveConnections = maximumActiveConnections;
+    this.permits = new ResizableSemaphore(maximumActiveConnections);
+  }
+
+  boolean tryAcquirePermit() {
+    return permits.tryAcquire();
+  }
+
+  boolean tryAcquirePermit(long timeoutMillis) throws InterruptedException {
+    return permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  void releasePermit() {
+    permits.release();
+  }
+
+  /**
+   * Changes the maximum number of active connections. Connections already checked out are not affected.
+   */
+  synchronized void resize(int maximumActiveConnections) {
+    int delta = maximumActiveConnections - this.maximumActiveConnections;
+    if (delta > 0) {
+      permits.release(delta);
+    } else if (delta < 0) {
+      permits.reducePermits(-delta);
+    }
+    this.maximumActiveConnections = maximumActiveConnections;
+  }
+
+  /**
+   * Takes an idle connection, preferring the one the current thread returned last.
+   *
+   * @return an idle connection, now marked active, or null if there is none
+   */
+  PooledConnection pollIdle() {
+    PooledConnection conn = lastReturned.get();
+    if (conn != null) {
+      lastReturned.remove();
+      if (conn.claim()) {
+        // 不在队列中查找该连接，残留的条目在之后出队或清理时跳过
+        idleCount.decrementAndGet();
+        if (staleCount.incrementAndGet() >= STALE_SWEEP_THRESHOLD) {
+          sweepStale();
+        }
+        return conn;
+      }
+    }
+    while ((conn = idleConnections.pollFirst()) != null) {
+      // 已被其他线程通过快速路径取走的连接直接丢弃
+      if (conn.claim()) {
+        idleCount.decrementAndGet();
+        return conn;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Removes the connections already taken through the thread local fast path from the idle deque.
+   */
+  private void sweepStale() {
+    staleCount.set(0);
+    idleConnections.removeIf(conn -> !conn.isClaimable());
+  }
+
+  /**
+   * Reserves room for one more idle connection, which must then be added with {@link #addIdle(PooledConnection)}.
+   */
+  boolean reserveIdleSlot(int maximumIdleConnections) {
+    while (true) {
+      int count = idleCount.get();
+      if (count >= maximumIdleConnections) {
+        return false;
+      }
+      if (idleCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Gives back an idle slot reserved with {@link #reserveIdleSlot(int)} that will not be used.
+   */
+  void cancelIdleSlot() {
+    idleCount.decrementAndGet();
+  }
+
+  void addIdle(PooledConnection conn) {
+    idleConnections.addLast(conn);
+    lastReturned.set(conn);
+  }
+
+  void addActive(PooledConnection conn) {
+    activeConnections.add(conn);
+  }
+
+  /**
+   * Marks an active connection as released.
+   *
+   * @return false if the connection was already released, e.g. reclaimed as overdue or closed with the pool
+   */
+  boolean removeActive(PooledConnection conn) {
+    if (!conn.release()) {
+      return false;
+    }
+    activeConnections.remove(conn);
+    return true;
+  }
+
+  /**
+   * Returns the active connection that has been checked out for the longest time, or null if there is none.
+   */
+  PooledConnection getOldestActiveConnection() {
+    PooledConnection oldest = null;
+    for (PooledConnection conn : activeConnections) {
+      if (oldest == null || conn.getCheckoutTimestamp() < oldest.getCheckoutTimestamp()) {
+        oldest = conn;
+      }
+    }
+    return oldest;
+  }
+
+  /**
+   * Removes the idle connections matching the given condition from the bag.
+   */
+  List<PooledConnection> takeIdle(Predicate<PooledConnection> condition) {
+    List<PooledConnection> taken = new ArrayList<>();
+    for (Iterator<PooledConnection> it = idleConnections.iterator(); it.hasNext();) {
+      PooledConnection conn = it.next();
+      if (condition.test(conn) && conn.claim()) {
+        it.remove();
+        idleCount.decrementAndGet();
+        taken.add(conn);
+      }
+    }
+    return taken;
+  }
+
+  /**
+   * Removes all idle connections from the bag.
+   */
+  List<PooledConnection> drainIdle() {
+    List<PooledConnection> drained = new ArrayList<>();
+    PooledConnection conn;
+    while ((conn = idleConnections.pollFirst()) != null) {
+      if (conn.claim()) {
+        idleCount.decrementAndGet();
+        drained.add(conn);
+      }
+    }
+    return drained;
+  }
+
+  /**
+   * Releases all active connections and their permits.
+   */
+  List<PooledConnection> drainActive() {
+    List<PooledConnection> drained = new ArrayList<>();
+    for (PooledConnection conn : activeConnections) {
+      if (removeActive(conn)) {
+        permits.release();
+        drained.add(conn);
+      }
+    }
+    return drained;
+  }
+
+  int getIdleCount() {
+    return idleCount.get();
+  }
+
+  int getActiveCount() {
+    return activeConnections.size();
+  }
+
+  private static class ResizableSemaphore extends Semaphore {
+    private static final long serialVersionUID = 1L;
+
+    ResizableSemaphore(int permits) {
+      super(permits);
+    }
+
+    @Override
+    protected void reducePermits(int reduction) {
+      super.reducePermits(reduction);
+    }
+  }
+}
@@ -17,6 +17,7 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * @author Clinton Begin
@@ -46,51 +47,130 @@ public class PoolState {
   protected long hadToWaitCount = 0;
   // 坏连接的数目
   protected long badConnectionCount = 0;
+  // 高并发模式下不持有锁更新的统计值，读取时与上面的字段相加
+  private final LongAdder concurrentRequestCount = new LongAdder();
+  private final LongAdder concurrentRequestTime = new LongAdder();
+  private final LongAdder concurrentCheckoutTime = new LongAdder();
+  private final LongAdder concurrentOverdueConnectionCount = new LongAdder();
+  private final LongAdder concurrentCheckoutTimeOfOverdueConnections = new LongAdder();
+  private final LongAdder concurrentWaitTime = new LongAdder();
+  private final LongAdder concurrentHadToWaitCount = new LongAdder();
+  private final LongAdder concurrentBadConnectionCount = new LongAdder();
+  // 预编译语句缓存的命中、未命中和淘汰次数
+  protected final LongAdder statementCacheHitCount = new LongAdder();
+  protected final LongAdder statementCacheMissCount = new LongAdder();
+  protected final LongAdder statementCacheEvictionCount = new LongAdder();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
   public synchronized long getRequestCount() {
-    return requestCount;
+    return requestCount + concurrentRequestCount.sum();
   }
 
   public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+    long count = getRequestCount();
+    return count == 0 ? 0 : (accumulatedRequestTime + concurrentRequestTime.sum()) / count;
   }
 
   public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+    long count = getHadToWaitCount();
+    return count == 0 ? 0 : (accumulatedWaitTime + concurrentWaitTime.sum()) / count;
 
   }
 
   public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+    return hadToWaitCount + concurrentHadToWaitCount.sum();
   }
 
   public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+    return badConnectionCount + concurrentBadConnectionCount.sum();
   }
 
   public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+    return claimedOverdueConnectionCount + concurrentOverdueConnectionCount.sum();
   }
 
   public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+    long count = getClaimedOverdueConnectionCount();
+    return count == 0 ? 0 : (accumulatedCheckoutTimeOfOverdueConnections + concurrentCheckoutTimeOfOverdueConnections.sum()) / count;
   }
 
   public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+    long count = getRequestCount();
+    return count == 0 ? 0 : (accumulatedCheckoutTime + concurrentCheckoutTime.sum()) / count;
   }
 
+  // 以下方法供高并发模式在不持有锁时更新统计值
+
+  void addConcurrentRequest(long requestTime) {
+    concurrentRequestCount.increment();
+    concurrentRequestTime.add(requestTime);
+  }
+
+  void addConcurrentCheckoutTime(long checkoutTime) {
+    concurrentCheckoutTime.add(checkoutTime);
+  }
+
+  void addConcurrentOverdueConnection(long checkoutTime) {
+    concurrentOverdueConnectionCount.increment();
+    concurrentCheckoutTimeOfOverdueConnections.add(checkoutTime);
+    concurrentCheckoutTime.add(checkoutTime);
+  }
+
+  void addConcurrentWait() {
+    concurrentHadToWaitCount.increment();
+  }
+
+  void addConcurrentWaitTime(long waitTime) {
+    concurrentWaitTime.add(waitTime);
+  }
+
+  void addConcurrentBadConnection() {
+    concurrentBadConnectionCount.increment();
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public synchronized long getStatementCacheHitCount() {
+    return statementCacheHitCount.sum();
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public synchronized long getStatementCacheMissCount() {
+    return statementCacheMissCount.sum();
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public synchronized long getStatementCacheEvictionCount() {
+    return statementCacheEvictionCount.sum();
+  }
+
+  /**
+   * Returns the ratio of the prepared statements taken from the cache, between 0 and 1.
+   *
+   * @since 3.5.3
+   */
+  public synchronized double getStatementCacheHitRatio() {
+    long hits = statementCacheHitCount.sum();
+    long count = hits + statementCacheMissCount.sum();
+    return count == 0 ? 0 : (double) hits / count;
+  }
 
   public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+    ConnectionBag bag = dataSource.bag;
+    return bag != null ? bag.getIdleCount() : idleConnections.size();
   }
 
   public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+    ConnectionBag bag = dataSource.bag;
+    return bag != null ? bag.getActiveCount() : activeConnections.size();
   }
 
   @Override
@@ -108,6 +188,12 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolHighConcurrencyEnabled     ").append(dataSource.bag != null);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMinIdleConnections         ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolMaxLifetime                ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolIdleTimeout                ").append(dataSource.poolIdleTimeout);
+    builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -119,6 +205,9 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHitCount         ").append(getStatementCacheHitCount());
+    builder.append("\n statementCacheMissCount        ").append(getStatementCacheMissCount());
+    builder.append("\n statementCacheEvictionCount    ").append(getStatementCacheEvictionCount());
     builder.append("\n===============================================================");
     return builder.toString();
   }
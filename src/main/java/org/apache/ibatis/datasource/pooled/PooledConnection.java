@@ -19,7 +19,9 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 
@@ -30,8 +32,14 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String PREPARE_STATEMENT = "prepareStatement";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
 
+  // 高并发模式下连接的状态：空闲、借出、已释放（归还、被回收或随连接池关闭）
+  private static final int IDLE = 0;
+  private static final int ACTIVE = 1;
+  private static final int RELEASED = 2;
+
   // 该连接的哈希值
   private final int hashCode;
   // 该连接所属的连接池
@@ -50,6 +58,10 @@ class PooledConnection implements InvocationHandler {
   private int connectionTypeCode;
   // 连接是否可用
   private boolean valid;
+  // 只在高并发模式下使用
+  private final AtomicInteger bagState = new AtomicInteger(IDLE);
+  // 物理连接上的预编译语句缓存，重新包装连接时转交给新的PooledConnection
+  private PreparedStatementCache statementCache;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -75,6 +87,31 @@ class PooledConnection implements InvocationHandler {
     valid = false;
   }
 
+  /**
+   * Marks an idle connection as checked out. Used by {@link ConnectionBag}.
+   *
+   * @return false if another thread has already checked out this connection
+   */
+  boolean claim() {
+    return bagState.compareAndSet(IDLE, ACTIVE);
+  }
+
+  /**
+   * Returns true if the connection is idle and has not been checked out yet. Used by {@link ConnectionBag}.
+   */
+  boolean isClaimable() {
+    return bagState.get() == IDLE;
+  }
+
+  /**
+   * Marks a checked out connection as released. Used by {@link ConnectionBag}.
+   *
+   * @return false if the connection has already been released
+   */
+  boolean release() {
+    return bagState.compareAndSet(ACTIVE, RELEASED);
+  }
+
   /**
    * Method to see if the connection is usable.
    *
@@ -210,6 +247,24 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Getter for the cache of the prepared statements of the real connection.
+   *
+   * @return the cache, or null if no statement has been cached yet
+   */
+  PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Setter for the cache of the prepared statements of the real connection.
+   *
+   * @param statementCache - the cache of the connection this wraps
+   */
+  void setStatementCache(PreparedStatementCache statementCache) {
+    this.statementCache = statementCache;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -262,6 +317,9 @@ class PooledConnection implements InvocationHandler {
       if (!Object.class.equals(method.getDeclaringClass())) {
         checkConnection();
       }
+      if (PREPARE_STATEMENT.equals(methodName) && dataSource.poolPreparedStatementCacheSize > 0) {
+        return prepareStatement(method, args);
+      }
       // 用真正的连接去执行操作
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
@@ -269,6 +327,21 @@ class PooledConnection implements InvocationHandler {
     }
   }
 
+  /**
+   * 优先从缓存中取出以相同参数预编译的语句
+   */
+  private PreparedStatement prepareStatement(Method method, Object[] args) throws Throwable {
+    if (statementCache == null) {
+      statementCache = new PreparedStatementCache(dataSource.getPoolState(), dataSource.poolPreparedStatementCacheSize);
+    }
+    PreparedStatementCache.Key key = new PreparedStatementCache.Key(args);
+    PreparedStatement statement = statementCache.checkout(key);
+    if (statement == null) {
+      statement = (PreparedStatement) method.invoke(realConnection, args);
+    }
+    return new PooledPreparedStatement(statementCache, key, statement, proxyConnection).getProxyStatement();
+  }
+
   private void checkConnection() throws SQLException {
     if (!valid) {
       throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
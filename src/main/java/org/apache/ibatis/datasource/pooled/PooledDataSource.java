@@ -16,13 +16,23 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
@@ -55,11 +65,24 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  // 后台维护相关的配置项，维护间隔为0时不启动维护线程
+  protected int poolHousekeepingInterval;
+  protected int poolMinimumIdleConnections;
+  protected int poolMaximumLifetime;
+  protected int poolIdleTimeout;
+  // 每个连接缓存的预编译语句数，为0时不缓存
+  protected int poolPreparedStatementCacheSize;
 
   // 存储池子中的连接的编码，编码用("" + url + username + password).hashCode()算出来
   // 因此，整个池子中的所有连接的编码必须是一致的，里面的连接是等价的
   private int expectedConnectionTypeCode;
 
+  // 高并发模式下存放连接的容器，未开启该模式时为null
+  volatile ConnectionBag bag;
+
+  // 后台维护线程，未开启后台维护时为null
+  private volatile ScheduledExecutorService housekeeper;
+
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
   }
@@ -255,6 +278,93 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * Enables the high concurrency mode. Connections are then checked out and returned without taking the pool wide
+   * lock: idle connections are kept in a lock-free queue, each thread first tries the connection it returned last,
+   * and threads waiting for a connection are handed one as soon as it is returned. The pool settings and the
+   * {@link PoolState} statistics have the same meaning in both modes.
+   *
+   * @param poolHighConcurrencyEnabled True to check out connections without the pool wide lock
+   *
+   * @since 3.5.3
+   */
+  public void setPoolHighConcurrencyEnabled(boolean poolHighConcurrencyEnabled) {
+    forceCloseAll();
+    if (poolHighConcurrencyEnabled != (bag != null)) {
+      this.bag = poolHighConcurrencyEnabled ? new ConnectionBag(poolMaximumActiveConnections) : null;
+    }
+  }
+
+  /**
+   * Interval between two runs of the background housekeeping. When greater than 0, a daemon thread periodically
+   * validates the idle connections with the ping query, evicts the connections that exceeded
+   * {@link #setPoolMaximumLifetime(int)} or {@link #setPoolIdleTimeout(int)}, and opens new connections until
+   * {@link #setPoolMinimumIdleConnections(int)} are idle. Connections are then handed out and returned without
+   * running the ping query.
+   *
+   * @param milliseconds the number of milliseconds between two runs, 0 to disable the background housekeeping
+   *
+   * @since 3.5.3
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    forceCloseAll();
+    restartHousekeeper();
+  }
+
+  /**
+   * The number of idle connections the background housekeeping keeps open, never more than the maximum number of
+   * idle connections.
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   *
+   * @since 3.5.3
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+    forceCloseAll();
+  }
+
+  /**
+   * The maximum time a connection stays open. Older connections are closed when returned to the pool or by the
+   * background housekeeping.
+   *
+   * @param milliseconds the maximum age of a connection in milliseconds, 0 for no limit
+   *
+   * @since 3.5.3
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The time after which the background housekeeping closes an unused idle connection, as long as more than the
+   * minimum number of idle connections are open.
+   *
+   * @param milliseconds the number of milliseconds a connection may stay idle, 0 for no limit
+   *
+   * @since 3.5.3
+   */
+  public void setPoolIdleTimeout(int milliseconds) {
+    this.poolIdleTimeout = milliseconds;
+    forceCloseAll();
+  }
+
+  /**
+   * The number of prepared statements cached by each connection. Statements prepared again with the same arguments on
+   * the same connection, even by another session, are taken from the cache, and the least recently used statements
+   * are closed beyond this number.
+   *
+   * @param poolPreparedStatementCacheSize the number of statements per connection, 0 to disable the cache
+   *
+   * @since 3.5.3
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -322,6 +432,48 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isPoolHighConcurrencyEnabled() {
+    return bag != null;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolIdleTimeout() {
+    return poolIdleTimeout;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
   /**
    * 将活动和空闲的连接全部关闭
    */
@@ -359,12 +511,34 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+      ConnectionBag bag = this.bag;
+      if (bag != null) {
+        closeAll(bag.drainActive());
+        closeAll(bag.drainIdle());
+        bag.resize(poolMaximumActiveConnections);
+      }
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
     }
   }
 
+  private void closeAll(List<PooledConnection> connections) {
+    for (PooledConnection conn : connections) {
+      try {
+        conn.invalidate();
+
+        Connection realConn = conn.getRealConnection();
+        if (!realConn.getAutoCommit()) {
+          realConn.rollback();
+        }
+        realConn.close();
+      } catch (Exception e) {
+        // ignore
+      }
+    }
+  }
+
   public PoolState getPoolState() {
     return state;
   }
@@ -386,12 +560,18 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    ConnectionBag bag = this.bag;
+    if (bag != null) {
+      pushConnection(conn, bag);
+      return;
+    }
     synchronized (state) {
       // 将该连接从活跃连接中删除
       state.activeConnections.remove(conn);
       if (conn.isValid()) { // 当前连接是可用的
         // 判断连接池未满 + 该连接确实属于该连接池
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isExpired(conn)) {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
           if (!conn.getRealConnection().getAutoCommit()) { // 如果连接没有设置自动提交
             // 将未完成的操作回滚
@@ -403,6 +583,7 @@ public class PooledDataSource implements DataSource {
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          newConn.setStatementCache(conn.getStatementCache());
           // 设置连接为未校验，以便取出时重新校验
           conn.invalidate();
           if (log.isDebugEnabled()) {
@@ -438,6 +619,10 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    ConnectionBag bag = this.bag;
+    if (bag != null) {
+      return popConnection(username, password, bag);
+    }
     boolean countedWait = false;
     PooledConnection conn = null;
     // 用于统计取出连接花费的时长的时间起点
@@ -505,7 +690,7 @@ public class PooledDataSource implements DataSource {
                 state.wait(poolTimeToWait);
                 state.accumulatedWaitTime += System.currentTimeMillis() - wt;
               } catch (InterruptedException e) {
-                break;
+                throw interruptedWhileWaiting(e);
               }
             }
           }
@@ -556,6 +741,168 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * 高并发模式下收回一个连接，不持有state锁
+   */
+  private void pushConnection(PooledConnection conn, ConnectionBag bag) throws SQLException {
+    if (!bag.removeActive(conn)) {
+      // 该连接已作为超期连接被回收，或已随连接池关闭
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.addConcurrentBadConnection();
+      return;
+    }
+    try {
+      if (conn.isValid()) {
+        state.addConcurrentCheckoutTime(conn.getCheckoutTime());
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+        if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && !isExpired(conn)
+            && bag.reserveIdleSlot(poolMaximumIdleConnections)) {
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+          newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+          newConn.setStatementCache(conn.getStatementCache());
+          conn.invalidate();
+          bag.addIdle(newConn);
+          if (log.isDebugEnabled()) {
+            log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+          }
+        } else {
+          conn.getRealConnection().close();
+          if (log.isDebugEnabled()) {
+            log.debug("Closed connection " + conn.getRealHashCode() + ".");
+          }
+          conn.invalidate();
+        }
+      } else {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+        }
+        state.addConcurrentBadConnection();
+      }
+    } finally {
+      // 先放回空闲连接再释放许可，被唤醒的等待线程可以直接取到该连接
+      bag.releasePermit();
+    }
+  }
+
+  /**
+   * 高并发模式下给出一个连接，不持有state锁。
+   * 借出的连接数由许可数量限制，超期连接的回收和坏连接的容忍次数与普通模式一致
+   */
+  private PooledConnection popConnection(String username, String password, ConnectionBag bag) throws SQLException {
+    boolean countedWait = false;
+    PooledConnection conn = null;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    // 先取得一个许可，或者直接接管一个超期连接（连同它的许可）
+    while (!bag.tryAcquirePermit()) {
+      conn = claimOverdueConnection(bag);
+      if (conn != null) {
+        break;
+      }
+      if (!countedWait) {
+        state.addConcurrentWait();
+        countedWait = true;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+      }
+      long wt = System.currentTimeMillis();
+      boolean acquired;
+      try {
+        acquired = bag.tryAcquirePermit(poolTimeToWait);
+      } catch (InterruptedException e) {
+        throw interruptedWhileWaiting(e);
+      }
+      state.addConcurrentWaitTime(System.currentTimeMillis() - wt);
+      if (acquired) {
+        break;
+      }
+    }
+
+    try {
+      while (true) {
+        if (conn == null) {
+          conn = bag.pollIdle();
+          if (conn != null) {
+            if (log.isDebugEnabled()) {
+              log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+            }
+          } else {
+            conn = new PooledConnection(dataSource.getConnection(), this);
+            conn.claim();
+            if (log.isDebugEnabled()) {
+              log.debug("Created connection " + conn.getRealHashCode() + ".");
+            }
+          }
+        }
+        if (conn.isValid()) {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          bag.addActive(conn);
+          state.addConcurrentRequest(System.currentTimeMillis() - t);
+          return conn;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        state.addConcurrentBadConnection();
+        localBadConnectionCount++;
+        conn = null;
+        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    } catch (SQLException | RuntimeException e) {
+      // 没能借出连接，归还许可
+      bag.releasePermit();
+      throw e;
+    }
+  }
+
+  /**
+   * 高并发模式下，如果借出最久的连接已经超期，则接管该连接及其许可
+   */
+  private PooledConnection claimOverdueConnection(ConnectionBag bag) {
+    PooledConnection oldestActiveConnection = bag.getOldestActiveConnection();
+    if (oldestActiveConnection == null) {
+      return null;
+    }
+    long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+    if (longestCheckoutTime <= poolMaximumCheckoutTime || !bag.removeActive(oldestActiveConnection)) {
+      return null;
+    }
+    state.addConcurrentOverdueConnection(longestCheckoutTime);
+    try {
+      if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+        oldestActiveConnection.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      log.debug("Bad connection. Could not roll back");
+    }
+    PooledConnection conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+    conn.claim();
+    conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+    oldestActiveConnection.invalidate();
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+    }
+    return conn;
+  }
+
   /**
    * Method to check to see if a connection is still usable
    *
@@ -563,6 +910,11 @@ public class PooledDataSource implements DataSource {
    * @return True if the connection is still usable
    */
   protected boolean pingConnection(PooledConnection conn) {
+    // 开启后台维护后，由维护线程负责用侦测语句校验空闲连接
+    return pingConnection(conn, housekeeper == null);
+  }
+
+  private boolean pingConnection(PooledConnection conn, boolean runPingQuery) {
     boolean result = true;
 
     try {
@@ -574,7 +926,7 @@ public class PooledDataSource implements DataSource {
       result = false;
     }
 
-    if (result) {
+    if (result && runPingQuery) {
       if (poolPingEnabled) {
         if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
           try {
@@ -610,6 +962,168 @@ public class PooledDataSource implements DataSource {
     return result;
   }
 
+  /**
+   * 等待连接时线程被中断：恢复中断标志，并给出说明中断的异常
+   */
+  private SQLException interruptedWhileWaiting(InterruptedException e) {
+    Thread.currentThread().interrupt();
+    if (log.isDebugEnabled()) {
+      log.debug("PooledDataSource: Interrupted while waiting for a connection.");
+    }
+    return new SQLException("PooledDataSource: Interrupted while waiting for a connection.", e);
+  }
+
+  /**
+   * 连接是否超过了最大存活时间
+   */
+  private boolean isExpired(PooledConnection conn) {
+    return poolMaximumLifetime > 0 && conn.getAge() > poolMaximumLifetime;
+  }
+
+  private boolean isIdleTimedOut(PooledConnection conn) {
+    return poolIdleTimeout > 0 && conn.getTimeElapsedSinceLastUse() > poolIdleTimeout;
+  }
+
+  private boolean needsPing(PooledConnection conn) {
+    return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor;
+  }
+
+  private synchronized void restartHousekeeper() {
+    if (housekeeper != null) {
+      housekeeper.shutdownNow();
+      housekeeper = null;
+    }
+    if (poolHousekeepingInterval > 0) {
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PooledDataSource-housekeeper");
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.scheduleWithFixedDelay(new HousekeepingTask(this, executor), 0, poolHousekeepingInterval, TimeUnit.MILLISECONDS);
+      housekeeper = executor;
+    }
+  }
+
+  /**
+   * 后台维护：校验和淘汰空闲连接，并补足最小空闲连接数。
+   * 需要处理的空闲连接先从池中取出，校验时不会阻塞借出连接的线程
+   */
+  void housekeep() {
+    List<PooledConnection> candidates = takeIdleConnections(conn -> isExpired(conn) || isIdleTimedOut(conn) || needsPing(conn));
+    int idleConnectionCount = state.getIdleConnectionCount();
+    for (PooledConnection conn : candidates) {
+      if (isExpired(conn) || (isIdleTimedOut(conn) && idleConnectionCount >= poolMinimumIdleConnections)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Evicted connection " + conn.getRealHashCode() + ".");
+        }
+        closeAll(Collections.singletonList(conn));
+      } else if (!pingConnection(conn, true)) {
+        if (log.isDebugEnabled()) {
+          log.debug("A bad idle connection (" + conn.getRealHashCode() + ") was found, discarding connection.");
+        }
+        closeAll(Collections.singletonList(conn));
+      } else {
+        PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+        newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+        newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+        newConn.setStatementCache(conn.getStatementCache());
+        conn.invalidate();
+        if (addIdleConnection(newConn, poolMaximumIdleConnections)) {
+          idleConnectionCount++;
+        } else {
+          closeAll(Collections.singletonList(newConn));
+        }
+      }
+    }
+    fillIdleConnections();
+  }
+
+  /**
+   * 新建连接，直到空闲连接数达到最小空闲连接数
+   */
+  private void fillIdleConnections() {
+    int minimumIdleConnections = Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+    while (state.getIdleConnectionCount() < minimumIdleConnections
+        && state.getIdleConnectionCount() + state.getActiveConnectionCount() < poolMaximumActiveConnections) {
+      PooledConnection conn;
+      try {
+        conn = new PooledConnection(dataSource.getConnection(), this);
+      } catch (SQLException e) {
+        log.warn("Could not open an idle connection: " + e.getMessage());
+        return;
+      }
+      if (!addIdleConnection(conn, minimumIdleConnections)) {
+        closeAll(Collections.singletonList(conn));
+        return;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  private List<PooledConnection> takeIdleConnections(Predicate<PooledConnection> condition) {
+    ConnectionBag bag = this.bag;
+    if (bag != null) {
+      return bag.takeIdle(condition);
+    }
+    List<PooledConnection> taken = new ArrayList<>();
+    synchronized (state) {
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (condition.test(conn)) {
+          it.remove();
+          taken.add(conn);
+        }
+      }
+    }
+    return taken;
+  }
+
+  private boolean addIdleConnection(PooledConnection conn, int maximumIdleConnections) {
+    ConnectionBag bag = this.bag;
+    if (bag != null) {
+      if (!bag.reserveIdleSlot(maximumIdleConnections)) {
+        return false;
+      }
+      bag.addIdle(conn);
+      return true;
+    }
+    synchronized (state) {
+      if (state.idleConnections.size() >= maximumIdleConnections) {
+        return false;
+      }
+      state.idleConnections.add(conn);
+      state.notifyAll();
+      return true;
+    }
+  }
+
+  private static class HousekeepingTask implements Runnable {
+    // 弱引用，数据源不再使用时维护线程随之停止
+    private final WeakReference<PooledDataSource> dataSource;
+    private final ScheduledExecutorService executor;
+
+    HousekeepingTask(PooledDataSource dataSource, ScheduledExecutorService executor) {
+      this.dataSource = new WeakReference<>(dataSource);
+      this.executor = executor;
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource ds = dataSource.get();
+      if (ds == null) {
+        executor.shutdown();
+        return;
+      }
+      try {
+        ds.housekeep();
+      } catch (RuntimeException e) {
+        log.warn("PooledDataSource housekeeping failed: " + e.getMessage());
+      }
+    }
+  }
+
   /**
    * Unwraps a pooled connection to get to the 'real' connection
    *
@@ -626,6 +1140,24 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * Unwraps a statement taken from the prepared statement cache to get to the 'real' statement
+   *
+   * @param statement - the cached statement to unwrap
+   * @return The 'real' statement
+   *
+   * @since 3.5.3
+   */
+  static PreparedStatement unwrapStatement(PreparedStatement statement) {
+    if (Proxy.isProxyClass(statement.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(statement);
+      if (handler instanceof PooledPreparedStatement) {
+        return ((PooledPreparedStatement) handler).getRealStatement();
+      }
+    }
+    return statement;
+  }
+
   @Override
   protected void finalize() throws Throwable {
     forceCloseAll();
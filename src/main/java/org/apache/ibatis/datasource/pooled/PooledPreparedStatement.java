@@ -0,0 +1,224 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A prepared statement taken from a {@link PreparedStatementCache}.
+ * <p>
+ * Closing the statement closes its result sets, resets its parameters and the settings that were changed, and
+ * returns the real statement to the cache. Statements whose state cannot be reset are closed for real.
+ *
+ * 从缓存中借出的预编译语句，关闭时重置状态后放回缓存，而不是真正关闭
+ *
+ * @since 3.5.3
+ */
+class PooledPreparedStatement implements InvocationHandler {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  // 关闭时需要恢复为初始值的设置
+  private static final int MAX_ROWS = 0;
+  private static final int QUERY_TIMEOUT = 1;
+  private static final int FETCH_SIZE = 2;
+  private static final int FETCH_DIRECTION = 3;
+  private static final int MAX_FIELD_SIZE = 4;
+
+  private final PreparedStatementCache cache;
+  private final PreparedStatementCache.Key key;
+  private final PreparedStatement realStatement;
+  private final Connection proxyConnection;
+  private final PreparedStatement proxyStatement;
+  // 被修改的设置在第一次修改前的值
+  private final Integer[] defaults = new Integer[5];
+  // 由该语句返回、关闭时需要一起关闭的结果集
+  private List<ResultSet> resultSets;
+  private boolean batched;
+  // 修改了无法恢复的设置时为false，关闭时真正关闭语句
+  private boolean reusable = true;
+  private boolean closed;
+
+  PooledPreparedStatement(PreparedStatementCache cache, PreparedStatementCache.Key key, PreparedStatement realStatement,
+      Connection proxyConnection) {
+    this.cache = cache;
+    this.key = key;
+    this.realStatement = realStatement;
+    this.proxyConnection = proxyConnection;
+    this.proxyStatement = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES, this);
+  }
+
+  public PreparedStatement getRealStatement() {
+    return realStatement;
+  }
+
+  public PreparedStatement getProxyStatement() {
+    return proxyStatement;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    if (Object.class.equals(method.getDeclaringClass())) {
+      switch (methodName) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          return "Pooled" + realStatement;
+      }
+    }
+    switch (methodName) {
+      case "close":
+        if (!closed) {
+          closed = true;
+          release();
+        }
+        return null;
+      case "isClosed":
+        return closed;
+      default:
+        break;
+    }
+    if (closed) {
+      throw new SQLException("Error accessing PooledPreparedStatement. Statement is closed.");
+    }
+    switch (methodName) {
+      case "getConnection":
+        return proxyConnection;
+      case "addBatch":
+        batched = true;
+        break;
+      case "setLargeMaxRows":
+      case "setCursorName":
+      case "setEscapeProcessing":
+      case "setPoolable":
+      case "closeOnCompletion":
+        reusable = false;
+        break;
+      default:
+        int setting = settingIndex(methodName);
+        if (setting >= 0 && defaults[setting] == null) {
+          defaults[setting] = getSetting(setting);
+        }
+        break;
+    }
+    Object result;
+    try {
+      result = method.invoke(realStatement, args);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+    if (result instanceof ResultSet) {
+      if (resultSets == null) {
+        resultSets = new ArrayList<>();
+      }
+      resultSets.add((ResultSet) result);
+    }
+    return result;
+  }
+
+  private void release() throws SQLException {
+    if (reusable) {
+      try {
+        if (resultSets != null) {
+          for (ResultSet resultSet : resultSets) {
+            resultSet.close();
+          }
+        }
+        if (batched) {
+          realStatement.clearBatch();
+        }
+        realStatement.clearParameters();
+        realStatement.clearWarnings();
+        for (int i = 0; i < defaults.length; i++) {
+          if (defaults[i] != null) {
+            setSetting(i, defaults[i]);
+          }
+        }
+        cache.checkin(key, realStatement);
+        return;
+      } catch (SQLException e) {
+        // 无法重置的语句不放回缓存
+      }
+    }
+    realStatement.close();
+  }
+
+  private static int settingIndex(String methodName) {
+    switch (methodName) {
+      case "setMaxRows":
+        return MAX_ROWS;
+      case "setQueryTimeout":
+        return QUERY_TIMEOUT;
+      case "setFetchSize":
+        return FETCH_SIZE;
+      case "setFetchDirection":
+        return FETCH_DIRECTION;
+      case "setMaxFieldSize":
+        return MAX_FIELD_SIZE;
+      default:
+        return -1;
+    }
+  }
+
+  private int getSetting(int setting) throws SQLException {
+    switch (setting) {
+      case MAX_ROWS:
+        return realStatement.getMaxRows();
+      case QUERY_TIMEOUT:
+        return realStatement.getQueryTimeout();
+      case FETCH_SIZE:
+        return realStatement.getFetchSize();
+      case FETCH_DIRECTION:
+        return realStatement.getFetchDirection();
+      default:
+        return realStatement.getMaxFieldSize();
+    }
+  }
+
+  private void setSetting(int setting, int value) throws SQLException {
+    switch (setting) {
+      case MAX_ROWS:
+        realStatement.setMaxRows(value);
+        break;
+      case QUERY_TIMEOUT:
+        realStatement.setQueryTimeout(value);
+        break;
+      case FETCH_SIZE:
+        realStatement.setFetchSize(value);
+        break;
+      case FETCH_DIRECTION:
+        realStatement.setFetchDirection(value);
+        break;
+      default:
+        realStatement.setMaxFieldSize(value);
+        break;
+    }
+  }
+
+}
@@ -0,0 +1,160 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of the idle prepared statements of one physical connection.
+ * <p>
+ * The cache belongs to the real connection rather than to the {@link PooledConnection} wrapping it, so the statements
+ * prepared by one session are reused by the next sessions that borrow the same connection. A statement is removed
+ * from the cache while it is in use and put back when it is closed, so it is never shared.
+ *
+ * 物理连接上的预编译语句缓存：语句借出时从缓存中移除，关闭时放回，超过容量时关闭最久未用的语句。
+ *
+ * @since 3.5.3
+ */
+final class PreparedStatementCache {
+
+  private final PoolState state;
+  private final int maxSize;
+  // 按访问顺序排列的空闲语句，最久未用的在最前面
+  private final Map<Key, PreparedStatement> idleStatements = new LinkedHashMap<>(16, 0.75f, true);
+
+  PreparedStatementCache(PoolState state, int maxSize) {
+    this.state = state;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Takes the idle statement prepared with the same arguments, if any.
+   *
+   * @return the statement or null if it has to be prepared
+   */
+  PreparedStatement checkout(Key key) {
+    PreparedStatement statement;
+    synchronized (this) {
+      statement = idleStatements.remove(key);
+    }
+    if (statement != null && !isClosed(statement)) {
+      state.statementCacheHitCount.increment();
+      return statement;
+    }
+    state.statementCacheMissCount.increment();
+    return null;
+  }
+
+  /**
+   * Puts back a statement that has been reset, closing the least recently used statements beyond the size limit.
+   */
+  void checkin(Key key, PreparedStatement statement) {
+    PreparedStatement duplicate;
+    PreparedStatement[] evicted = null;
+    synchronized (this) {
+      // 同一条SQL同时借出了多个语句时只保留一个
+      duplicate = idleStatements.putIfAbsent(key, statement) == null ? null : statement;
+      int excess = idleStatements.size() - maxSize;
+      if (excess > 0) {
+        evicted = new PreparedStatement[excess];
+        Iterator<PreparedStatement> iterator = idleStatements.values().iterator();
+        for (int i = 0; i < excess; i++) {
+          evicted[i] = iterator.next();
+          iterator.remove();
+        }
+      }
+    }
+    close(duplicate);
+    if (evicted != null) {
+      for (PreparedStatement evictedStatement : evicted) {
+        state.statementCacheEvictionCount.increment();
+        close(evictedStatement);
+      }
+    }
+  }
+
+  synchronized int size() {
+    return idleStatements.size();
+  }
+
+  private static boolean isClosed(PreparedStatement statement) {
+    try {
+      return statement.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  private static void close(PreparedStatement statement) {
+    if (statement != null) {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  /**
+   * The arguments given to {@code prepareStatement}.
+   */
+  static final class Key {
+
+    private final Object[] args;
+    private final int hashCode;
+
+    Key(Object[] args) {
+      this.args = args.clone();
+      for (int i = 0; i < this.args.length; i++) {
+        // 列名和列序号数组由调用方持有，复制一份以免被修改
+        if (this.args[i] instanceof int[]) {
+          this.args[i] = ((int[]) this.args[i]).clone();
+        } else if (this.args[i] instanceof String[]) {
+          this.args[i] = ((String[]) this.args[i]).clone();
+        }
+      }
+      this.hashCode = Arrays.deepHashCode(args);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public String toString() {
+      return Arrays.deepToString(args);
+    }
+  }
+
+}
@@ -39,6 +39,7 @@ import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetBounds;
 import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -296,13 +297,20 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    // 创建CacheKey，并将所有查询参数依次更新写入
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // 创建CacheKey，并将所有查询参数依次更新写入。更新次数已知，一次性分配好数组
+    CacheKey.Builder cacheKey = new CacheKey.Builder(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
+    if (rowBounds instanceof KeysetBounds) {
+      // 键集分页的结果还取决于键列、排序方向和起始键值
+      KeysetBounds keysetBounds = (KeysetBounds) rowBounds;
+      cacheKey.update(keysetBounds.getColumns());
+      cacheKey.update(keysetBounds.isDescending());
+      cacheKey.update(keysetBounds.getAfter());
+    }
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -326,7 +334,7 @@ public abstract class BaseExecutor implements Executor {
       // issue #176
       cacheKey.update(configuration.getEnvironment().getId());
     }
-    return cacheKey;
+    return cacheKey.build();
   }
 
   @Override
@@ -17,11 +17,16 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -30,6 +35,8 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -44,8 +51,17 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  // 与statementList一一对应，改写为多行INSERT的语句在statementList中为null
+  private final List<MultiRowInsert> multiRowInsertList = new ArrayList<>();
   private String currentSql;
   private MappedStatement currentStatement;
+  // 开启批量重排序时，<MappedStatement，<SQL，statementList中的下标>>
+  private final Map<MappedStatement, Map<String, Integer>> statementGroups = new HashMap<>();
+  // 因达到batchMaxSize或batchFlushSize而自动执行的批次结果，在下一次flushStatements时一并返回
+  private final List<BatchResult> autoFlushedResults = new ArrayList<>();
+  // 待执行的调用次数
+  private int pendingCount;
+  private BatchResultHandler batchResultHandler;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
@@ -57,25 +73,158 @@ public class BatchExecutor extends BaseExecutor {
     final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
-    final Statement stmt;
+    if (configuration.isBatchReorderingEnabled()) {
+      doReorderingUpdate(ms, handler, sql, parameterObject);
+      flushIfFull();
+      return BATCH_UPDATE_RETURN_VALUE;
+    }
     if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-      handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
-      batchResult.addParameterObject(parameterObject);
+      addToStatement(statementList.size() - 1, handler, parameterObject);
     } else {
+      addStatement(ms, handler, sql, parameterObject);
+    }
+    pendingCount++;
+    flushIfFull();
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  private void addToStatement(int index, StatementHandler handler, Object parameterObject) throws SQLException {
+    batchResultList.get(index).addParameterObject(parameterObject);
+    MultiRowInsert multiRowInsert = multiRowInsertList.get(index);
+    if (multiRowInsert != null) {
+      multiRowInsert.addRow(handler.getParameterHandler());
+      return;
+    }
+    Statement stmt = statementList.get(index);
+    applyTransactionTimeout(stmt);
+    handler.parameterize(stmt);//fix Issues 322
+    handler.batch(stmt);
+  }
+
+  private int addStatement(MappedStatement ms, StatementHandler handler, String sql, Object parameterObject) throws SQLException {
+    MultiRowInsert multiRowInsert = newMultiRowInsert(ms, handler.getBoundSql());
+    Statement stmt = null;
+    if (multiRowInsert == null) {
       Connection connection = getConnection(ms.getStatementLog());
       stmt = handler.prepare(connection, transaction.getTimeout());
       handler.parameterize(stmt);    //fix Issues 322
-      currentSql = sql;
-      currentStatement = ms;
-      statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      handler.batch(stmt);
+    } else {
+      // 多行INSERT在执行时才创建语句、绑定参数
+      multiRowInsert.addRow(handler.getParameterHandler());
     }
-    handler.batch(stmt);
-    return BATCH_UPDATE_RETURN_VALUE;
+    currentSql = sql;
+    currentStatement = ms;
+    statementList.add(stmt);
+    multiRowInsertList.add(multiRowInsert);
+    batchResultList.add(new BatchResult(ms, sql, parameterObject));
+    return statementList.size() - 1;
+  }
+
+  private MultiRowInsert newMultiRowInsert(MappedStatement ms, BoundSql boundSql) {
+    if (configuration.getBatchMultiRowInsertSize() < 2
+        || ms.getSqlCommandType() != SqlCommandType.INSERT
+        || ms.getStatementType() != StatementType.PREPARED) {
+      return null;
+    }
+    // selectKey需要逐行执行，无法合并
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    if (!NoKeyGenerator.class.equals(keyGeneratorType) && !Jdbc3KeyGenerator.class.equals(keyGeneratorType)) {
+      return null;
+    }
+    return MultiRowInsert.parse(boundSql.getSql(), boundSql.getParameterMappings().size());
+  }
+
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    this.batchResultHandler = batchResultHandler;
+  }
+
+  /**
+   * Adds the call to the open statement of the same mapped statement and SQL, wherever it is in
+   * the pending list, so that interleaved calls (e.g. parent and child inserts) share two JDBC
+   * batches instead of opening one statement per call. Pending statements keep the order of
+   * their first call; a call is not grouped when it would move ahead of a pending call it is
+   * declared to follow (see {@link Configuration#addBatchOrderingConstraint(String, String)}).
+   */
+  private void doReorderingUpdate(MappedStatement ms, StatementHandler handler, String sql, Object parameterObject) throws SQLException {
+    Integer index = findStatementGroup(ms, sql);
+    if (index != null) {
+      addToStatement(index, handler, parameterObject);
+    } else {
+      index = addStatement(ms, handler, sql, parameterObject);
+      statementGroups.computeIfAbsent(ms, k -> new HashMap<>()).put(sql, index);
+    }
+    pendingCount++;
+    int batchMaxSize = configuration.getBatchMaxSize();
+    if (batchMaxSize > 0 && batchResultList.get(index).getParameterObjects().size() >= batchMaxSize) {
+      // 执行全部待执行语句，而不只是满了的这一条，以保持语句之间的先后顺序
+      autoFlush();
+    }
+  }
+
+  private void flushIfFull() throws SQLException {
+    int batchFlushSize = getBatchFlushSize();
+    if (batchFlushSize > 0 && pendingCount >= batchFlushSize) {
+      autoFlush();
+    }
+  }
+
+  /**
+   * Returns the number of pending calls that triggers {@link #autoFlush()}, zero for no limit.
+   */
+  protected int getBatchFlushSize() {
+    return configuration.getBatchFlushSize();
+  }
+
+  /**
+   * Executes the pending statements before {@code flushStatements()} is called.
+   */
+  protected void autoFlush() throws SQLException {
+    collectResults(executeStatements());
+  }
+
+  /**
+   * Passes the results of an automatic flush to the batch result handler, or keeps them for
+   * the next {@code flushStatements()} when no handler is set. Kept results only hold their
+   * update counts: their parameter objects are released, so that memory does not grow with
+   * the number of calls between two flushes.
+   */
+  protected void collectResults(List<BatchResult> results) {
+    if (batchResultHandler == null) {
+      for (BatchResult batchResult : results) {
+        // 主键已回写，调用方仍持有参数对象，这里不再引用
+        batchResult.getParameterObjects().clear();
+      }
+      autoFlushedResults.addAll(results);
+    } else {
+      handleBatchResults(results);
+    }
+  }
+
+  private void handleBatchResults(List<BatchResult> results) {
+    for (BatchResult batchResult : results) {
+      batchResultHandler.handleBatchResult(batchResult);
+      // 主键已回写，回调结束后不再持有参数对象
+      batchResult.getParameterObjects().clear();
+    }
+  }
+
+  private Integer findStatementGroup(MappedStatement ms, String sql) {
+    Map<String, Integer> groups = statementGroups.get(ms);
+    Integer index = groups == null ? null : groups.get(sql);
+    if (index == null) {
+      return null;
+    }
+    Set<String> precedingStatementIds = configuration.getBatchOrderingConstraints(ms.getId());
+    if (!precedingStatementIds.isEmpty()) {
+      for (int i = index + 1, n = batchResultList.size(); i < n; i++) {
+        if (precedingStatementIds.contains(batchResultList.get(i).getMappedStatement().getId())) {
+          return null;
+        }
+      }
+    }
+    return index;
   }
 
   @Override
@@ -110,54 +259,171 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
+        closeStatements();
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
-          batchResult.setUpdateCounts(stmt.executeBatch());
-          MappedStatement ms = batchResult.getMappedStatement();
-          List<Object> parameterObjects = batchResult.getParameterObjects();
-          KeyGenerator keyGenerator = ms.getKeyGenerator();
-          if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
-            Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
-            jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
-          } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
-            for (Object parameter : parameterObjects) {
-              keyGenerator.processAfter(this, ms, stmt, parameter);
+      List<BatchResult> results = new ArrayList<>(autoFlushedResults);
+      results.addAll(executeStatements());
+      if (batchResultHandler != null) {
+        handleBatchResults(results);
+        return Collections.emptyList();
+      }
+      return results;
+    } finally {
+      autoFlushedResults.clear();
+    }
+  }
+
+  private List<BatchResult> executeStatements() throws SQLException {
+    return detachStatements().execute();
+  }
+
+  /**
+   * Moves the pending statements into a {@link PendingBatch} and starts an empty batch.
+   */
+  protected PendingBatch detachStatements() {
+    // 之前自动执行的批次同样算作已成功的批次
+    PendingBatch pendingBatch = new PendingBatch(new ArrayList<>(statementList), new ArrayList<>(multiRowInsertList),
+        new ArrayList<>(batchResultList), new ArrayList<>(autoFlushedResults));
+    clearStatements();
+    return pendingBatch;
+  }
+
+  private void closeStatements() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    clearStatements();
+  }
+
+  private void clearStatements() {
+    currentSql = null;
+    statementList.clear();
+    multiRowInsertList.clear();
+    batchResultList.clear();
+    statementGroups.clear();
+    pendingCount = 0;
+  }
+
+  /**
+   * Statements detached from the executor, whose batches have not been executed yet.
+   */
+  protected class PendingBatch {
+
+    private final List<Statement> statements;
+    private final List<MultiRowInsert> multiRowInserts;
+    private final List<BatchResult> batchResults;
+    private final List<BatchResult> priorResults;
+
+    PendingBatch(List<Statement> statements, List<MultiRowInsert> multiRowInserts, List<BatchResult> batchResults,
+        List<BatchResult> priorResults) {
+      this.statements = statements;
+      this.multiRowInserts = multiRowInserts;
+      this.batchResults = batchResults;
+      this.priorResults = priorResults;
+    }
+
+    public boolean isEmpty() {
+      return statements.isEmpty();
+    }
+
+    /**
+     * Executes the batches in order, assigns generated keys and closes the statements.
+     */
+    public List<BatchResult> execute() throws SQLException {
+      try {
+        List<BatchResult> results = new ArrayList<>(priorResults);
+        final int offset = results.size();
+        for (int i = 0, n = statements.size(); i < n; i++) {
+          BatchResult batchResult = batchResults.get(i);
+          MultiRowInsert multiRowInsert = multiRowInserts.get(i);
+          if (multiRowInsert != null) {
+            try {
+              executeMultiRowInsert(multiRowInsert, batchResult);
+            } catch (BatchUpdateException e) {
+              throw batchExecutorException(i, e, results, batchResult);
             }
+            results.add(batchResult);
+            continue;
           }
-          // Close statement to close cursor #1109
-          closeStatement(stmt);
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+          Statement stmt = statements.get(i);
+          applyTransactionTimeout(stmt);
+          try {
+            batchResult.setUpdateCounts(stmt.executeBatch());
+            MappedStatement ms = batchResult.getMappedStatement();
+            List<Object> parameterObjects = batchResult.getParameterObjects();
+            KeyGenerator keyGenerator = ms.getKeyGenerator();
+            if (Jdbc3KeyGenerator.class.equals(keyGenerator.getClass())) {
+              Jdbc3KeyGenerator jdbc3KeyGenerator = (Jdbc3KeyGenerator) keyGenerator;
+              jdbc3KeyGenerator.processBatch(ms, stmt, parameterObjects);
+            } else if (!NoKeyGenerator.class.equals(keyGenerator.getClass())) { //issue #141
+              for (Object parameter : parameterObjects) {
+                keyGenerator.processAfter(BatchExecutor.this, ms, stmt, parameter);
+              }
+            }
+            // Close statement to close cursor #1109
+            closeStatement(stmt);
+          } catch (BatchUpdateException e) {
+            throw batchExecutorException(i, e, results, batchResult);
           }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
+          results.add(batchResult);
+        }
+        return results.subList(offset, results.size());
+      } finally {
+        for (Statement stmt : statements) {
+          closeStatement(stmt);
         }
-        results.add(batchResult);
       }
-      return results;
-    } finally {
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+    }
+
+    /**
+     * Inserts the rows with multi-row statements of at most {@code batchMultiRowInsertSize} rows.
+     */
+    private void executeMultiRowInsert(MultiRowInsert multiRowInsert, BatchResult batchResult) throws BatchUpdateException {
+      final MappedStatement ms = batchResult.getMappedStatement();
+      final List<Object> parameterObjects = batchResult.getParameterObjects();
+      final int rowCount = multiRowInsert.size();
+      final int chunkSize = configuration.getBatchMultiRowInsertSize();
+      final int[] updateCounts = new int[rowCount];
+      for (int from = 0; from < rowCount; from += chunkSize) {
+        final int to = Math.min(from + chunkSize, rowCount);
+        final Object parameterObject = parameterObjects.get(from);
+        final BoundSql boundSql = new BoundSql(configuration, multiRowInsert.getSql(to - from), Collections.emptyList(), parameterObject);
+        final StatementHandler handler = configuration.newStatementHandler(BatchExecutor.this, ms, parameterObject, RowBounds.DEFAULT, null, boundSql);
+        Statement stmt = null;
+        try {
+          stmt = handler.prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+          multiRowInsert.setParameters((PreparedStatement) stmt, from, to);
+          int updateCount = ((PreparedStatement) stmt).executeUpdate();
+          // 无法区分每一行的更新条数时，与JDBC批处理一样返回SUCCESS_NO_INFO
+          Arrays.fill(updateCounts, from, to, updateCount == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+          if (Jdbc3KeyGenerator.class.equals(ms.getKeyGenerator().getClass())) {
+            ((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, parameterObjects.subList(from, to));
+          }
+        } catch (SQLException e) {
+          throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, from), e);
+        } finally {
+          closeStatement(stmt);
+        }
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+      batchResult.setUpdateCounts(updateCounts);
+    }
+  }
+
+  private BatchExecutorException batchExecutorException(int i, BatchUpdateException e, List<BatchResult> results, BatchResult batchResult) {
+    StringBuilder message = new StringBuilder();
+    message.append(batchResult.getMappedStatement().getId())
+        .append(" (batch index #")
+        .append(i + 1)
+        .append(")")
+        .append(" failed.");
+    if (i > 0) {
+      message.append(" ")
+          .append(i)
+          .append(" prior sub executor(s) completed successfully, but will be rolled back.");
     }
+    return new BatchExecutorException(message.toString(), e, results, batchResult);
   }
 
 }
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+/**
+ * Receives the results of the {@code BATCH} executor as each chunk of statements is executed.
+ * <p>
+ * When a handler is set, results are no longer collected for {@code flushStatements()}, and the
+ * parameter objects of a {@link BatchResult} are released once the handler returns. Bulk loads
+ * combined with the {@code batchFlushSize} setting then keep a constant memory footprint.
+ *
+ * 批量执行结果的回调，每执行一批语句回调一次
+ *
+ * @since 3.5.3
+ */
+@FunctionalInterface
+public interface BatchResultHandler {
+
+  /**
+   * Called once per executed JDBC batch, after update counts and generated keys have been set.
+   */
+  void handleBatchResult(BatchResult batchResult);
+
+}
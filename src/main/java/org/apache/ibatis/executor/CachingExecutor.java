@@ -191,6 +191,11 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    delegate.setBatchResultHandler(batchResultHandler);
+  }
+
   /**
    * 根据要求判断语句执行前是否要清除二级缓存，如果需要，清除二级缓存
    * 注意：默认情况下，非SELECT语句的isFlushCacheRequired方法会返回true
@@ -77,4 +77,8 @@ public interface Executor {
   // 设置执行器包装
   void setExecutorWrapper(Executor executor);
 
+  // 设置批量执行结果的回调，只有批量执行器会使用
+  default void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+  }
+
 }
@@ -0,0 +1,189 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * The pending rows of a single-row {@code INSERT ... VALUES (...)} statement that the batch executor
+ * sends as multi-row {@code INSERT ... VALUES (...), (...)} statements instead of a JDBC batch.
+ *
+ * 单行INSERT语句的待插入行，批量执行时改写为多行VALUES的INSERT语句
+ */
+final class MultiRowInsert {
+
+  private static final Pattern INSERT_PATTERN = Pattern.compile("^\\s*insert\\s", Pattern.CASE_INSENSITIVE);
+  private static final Pattern VALUES_PATTERN = Pattern.compile("\\bvalues\\s*\\(", Pattern.CASE_INSENSITIVE);
+
+  // VALUES之前的部分，包含VALUES关键字
+  private final String prefix;
+  // 一行的值列表，包含两侧括号
+  private final String tuple;
+  private final int placeholderCount;
+  // 每一行的参数处理器，执行时按行号偏移参数下标后依次绑定
+  private final List<ParameterHandler> rows = new ArrayList<>();
+
+  private MultiRowInsert(String prefix, String tuple, int placeholderCount) {
+    this.prefix = prefix;
+    this.tuple = tuple;
+    this.placeholderCount = placeholderCount;
+  }
+
+  /**
+   * Parses the given SQL, returning null unless it is an {@code INSERT} with exactly one
+   * {@code VALUES} row, that row being the end of the statement and holding all
+   * {@code parameterCount} placeholders.
+   */
+  static MultiRowInsert parse(String sql, int parameterCount) {
+    if (!INSERT_PATTERN.matcher(sql).find()) {
+      return null;
+    }
+    Matcher matcher = VALUES_PATTERN.matcher(sql);
+    if (!matcher.find()) {
+      return null;
+    }
+    final int start = matcher.end() - 1;
+    final int end = closingParenthesis(sql, start);
+    if (end < 0 || !sql.substring(end + 1).trim().isEmpty()) {
+      return null;
+    }
+    final String prefix = sql.substring(0, start);
+    final String tuple = sql.substring(start, end + 1);
+    if (countPlaceholders(prefix) != 0 || countPlaceholders(tuple) != parameterCount
+        || tuple.toLowerCase(Locale.ENGLISH).contains("select")) {
+      return null;
+    }
+    return new MultiRowInsert(prefix, tuple, parameterCount);
+  }
+
+  void addRow(ParameterHandler parameterHandler) {
+    rows.add(parameterHandler);
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  /**
+   * Returns the statement inserting the given number of rows.
+   */
+  String getSql(int rowCount) {
+    StringBuilder sql = new StringBuilder(prefix.length() + (tuple.length() + 2) * rowCount);
+    sql.append(prefix).append(tuple);
+    for (int i = 1; i < rowCount; i++) {
+      sql.append(", ").append(tuple);
+    }
+    return sql.toString();
+  }
+
+  /**
+   * Binds the parameters of the rows {@code from} (inclusive) to {@code to} (exclusive) to a
+   * statement created from {@link #getSql(int)}.
+   */
+  void setParameters(PreparedStatement ps, int from, int to) throws SQLException {
+    for (int i = from; i < to; i++) {
+      rows.get(i).setParameters(offset(ps, (i - from) * placeholderCount));
+    }
+  }
+
+  /**
+   * Returns a view of the statement whose parameter setters are shifted by the given offset.
+   */
+  private static PreparedStatement offset(PreparedStatement ps, int offset) {
+    if (offset == 0) {
+      return ps;
+    }
+    InvocationHandler handler = new OffsetHandler(ps, offset);
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] { PreparedStatement.class }, handler);
+  }
+
+  private static int closingParenthesis(String sql, int start) {
+    int depth = 0;
+    char quote = 0;
+    for (int i = start; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int countPlaceholders(String sql) {
+    int count = 0;
+    char quote = 0;
+    for (int i = 0; i < sql.length(); i++) {
+      char c = sql.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '?') {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static class OffsetHandler implements InvocationHandler {
+
+    private final PreparedStatement target;
+    private final int offset;
+
+    OffsetHandler(PreparedStatement target, int offset) {
+      this.target = target;
+      this.offset = offset;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      // setXxx(int parameterIndex, ...)
+      if (args != null && args.length > 1 && method.getName().startsWith("set")
+          && method.getParameterTypes()[0] == int.class) {
+        args[0] = (Integer) args[0] + offset;
+      }
+      try {
+        return method.invoke(target, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+  }
+
+}
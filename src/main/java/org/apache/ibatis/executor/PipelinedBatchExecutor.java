@@ -0,0 +1,359 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * A {@link BatchExecutor} that executes full batches on a background I/O thread while the caller prepares the next.
+ * <p>
+ * The calling thread converts the parameters of each call with the parameter handler and its type handlers, and keeps
+ * the resulting {@code setXxx} values in a buffer. Every {@code batchFlushSize} calls ({@link #DEFAULT_BATCH_FLUSH_SIZE}
+ * when the setting is not set) the buffer is handed over to a dedicated thread, which then owns the connection: it
+ * prepares the statements, binds the values, runs {@code executeBatch}, assigns generated keys and closes the
+ * statements. At most one buffer is in flight. The next hand-over, {@code flushStatements()}, {@code commit()},
+ * {@code rollback()}, {@code close()} and every query first wait for it, so the calling thread never uses the
+ * connection at the same time as the I/O thread. An error of the I/O thread is thrown by the call that waits for it.
+ * <p>
+ * Calls that need the connection while they are prepared (callable and plain statements, {@code selectKey}, type
+ * handlers creating arrays or LOBs) and the batch reordering and multi-row insert settings are handled like
+ * {@link BatchExecutor} on the calling thread, after the buffer in flight has completed. Since generated keys are
+ * assigned by the I/O thread, parameter objects must not be used until their batch has been executed.
+ *
+ * 流水线批量执行器：调用线程转换参数并放入缓冲区，缓冲区满后交给I/O线程，I/O线程独占连接完成预编译、绑定、执行、主键回写和关闭语句，
+ * 调用线程同时准备下一批。同一时刻最多只有一批在执行，调用线程使用连接前总是先等待它完成。
+ *
+ * @since 3.5.3
+ */
+public class PipelinedBatchExecutor extends BatchExecutor {
+
+  public static final int DEFAULT_BATCH_FLUSH_SIZE = 1000;
+
+  private final ParameterRecorder recorder = new ParameterRecorder();
+  // 参数已转换、尚未交给I/O线程的语句，按调用顺序排列
+  private final List<BufferedStatement> buffer = new ArrayList<>();
+  private int bufferedCount;
+  private ExecutorService ioThread;
+  // 正在I/O线程上执行的缓冲区
+  private Future<List<BatchResult>> inFlight;
+  // 父类中有在调用线程上加入批次、尚未执行的语句
+  private boolean callerBatchPending;
+
+  public PipelinedBatchExecutor(Configuration configuration, Transaction transaction) {
+    super(configuration, transaction);
+  }
+
+  @Override
+  protected int getBatchFlushSize() {
+    int batchFlushSize = super.getBatchFlushSize();
+    return batchFlushSize > 0 ? batchFlushSize : DEFAULT_BATCH_FLUSH_SIZE;
+  }
+
+  @Override
+  public int doUpdate(MappedStatement ms, Object parameterObject) throws SQLException {
+    if (!canPipeline(ms)) {
+      return updateOnCallingThread(ms, parameterObject);
+    }
+    final StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObject, RowBounds.DEFAULT, null, null);
+    final RecordedParameters parameters = recorder.record(handler);
+    if (parameters == null) {
+      return updateOnCallingThread(ms, parameterObject);
+    }
+    if (callerBatchPending) {
+      // 先执行之前在调用线程上加入批次的语句，保持语句之间的先后顺序
+      autoFlush();
+      callerBatchPending = false;
+    }
+    final String sql = handler.getBoundSql().getSql();
+    final BufferedStatement last = buffer.isEmpty() ? null : buffer.get(buffer.size() - 1);
+    if (last != null && last.ms.equals(ms) && last.sql.equals(sql)) {
+      last.add(handler, parameters, parameterObject);
+    } else {
+      buffer.add(new BufferedStatement(ms, sql, handler, parameters, parameterObject));
+    }
+    if (++bufferedCount >= getBatchFlushSize()) {
+      handOff();
+    }
+    return BATCH_UPDATE_RETURN_VALUE;
+  }
+
+  private boolean canPipeline(MappedStatement ms) {
+    if (ms.getStatementType() != StatementType.PREPARED
+        || configuration.isBatchReorderingEnabled()
+        || configuration.getBatchMultiRowInsertSize() >= 2) {
+      return false;
+    }
+    // selectKey会在调用线程上执行查询
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    return NoKeyGenerator.class.equals(keyGeneratorType) || Jdbc3KeyGenerator.class.equals(keyGeneratorType);
+  }
+
+  /**
+   * 等I/O线程执行完缓冲区中的全部调用后，像BatchExecutor一样在调用线程上加入批次
+   */
+  private int updateOnCallingThread(MappedStatement ms, Object parameterObject) throws SQLException {
+    handOff();
+    collectResults(awaitInFlight());
+    callerBatchPending = true;
+    return super.doUpdate(ms, parameterObject);
+  }
+
+  @Override
+  public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    callerBatchPending = false;
+    if (isRollback) {
+      buffer.clear();
+      bufferedCount = 0;
+      try {
+        awaitInFlight();
+      } catch (SQLException | RuntimeException e) {
+        // 即将回滚，后台批次的结果和异常都不再需要
+      }
+    } else {
+      handOff();
+      collectResults(awaitInFlight());
+    }
+    return super.doFlushStatements(isRollback);
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    try {
+      super.close(forceRollback);
+    } finally {
+      if (ioThread != null) {
+        ioThread.shutdown();
+        ioThread = null;
+      }
+    }
+  }
+
+  /**
+   * 等待上一批完成后，把缓冲区交给I/O线程
+   */
+  private void handOff() throws SQLException {
+    if (buffer.isEmpty()) {
+      return;
+    }
+    collectResults(awaitInFlight());
+    final List<BufferedStatement> statements = new ArrayList<>(buffer);
+    buffer.clear();
+    bufferedCount = 0;
+    inFlight = getIoThread().submit(() -> execute(statements));
+  }
+
+  /**
+   * Runs on the I/O thread, which owns the connection until it returns.
+   */
+  private List<BatchResult> execute(List<BufferedStatement> statements) throws SQLException {
+    final List<Statement> prepared = new ArrayList<>(statements.size());
+    final List<BatchResult> batchResults = new ArrayList<>(statements.size());
+    try {
+      for (BufferedStatement statement : statements) {
+        prepared.add(statement.prepareAndBind());
+        batchResults.add(statement.batchResult);
+      }
+      return new PendingBatch(prepared, Collections.nCopies(prepared.size(), null), batchResults, Collections.emptyList()).execute();
+    } catch (SQLException | RuntimeException e) {
+      for (Statement stmt : prepared) {
+        closeStatement(stmt);
+      }
+      throw e;
+    } finally {
+      ErrorContext.instance().reset();
+    }
+  }
+
+  private List<BatchResult> awaitInFlight() throws SQLException {
+    if (inFlight == null) {
+      return Collections.emptyList();
+    }
+    try {
+      return inFlight.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for a pipelined batch to complete.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error executing a pipelined batch.  Cause: " + cause, cause);
+    } finally {
+      if (inFlight.isDone()) {
+        inFlight = null;
+      }
+    }
+  }
+
+  private ExecutorService getIoThread() {
+    if (ioThread == null) {
+      ioThread = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mybatis-pipelined-batch");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return ioThread;
+  }
+
+  /**
+   * Consecutive calls of the same statement and SQL, with their converted parameters.
+   */
+  private final class BufferedStatement {
+
+    private final MappedStatement ms;
+    private final String sql;
+    private final List<StatementHandler> handlers = new ArrayList<>();
+    private final List<RecordedParameters> parameters = new ArrayList<>();
+    private final BatchResult batchResult;
+
+    BufferedStatement(MappedStatement ms, String sql, StatementHandler handler, RecordedParameters parameters, Object parameterObject) {
+      this.ms = ms;
+      this.sql = sql;
+      this.handlers.add(handler);
+      this.parameters.add(parameters);
+      this.batchResult = new BatchResult(ms, sql, parameterObject);
+    }
+
+    void add(StatementHandler handler, RecordedParameters parameters, Object parameterObject) {
+      this.handlers.add(handler);
+      this.parameters.add(parameters);
+      batchResult.addParameterObject(parameterObject);
+    }
+
+    Statement prepareAndBind() throws SQLException {
+      final Statement stmt = handlers.get(0).prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+      try {
+        for (int i = 0, n = handlers.size(); i < n; i++) {
+          parameters.get(i).replay((PreparedStatement) stmt);
+          handlers.get(i).batch(stmt);
+        }
+      } catch (SQLException | RuntimeException e) {
+        closeStatement(stmt);
+        throw e;
+      }
+      return stmt;
+    }
+  }
+
+  /**
+   * A statement proxy that records the {@code setXxx} calls of a parameter handler, reused for every call.
+   */
+  private static final class ParameterRecorder implements InvocationHandler {
+
+    private final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(
+        PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, this);
+    private RecordedParameters recording;
+
+    /**
+     * Returns the parameters set by the handler, or null if it used more of the statement than its setters.
+     */
+    RecordedParameters record(StatementHandler handler) throws SQLException {
+      recording = new RecordedParameters();
+      try {
+        handler.parameterize(statement);
+        return recording;
+      } catch (RuntimeException e) {
+        // 类型处理器会包装异常，因此沿着异常链查找
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+          if (cause instanceof UnrecordableCallException) {
+            // 需要真实的语句，在调用线程上重新处理
+            return null;
+          }
+        }
+        throw e;
+      } finally {
+        recording = null;
+      }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, args);
+      }
+      // setXxx(int parameterIndex, ...) 和 clearParameters()
+      if (recording != null && ((args != null && args.length > 1 && method.getName().startsWith("set")
+          && method.getParameterTypes()[0] == int.class) || "clearParameters".equals(method.getName()))) {
+        recording.methods.add(method);
+        recording.arguments.add(args);
+        return null;
+      }
+      throw new UnrecordableCallException();
+    }
+  }
+
+  /**
+   * The {@code setXxx} calls made by a parameter handler for one call.
+   */
+  private static final class RecordedParameters {
+
+    private final List<Method> methods = new ArrayList<>();
+    private final List<Object[]> arguments = new ArrayList<>();
+
+    void replay(PreparedStatement ps) throws SQLException {
+      for (int i = 0, n = methods.size(); i < n; i++) {
+        try {
+          methods.get(i).invoke(ps, arguments.get(i));
+        } catch (Exception e) {
+          Throwable cause = ExceptionUtil.unwrapThrowable(e);
+          if (cause instanceof SQLException) {
+            throw (SQLException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          throw new ExecutorException("Error setting the parameters of a batched statement.  Cause: " + cause, cause);
+        }
+      }
+    }
+  }
+
+  private static final class UnrecordableCallException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    UnrecordableCallException() {
+      super(null, null, false, false);
+    }
+  }
+
+}
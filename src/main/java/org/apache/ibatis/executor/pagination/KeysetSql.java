@@ -0,0 +1,86 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.session.KeysetBounds;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Builds the SQL of a keyset paginated select.
+ * <p>
+ * The statement is wrapped as a derived table, filtered on the key of the last row of the previous slice, ordered by
+ * the key columns and limited through the pagination dialect:
+ * <pre>
+ * select * from (&lt;sql&gt;) keyset_slice where (a, b) &gt; (?, ?) order by a, b LIMIT ?
+ * </pre>
+ *
+ * 键集分页SQL：包装原语句，按上一页最后一行的键值过滤、按键列排序，再由分页方言限制行数
+ *
+ * @since 3.5.3
+ */
+public final class KeysetSql {
+
+  private KeysetSql() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns the keyset paginated select, adding the values of its placeholders to {@code parameters}.
+   */
+  public static String getKeysetSql(PaginationDialect dialect, String sql, KeysetBounds bounds, List<Object> parameters) {
+    final String[] columns = bounds.getColumns();
+    final Object[] after = bounds.getAfter();
+    final String operator = bounds.isDescending() ? " < " : " > ";
+    StringBuilder keysetSql = new StringBuilder(sql.length() + 100).append("select * from (").append(sql).append(") keyset_slice");
+    if (after != null) {
+      keysetSql.append(" where ");
+      if (columns.length == 1) {
+        keysetSql.append(columns[0]).append(operator).append('?');
+        parameters.add(after[0]);
+      } else if (dialect.supportsRowValueComparison()) {
+        keysetSql.append('(').append(String.join(", ", columns)).append(')').append(operator).append('(');
+        for (int i = 0; i < columns.length; i++) {
+          keysetSql.append(i == 0 ? "?" : ", ?");
+          parameters.add(after[i]);
+        }
+        keysetSql.append(')');
+      } else {
+        // a > ? or (a = ? and b > ?) or ...
+        for (int i = 0; i < columns.length; i++) {
+          keysetSql.append(i == 0 ? "(" : " or (");
+          for (int j = 0; j < i; j++) {
+            keysetSql.append(columns[j]).append(" = ? and ");
+            parameters.add(after[j]);
+          }
+          keysetSql.append(columns[i]).append(operator).append("?)");
+          parameters.add(after[i]);
+        }
+      }
+    }
+    keysetSql.append(" order by ");
+    for (int i = 0; i < columns.length; i++) {
+      keysetSql.append(i == 0 ? "" : ", ").append(columns[i]).append(bounds.isDescending() ? " desc" : "");
+    }
+    List<Integer> limit = new ArrayList<>(2);
+    String paginatedSql = dialect.getPaginatedSql(keysetSql.toString(), RowBounds.NO_ROW_OFFSET, bounds.getLimit(), limit);
+    parameters.addAll(limit);
+    return paginatedSql;
+  }
+
+}
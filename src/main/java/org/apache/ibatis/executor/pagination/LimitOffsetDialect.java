@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Appends {@code LIMIT ? OFFSET ?}, as understood by MySQL, MariaDB, PostgreSQL, H2, HSQLDB and SQLite.
+ *
+ * @since 3.5.3
+ */
+public class LimitOffsetDialect implements PaginationDialect {
+
+  @Override
+  public String getPaginatedSql(String sql, int offset, int limit, List<Integer> parameters) {
+    // MySQL和SQLite不支持单独的OFFSET，只有起始位置时用最大行数作为LIMIT
+    StringBuilder paginatedSql = new StringBuilder(sql.length() + 20).append(sql).append(" LIMIT ?");
+    parameters.add(limit);
+    if (offset != RowBounds.NO_ROW_OFFSET) {
+      paginatedSql.append(" OFFSET ?");
+      parameters.add(offset);
+    }
+    return paginatedSql.toString();
+  }
+
+  @Override
+  public boolean supportsRowValueComparison() {
+    return true;
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Appends the standard {@code OFFSET ? ROWS FETCH NEXT ? ROWS ONLY}, as understood by Oracle 12c or later, SQL Server
+ * 2012, DB2 and Derby. Older Oracle versions do not support this clause.
+ * <p>
+ * SQL Server requires the statement to have an {@code ORDER BY} clause. A dialect created with
+ * {@code orderByRequired} declines statements without a top-level {@code ORDER BY}, whose rows are then skipped in the
+ * result set.
+ *
+ * @since 3.5.3
+ */
+public class OffsetFetchDialect implements PaginationDialect {
+
+  // 是否只分页带有顶层ORDER BY的语句
+  private final boolean orderByRequired;
+
+  public OffsetFetchDialect() {
+    this(false);
+  }
+
+  public OffsetFetchDialect(boolean orderByRequired) {
+    this.orderByRequired = orderByRequired;
+  }
+
+  @Override
+  public boolean canPaginate(String sql) {
+    return !orderByRequired || PaginationSql.hasOrderBy(sql);
+  }
+
+  @Override
+  public String getPaginatedSql(String sql, int offset, int limit, List<Integer> parameters) {
+    // SQL Server要求FETCH之前必须有OFFSET
+    StringBuilder paginatedSql = new StringBuilder(sql.length() + 40).append(sql).append(" OFFSET ? ROWS");
+    parameters.add(offset);
+    if (limit != RowBounds.NO_ROW_LIMIT) {
+      paginatedSql.append(" FETCH NEXT ? ROWS ONLY");
+      parameters.add(limit);
+    }
+    return paginatedSql.toString();
+  }
+
+}
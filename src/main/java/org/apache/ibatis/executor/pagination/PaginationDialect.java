@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.List;
+
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Limits a select statement to the rows of a {@link RowBounds} in the SQL of one database vendor.
+ *
+ * 分页方言：按数据库的语法把RowBounds的起始位置和行数写入SQL语句
+ *
+ * @since 3.5.3
+ */
+public interface PaginationDialect {
+
+  /**
+   * Returns the given select statement limited to the rows of the bounds.
+   * <p>
+   * The offset and the limit must be bound through {@code ?} placeholders placed after every placeholder of the
+   * original statement, their values being added to {@code parameters} in the same order.
+   *
+   * @param sql
+   *          the select statement, without trailing semicolon
+   * @param offset
+   *          the number of rows to skip, may be {@link RowBounds#NO_ROW_OFFSET}
+   * @param limit
+   *          the maximum number of rows to return, may be {@link RowBounds#NO_ROW_LIMIT}
+   * @param parameters
+   *          the list the values of the added placeholders are added to
+   * @return the limited select statement
+   */
+  String getPaginatedSql(String sql, int offset, int limit, List<Integer> parameters);
+
+  /**
+   * Returns whether the given select statement can be paginated by this dialect. When it cannot, the rows outside
+   * the bounds are skipped in the result set instead.
+   *
+   * @param sql
+   *          the select statement, without trailing semicolon
+   */
+  default boolean canPaginate(String sql) {
+    return true;
+  }
+
+  /**
+   * Returns whether keyset predicates can be written as a row value comparison such as {@code (a, b) > (?, ?)},
+   * rather than as {@code a > ? or (a = ? and b > ?)}.
+   */
+  default boolean supportsRowValueComparison() {
+    return false;
+  }
+
+}
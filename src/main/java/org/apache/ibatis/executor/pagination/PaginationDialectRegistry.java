@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The pagination dialects by database id, as returned by the {@code DatabaseIdProvider}.
+ * <p>
+ * Dialects are registered for the usual ids of the {@code DB_VENDOR} provider: {@code mysql}, {@code mariadb},
+ * {@code postgresql}, {@code h2}, {@code hsqldb}, {@code sqlite}, {@code oracle}, {@code sqlserver}, {@code db2} and
+ * {@code derby}. The default dialect, if any, is used for any other id.
+ * <p>
+ * The {@code oracle} dialect uses {@code OFFSET ... FETCH}, which requires Oracle 12c or later; register another
+ * dialect for older versions. The {@code sqlserver} dialect only paginates statements with a top-level
+ * {@code ORDER BY}.
+ *
+ * @since 3.5.3
+ */
+public class PaginationDialectRegistry {
+
+  // 数据库编号（小写）与分页方言的对应关系
+  private final Map<String, PaginationDialect> dialects = new HashMap<>();
+  // 没有对应数据库编号时使用的方言
+  private PaginationDialect defaultDialect;
+
+  public PaginationDialectRegistry() {
+    PaginationDialect limitOffset = new LimitOffsetDialect();
+    register("mysql", limitOffset);
+    register("mariadb", limitOffset);
+    register("postgresql", limitOffset);
+    register("h2", limitOffset);
+    register("hsqldb", limitOffset);
+    register("sqlite", limitOffset);
+    PaginationDialect offsetFetch = new OffsetFetchDialect();
+    // OFFSET ... FETCH 需要 Oracle 12c 及以上版本
+    register("oracle", offsetFetch);
+    // SQL Server 在没有ORDER BY时不接受OFFSET子句
+    register("sqlserver", new OffsetFetchDialect(true));
+    register("db2", offsetFetch);
+    register("derby", offsetFetch);
+  }
+
+  public void register(String databaseId, PaginationDialect dialect) {
+    if (databaseId == null) {
+      throw new IllegalArgumentException("null is not a valid database id");
+    }
+    if (dialect == null) {
+      throw new IllegalArgumentException("null is not a valid Pagination Dialect");
+    }
+    dialects.put(databaseId.toLowerCase(Locale.ENGLISH), dialect);
+  }
+
+  /**
+   * Returns the dialect of the given database id, or the default dialect if none is registered for it.
+   */
+  public PaginationDialect getDialect(String databaseId) {
+    PaginationDialect dialect = databaseId == null ? null : dialects.get(databaseId.toLowerCase(Locale.ENGLISH));
+    return dialect == null ? defaultDialect : dialect;
+  }
+
+  public PaginationDialect getDefaultDialect() {
+    return defaultDialect;
+  }
+
+  public void setDefaultDialect(PaginationDialect defaultDialect) {
+    this.defaultDialect = defaultDialect;
+  }
+
+}
@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Checks whether a pagination clause can be appended to a select statement.
+ * <p>
+ * Only the top level of the statement is inspected: string literals, quoted identifiers, comments and parenthesized
+ * subqueries are skipped. Statements that already limit their rows ({@code LIMIT}, {@code OFFSET},
+ * {@code FETCH FIRST}, {@code TOP}) or end with a locking or output clause ({@code FOR UPDATE}, {@code FOR SHARE},
+ * {@code FOR XML}, {@code LOCK IN SHARE MODE}) cannot be paginated by appending a clause.
+ *
+ * 分页前检查语句：去掉结尾的分号和注释，判断能否在末尾追加分页子句
+ *
+ * @since 3.5.3
+ */
+public final class PaginationSql {
+
+  // 出现在语句顶层时不能再追加分页子句的关键字
+  private static final Set<String> CONFLICTING_KEYWORDS = new HashSet<>(
+      Arrays.asList("LIMIT", "OFFSET", "FETCH", "TOP", "FOR", "LOCK"));
+
+  private PaginationSql() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /**
+   * Returns the statement without its trailing whitespace, semicolons and comments.
+   */
+  public static String trim(String sql) {
+    int end = new Scanner(sql).scan().end;
+    return end == sql.length() ? sql : sql.substring(0, end);
+  }
+
+  /**
+   * Returns whether a pagination clause can be appended to the statement, once trimmed.
+   */
+  public static boolean canAppendPagination(String sql) {
+    for (String word : new Scanner(sql).scan().topLevelWords) {
+      if (CONFLICTING_KEYWORDS.contains(word)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the statement, once trimmed, has an {@code ORDER BY} clause at its top level.
+   */
+  public static boolean hasOrderBy(String sql) {
+    List<String> words = new Scanner(sql).scan().topLevelWords;
+    for (int i = 0; i + 1 < words.size(); i++) {
+      if ("ORDER".equals(words.get(i)) && "BY".equals(words.get(i + 1))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static final class Scanner {
+
+    private final String sql;
+    // 最后一个有效字符（不是空白、分号或注释）之后的位置
+    private int end;
+    // 不在括号、引号和注释中的单词（大写）
+    private final List<String> topLevelWords = new ArrayList<>();
+
+    Scanner(String sql) {
+      this.sql = sql;
+    }
+
+    Scanner scan() {
+      final int length = sql.length();
+      int depth = 0;
+      int i = 0;
+      while (i < length) {
+        char c = sql.charAt(i);
+        if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+          int newline = sql.indexOf('\n', i);
+          i = newline < 0 ? length : newline;
+        } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+          int close = sql.indexOf("*/", i + 2);
+          i = close < 0 ? length : close + 2;
+        } else if (c == '\'' || c == '"' || c == '`' || c == '[') {
+          int close = sql.indexOf(c == '[' ? ']' : c, i + 1);
+          i = close < 0 ? length : close + 1;
+          end = i;
+        } else if (Character.isLetterOrDigit(c) || c == '_') {
+          int start = i;
+          while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '$')) {
+            i++;
+          }
+          if (depth == 0) {
+            topLevelWords.add(sql.substring(start, i).toUpperCase(Locale.ENGLISH));
+          }
+          end = i;
+        } else {
+          if (c == '(') {
+            depth++;
+          } else if (c == ')') {
+            depth--;
+          }
+          if (!Character.isWhitespace(c) && c != ';') {
+            end = i + 1;
+          }
+          i++;
+        }
+      }
+      return this;
+    }
+  }
+
+}
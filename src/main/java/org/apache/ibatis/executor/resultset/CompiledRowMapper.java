@@ -0,0 +1,149 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A row mapper specialized for one result map and one result set column layout.
+ * <p>
+ * Every mapped column is resolved once to its index in the result set, its {@link TypeHandler}
+ * and the setter {@link Invoker} of the target property. Mapping a row is then a plain loop over
+ * those arrays, without going through {@code MetaObject}, {@code PropertyTokenizer} or any per-row
+ * column name lookup.
+ *
+ * 编译后的行映射器：列下标、类型处理器、setter调用器在首次执行时解析完毕，之后每一行只需按数组顺序赋值。
+ */
+public final class CompiledRowMapper {
+
+  private final Class<?> type;
+  private final int[] columnIndexes;
+  private final TypeHandler<?>[] typeHandlers;
+  private final String[] properties;
+  private final Invoker[] setters;
+  private final boolean[] primitives;
+
+  private CompiledRowMapper(Class<?> type, List<Step> steps) {
+    this.type = type;
+    final int size = steps.size();
+    this.columnIndexes = new int[size];
+    this.typeHandlers = new TypeHandler<?>[size];
+    this.properties = new String[size];
+    this.setters = new Invoker[size];
+    this.primitives = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      Step step = steps.get(i);
+      columnIndexes[i] = step.columnIndex;
+      typeHandlers[i] = step.typeHandler;
+      properties[i] = step.property;
+      setters[i] = step.setter;
+      primitives[i] = step.primitive;
+    }
+  }
+
+  /**
+   * Returns the class of the row objects this mapper was compiled for.
+   */
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * Returns the number of columns this mapper assigns.
+   */
+  public int size() {
+    return columnIndexes.length;
+  }
+
+  /**
+   * Copies the columns of the current row into the given row object.
+   *
+   * @param rs result set positioned on the row to map
+   * @param rowValue target object, an instance of {@link #getType()}
+   * @param callSettersOnNulls whether setters of non primitive properties are called with null values
+   * @return true if at least one column was not null
+   */
+  public boolean map(ResultSet rs, Object rowValue, boolean callSettersOnNulls) throws SQLException {
+    boolean foundValues = false;
+    final Object[] params = new Object[1];
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !primitives[i])) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        params[0] = value;
+        setValue(i, rowValue, params);
+      }
+    }
+    return foundValues;
+  }
+
+  private void setValue(int i, Object rowValue, Object[] params) {
+    try {
+      try {
+        setters[i].invoke(rowValue, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + rowValue.getClass() + "' with value '" + params[0] + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  public static class Builder {
+    private final Class<?> type;
+    private final List<Step> steps = new ArrayList<>();
+
+    public Builder(Class<?> type) {
+      this.type = type;
+    }
+
+    public Builder add(int columnIndex, TypeHandler<?> typeHandler, String property, Invoker setter, boolean primitive) {
+      steps.add(new Step(columnIndex, typeHandler, property, setter, primitive));
+      return this;
+    }
+
+    public CompiledRowMapper build() {
+      return new CompiledRowMapper(type, steps);
+    }
+  }
+
+  private static class Step {
+    private final int columnIndex;
+    private final TypeHandler<?> typeHandler;
+    private final String property;
+    private final Invoker setter;
+    private final boolean primitive;
+
+    Step(int columnIndex, TypeHandler<?> typeHandler, String property, Invoker setter, boolean primitive) {
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+      this.property = property;
+      this.setter = setter;
+      this.primitive = primitive;
+    }
+  }
+}
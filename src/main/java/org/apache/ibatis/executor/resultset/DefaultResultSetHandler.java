@@ -21,6 +21,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +34,7 @@ import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
@@ -51,8 +53,10 @@ import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
@@ -71,6 +75,8 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  // 语句未设置fetchSize时预取缓冲区的大小
+  private static final int DEFAULT_CURSOR_PREFETCH_SIZE = 256;
 
   private final Executor executor;
   private final Configuration configuration;
@@ -88,17 +94,31 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ReflectorFactory reflectorFactory;
 
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+  private final Map<RowKey, Object> nestedResultObjects = new HashMap<>();
+  // nestedResultOrdered时代替nestedResultObjects，每个嵌套映射（及列前缀）只保留最后一个对象。结构为：Map<嵌套映射，Map<列前缀，最后一个对象>>
+  private final Map<ResultMapping, Map<String, LastNestedResult>> lastNestedResults = new HashMap<>();
+  // 是否只保留每个嵌套映射的最后一个对象，有兄弟集合时退回nestedResultObjects
+  private final boolean nestedResultOrdered;
   private final Map<String, Object> ancestorObjects = new HashMap<>();
+  // 顶层行键的缓冲区，嵌套层的缓冲区挂在其下
+  private final RowKey rowKeyBuffer = new RowKey();
   private Object previousRowValue;
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
+  // batched nested selects (null values mark nested selects that cannot be batched)
+  private final Map<String, NestedQueryBatch> nestedQueryBatches = new HashMap<>();
+  private boolean batchingNestedQueries;
+
   // Cached Automappings
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  // Compiled row mappers resolved for the current result set (null values mark result maps that cannot be compiled)
+  private final Map<String, CompiledRowMapper> compiledRowMappers = new HashMap<>();
+  private ResultSetWrapper compiledRowMappersSource;
+
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
 
@@ -133,6 +153,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     this.objectFactory = configuration.getObjectFactory();
     this.reflectorFactory = configuration.getReflectorFactory();
     this.resultHandler = resultHandler;
+    this.nestedResultOrdered = mappedStatement.isNestedResultOrdered() && !hasSiblingCollections();
   }
 
   //
@@ -202,6 +223,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
     // 用以存储处理结果的列表
     final List<Object> multipleResults = new ArrayList<>();
+    // 结果对象在返回前不会交给调用者时，嵌套查询才能推迟到结果集处理完后批量执行
+    batchingNestedQueries = resultHandler == null && configuration.getNestedSelectBatchSize() > 1;
     // 可能会有多个结果集，该变量用来对结果集进行计数
     int resultSetCount = 0;
     // 可能会有多个结果集，先取出第一个结果集
@@ -243,6 +266,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         resultSetCount++;
       }
     }
+    // 批量执行各个结果集收集的嵌套查询
+    loadNestedQueryBatches();
     // 判断是否是单结果集：如果是则返回结果列表；如果否则返回结果集列表
     return collapseSingleResultList(multipleResults);
   }
@@ -262,7 +287,52 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
-    return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    Cursor<E> cursor = new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    // 嵌套查询和延迟加载会使用执行器，不能在后台线程中映射
+    if (configuration.isCursorPrefetchEnabled() && !hasNestedQueries(resultMap, new HashSet<>())) {
+      return new PrefetchingCursor<>(cursor, getCursorPrefetchSize());
+    }
+    return cursor;
+  }
+
+  /**
+   * 结果映射及其嵌套结果映射、鉴别器分支中是否有嵌套查询
+   */
+  private boolean hasNestedQueries(ResultMap resultMap, Set<String> visitedIds) {
+    if (!visitedIds.add(resultMap.getId())) {
+      return false;
+    }
+    if (resultMap.hasNestedQueries()) {
+      return true;
+    }
+    List<String> nestedIds = new ArrayList<>();
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (resultMapping.getNestedResultMapId() != null) {
+        nestedIds.add(resultMapping.getNestedResultMapId());
+      }
+    }
+    Discriminator discriminator = resultMap.getDiscriminator();
+    if (discriminator != null) {
+      nestedIds.addAll(discriminator.getDiscriminatorMap().values());
+    }
+    for (String nestedId : nestedIds) {
+      if (configuration.hasResultMap(nestedId) && hasNestedQueries(configuration.getResultMap(nestedId), visitedIds)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 预取缓冲区的大小与每次从数据库读取的行数一致
+   */
+  private int getCursorPrefetchSize() {
+    Integer fetchSize = mappedStatement.getFetchSize();
+    if (fetchSize == null) {
+      fetchSize = configuration.getDefaultFetchSize();
+    }
+    // 部分驱动用负数的fetchSize表示逐行读取
+    return fetchSize != null && fetchSize > 0 ? fetchSize : DEFAULT_CURSOR_PREFETCH_SIZE;
   }
 
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
@@ -313,7 +383,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   private void cleanUpAfterHandlingResultSet() {
-    nestedResultObjects.clear();
+    clearNestedResultObjects();
   }
 
   private void validateResultMapsCount(ResultSetWrapper rsw, int resultMapCount) {
@@ -353,6 +423,19 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  private void loadNestedQueryBatches() throws SQLException {
+    if (!batchingNestedQueries) {
+      return;
+    }
+    // 之后处理的输出参数（REF CURSOR）不再批量加载
+    batchingNestedQueries = false;
+    for (NestedQueryBatch batch : nestedQueryBatches.values()) {
+      if (batch != null) {
+        batch.load(executor, configuration.getNestedSelectBatchSize());
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private List<Object> collapseSingleResultList(List<Object> multipleResults) {
     return multipleResults.size() == 1 ? (List<Object>) multipleResults.get(0) : multipleResults;
@@ -495,6 +578,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // 创建这一行记录对应的对象
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
     if (rowValue != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      // 启用了行映射器编译时，直接按列下标赋值
+      final CompiledRowMapper rowMapper = getCompiledRowMapper(rsw, resultMap, rowValue, columnPrefix);
+      if (rowMapper != null) {
+        boolean foundValues = rowMapper.map(rsw.getResultSet(), rowValue, configuration.isCallSettersOnNulls()) || this.useConstructorMappings;
+        return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+      }
       // 根据对象得到其MetaObject
       final MetaObject metaObject = configuration.newMetaObject(rowValue);
       boolean foundValues = this.useConstructorMappings;
@@ -523,6 +612,97 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix) throws SQLException {
+    if (!configuration.isCompiledRowMappingEnabled()) {
+      return null;
+    }
+    if (compiledRowMappersSource != rsw) {
+      compiledRowMappers.clear();
+      compiledRowMappersSource = rsw;
+    }
+    final String mapKey = resultMap.getId() + ":" + columnPrefix;
+    CompiledRowMapper rowMapper = compiledRowMappers.get(mapKey);
+    if (rowMapper == null && !compiledRowMappers.containsKey(mapKey)) {
+      final String key = getCompiledRowMapperKey(rsw, resultMap, rowValue.getClass(), columnPrefix);
+      rowMapper = configuration.getCompiledRowMapper(key);
+      if (rowMapper == null) {
+        rowMapper = compileRowMapper(rsw, resultMap, rowValue, columnPrefix);
+        if (rowMapper != null) {
+          configuration.addCompiledRowMapper(key, rowMapper);
+        }
+      }
+      compiledRowMappers.put(mapKey, rowMapper);
+    }
+    // the object factory may hand out a different class for some rows
+    return rowMapper != null && rowMapper.getType() == rowValue.getClass() ? rowMapper : null;
+  }
+
+  private String getCompiledRowMapperKey(ResultSetWrapper rsw, ResultMap resultMap, Class<?> type, String columnPrefix) {
+    final StringBuilder key = new StringBuilder(resultMap.getId()).append(':').append(columnPrefix).append(':').append(type.getName());
+    final List<String> columnNames = rsw.getColumnNames();
+    final List<JdbcType> jdbcTypes = rsw.getJdbcTypes();
+    for (int i = 0; i < columnNames.size(); i++) {
+      key.append(':').append(columnNames.get(i)).append('/').append(jdbcTypes.get(i));
+    }
+    return key.toString();
+  }
+
+  /**
+   * Compiles the automatic and explicit property mappings of a simple result map against the current
+   * column layout. Returns null when some mapping needs the generic path (nested queries or result maps,
+   * composite columns, nested properties, non bean result objects...).
+   */
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap, Object rowValue, String columnPrefix) throws SQLException {
+    if (resultMap.hasNestedQueries() || resultMap.hasNestedResultMaps()) {
+      return null;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(rowValue);
+    if (metaObject.getObjectWrapper().getClass() != BeanWrapper.class) {
+      return null;
+    }
+    final Reflector reflector = reflectorFactory.findForClass(rowValue.getClass());
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(rowValue.getClass());
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+        if (!addCompiledMapping(builder, rsw, reflector, mapping.column, mapping.property, mapping.typeHandler)) {
+          return null;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return null;
+      }
+      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
+      if (column == null || propertyMapping.getProperty() == null
+          || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!addCompiledMapping(builder, rsw, reflector, column, propertyMapping.getProperty(), propertyMapping.getTypeHandler())) {
+        return null;
+      }
+    }
+    return builder.build();
+  }
+
+  private boolean addCompiledMapping(CompiledRowMapper.Builder builder, ResultSetWrapper rsw, Reflector reflector,
+      String column, String property, TypeHandler<?> typeHandler) {
+    if (property.indexOf('.') > -1 || property.indexOf('[') > -1 || !reflector.hasSetter(property)) {
+      return false;
+    }
+    final int columnIndex = rsw.getColumnIndex(column);
+    if (columnIndex < 0) {
+      return false;
+    }
+    builder.add(columnIndex, typeHandler, property, reflector.getSetInvoker(property), reflector.getSetterType(property).isPrimitive());
+    return true;
+  }
+
   //
   // PROPERTY MAPPINGS
   //
@@ -859,18 +1039,38 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         executor.deferLoad(nestedQuery, metaResultObject, property, key, targetType);
         value = DEFERRED;
       } else {
-        final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
-        if (propertyMapping.isLazy()) {
-          lazyLoader.addLoader(property, metaResultObject, resultLoader);
+        final NestedQueryBatch batch = propertyMapping.isLazy() ? null : getNestedQueryBatch(nestedQuery, propertyMapping, nestedQueryParameterObject);
+        if (batch != null) {
+          // 结果集处理完后与其他父对象的同一嵌套查询一起执行
+          batch.add(metaResultObject, property, targetType, nestedQueryParameterObject);
           value = DEFERRED;
         } else {
-          value = resultLoader.loadResult();
+          final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
+          if (propertyMapping.isLazy()) {
+            lazyLoader.addLoader(property, metaResultObject, resultLoader);
+            value = DEFERRED;
+          } else {
+            value = resultLoader.loadResult();
+          }
         }
       }
     }
     return value;
   }
 
+  private NestedQueryBatch getNestedQueryBatch(MappedStatement nestedQuery, ResultMapping propertyMapping, Object nestedQueryParameterObject) {
+    if (!batchingNestedQueries || propertyMapping.isCompositeResult()) {
+      return null;
+    }
+    final String nestedQueryId = nestedQuery.getId();
+    if (nestedQueryBatches.containsKey(nestedQueryId)) {
+      return nestedQueryBatches.get(nestedQueryId);
+    }
+    final NestedQueryBatch batch = NestedQueryBatch.create(configuration, nestedQuery, nestedQueryParameterObject, reflectorFactory);
+    nestedQueryBatches.put(nestedQueryId, batch);
+    return batch;
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -990,17 +1190,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       // 处理鉴别器
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
       // 生成缓存键
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
-      Object partialObject = nestedResultObjects.get(rowKey);
+      final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, rowKeyBuffer.reset(), null);
+      Object partialObject = getNestedResultObject(null, null, rowKey);
       // issue #577 && #542
       if (mappedStatement.isResultOrdered()) {
         if (partialObject == null && rowValue != null) {
-          nestedResultObjects.clear();
+          clearNestedResultObjects();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
         }
-        rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
+        rowValue = getRowValue(rsw, discriminatedResultMap, null, rowKey, null, partialObject);
       } else {
-        rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
+        rowValue = getRowValue(rsw, discriminatedResultMap, null, rowKey, null, partialObject);
         if (partialObject == null) {
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
         }
@@ -1018,7 +1218,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
 
-  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, ResultMapping nestedMapping, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
     final String resultMapId = resultMap.getId();
     Object rowValue = partialObject;
     if (rowValue != null) {
@@ -1042,13 +1242,126 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         foundValues = lazyLoader.size() > 0 || foundValues;
         rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
       }
-      if (combinedKey != CacheKey.NULL_CACHE_KEY) {
-        nestedResultObjects.put(combinedKey, rowValue);
+      if (combinedKey != RowKey.NULL_ROW_KEY) {
+        putNestedResultObject(nestedMapping, columnPrefix, combinedKey, rowValue);
       }
     }
     return rowValue;
   }
 
+  private Object getNestedResultObject(ResultMapping nestedMapping, String columnPrefix, RowKey key) {
+    if (key == RowKey.NULL_ROW_KEY) {
+      return null;
+    }
+    if (!nestedResultOrdered) {
+      return nestedResultObjects.get(key);
+    }
+    // 行按各层的id列排序，同一个对象的行是连续的，只需与该嵌套映射的上一个对象比较
+    Map<String, LastNestedResult> lastResults = lastNestedResults.get(nestedMapping);
+    LastNestedResult lastResult = lastResults == null ? null : lastResults.get(columnPrefix);
+    return lastResult != null && lastResult.key.equals(key) ? lastResult.value : null;
+  }
+
+  private void putNestedResultObject(ResultMapping nestedMapping, String columnPrefix, RowKey rowKey, Object value) {
+    // 只有新建的对象才复制行键，查找已有对象时使用的都是缓冲区
+    final RowKey key = rowKey.freeze();
+    if (!nestedResultOrdered) {
+      nestedResultObjects.put(key, value);
+      return;
+    }
+    lastNestedResults.computeIfAbsent(nestedMapping, k -> new HashMap<>()).put(columnPrefix, new LastNestedResult(key, value));
+  }
+
+  /**
+   * 同一对象下有两个及以上含集合的嵌套分支（兄弟集合）时，各分支的行按笛卡尔积交错出现，
+   * 同一个子对象的行不再连续，不能只保留最后一个对象
+   */
+  private boolean hasSiblingCollections() {
+    Set<String> visitedIds = new HashSet<>();
+    for (ResultMap resultMap : mappedStatement.getResultMaps()) {
+      if (hasSiblingCollections(resultMap, visitedIds)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean hasSiblingCollections(ResultMap resultMap, Set<String> visitedIds) {
+    if (!visitedIds.add(resultMap.getId())) {
+      return false;
+    }
+    int collectionBranches = 0;
+    List<String> nestedIds = new ArrayList<>();
+    for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+      final String nestedResultMapId = resultMapping.getNestedResultMapId();
+      if (nestedResultMapId != null && resultMapping.getResultSet() == null && configuration.hasResultMap(nestedResultMapId)) {
+        nestedIds.add(nestedResultMapId);
+        if (isCollection(resultMapping) || containsCollection(configuration.getResultMap(nestedResultMapId), new HashSet<>())) {
+          collectionBranches++;
+        }
+      }
+    }
+    if (collectionBranches > 1) {
+      return true;
+    }
+    Discriminator discriminator = resultMap.getDiscriminator();
+    if (discriminator != null) {
+      nestedIds.addAll(discriminator.getDiscriminatorMap().values());
+    }
+    for (String nestedId : nestedIds) {
+      if (configuration.hasResultMap(nestedId) && hasSiblingCollections(configuration.getResultMap(nestedId), visitedIds)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean containsCollection(ResultMap resultMap, Set<String> visitedIds) {
+    if (!visitedIds.add(resultMap.getId())) {
+      return false;
+    }
+    List<String> nestedIds = new ArrayList<>();
+    for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+      if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
+        if (isCollection(resultMapping)) {
+          return true;
+        }
+        nestedIds.add(resultMapping.getNestedResultMapId());
+      }
+    }
+    Discriminator discriminator = resultMap.getDiscriminator();
+    if (discriminator != null) {
+      nestedIds.addAll(discriminator.getDiscriminatorMap().values());
+    }
+    for (String nestedId : nestedIds) {
+      if (configuration.hasResultMap(nestedId) && containsCollection(configuration.getResultMap(nestedId), visitedIds)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean isCollection(ResultMapping resultMapping) {
+    final Class<?> javaType = resultMapping.getJavaType();
+    // 属性类型未知（例如映射到Map）时按集合处理
+    return javaType == null || javaType == Object.class || javaType.isArray() || Collection.class.isAssignableFrom(javaType);
+  }
+
+  private void clearNestedResultObjects() {
+    nestedResultObjects.clear();
+    lastNestedResults.clear();
+  }
+
+  private static class LastNestedResult {
+    private final RowKey key;
+    private final Object value;
+
+    LastNestedResult(RowKey key, Object value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
   private void putAncestor(Object resultObject, String resultMapId) {
     ancestorObjects.put(resultMapId, resultObject);
   }
@@ -1057,7 +1370,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // NESTED RESULT MAP (JOIN MAPPING)
   //
 
-  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
     boolean foundValues = false;
     for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
       final String nestedResultMapId = resultMapping.getNestedResultMapId();
@@ -1076,13 +1389,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
-          Object rowValue = nestedResultObjects.get(combinedKey);
+          final RowKey combinedKey = createCombinedRowKey(nestedResultMap, rsw, parentRowKey, columnPrefix);
+          Object rowValue = getNestedResultObject(resultMapping, columnPrefix, combinedKey);
           boolean knownValue = rowValue != null;
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
           if (anyNotNullColumnHasValue(resultMapping, columnPrefix, rsw)) {
-            rowValue = getRowValue(rsw, nestedResultMap, combinedKey, columnPrefix, rowValue);
+            rowValue = getRowValue(rsw, nestedResultMap, resultMapping, combinedKey, columnPrefix, rowValue);
             if (rowValue != null && !knownValue) {
               linkObjects(metaObject, resultMapping, rowValue);
               foundValues = true;
@@ -1138,8 +1450,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // UNIQUE RESULT KEY
   //
 
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
+  private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, RowKey cacheKey, String columnPrefix) throws SQLException {
     cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
     if (resultMappings.isEmpty()) {
@@ -1152,23 +1463,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
     }
     if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+      return RowKey.NULL_ROW_KEY;
     }
     return cacheKey;
   }
 
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
-      combinedKey.update(parentRowKey);
-      return combinedKey;
+  private RowKey createCombinedRowKey(ResultMap resultMap, ResultSetWrapper rsw, RowKey parentRowKey, String columnPrefix) throws SQLException {
+    if (parentRowKey == RowKey.NULL_ROW_KEY) {
+      return RowKey.NULL_ROW_KEY;
     }
-    return CacheKey.NULL_CACHE_KEY;
+    // 在父键缓冲区之后追加本层的键值，不再克隆父键
+    return createRowKey(resultMap, rsw, parentRowKey.child(), columnPrefix);
   }
 
   private List<ResultMapping> getResultMappingsForRowKey(ResultMap resultMap) {
@@ -1179,7 +1484,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultMappings;
   }
 
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, RowKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
     for (ResultMapping resultMapping : resultMappings) {
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) {
         // Issue #392
@@ -1202,7 +1507,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, RowKey cacheKey, String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
     for (String column : unmappedColumnNames) {
@@ -1225,7 +1530,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
+  private void createRowKeyForMap(ResultSetWrapper rsw, RowKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
       final String value = rsw.getResultSet().getString(columnName);
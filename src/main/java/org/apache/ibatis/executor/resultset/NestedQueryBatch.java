@@ -0,0 +1,280 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.executor.loader.ResultLoader;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaClass;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.AutoMappingBehavior;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Loads the results of a nested select for all the parents of a result set with batched {@code IN (...)} queries.
+ * <p>
+ * A nested select can be batched when its SQL is static and its only parameter is the right side of a
+ * {@code column = ?} predicate: the predicate is rewritten to {@code column IN (?, ?, ...)} and the rows are given back
+ * to the parents by the value of the property mapped to that column. Anything that would make the rewritten query
+ * return other rows than the union of the single queries (LIMIT, GROUP BY, OR, ...) keeps the nested select row by row.
+ *
+ * 嵌套查询的批量加载：收集结果集中所有父对象的外键，用IN查询一次取回，再按键值分给各个父对象。
+ */
+final class NestedQueryBatch {
+
+  private static final String KEY_PARAMETER_PREFIX = "_nestedKey_";
+
+  // "?"前面必须是“列 =”
+  private static final Pattern KEY_PREDICATE = Pattern.compile("([\\w$.\"`\\[\\]]+)\\s*=\\s*$");
+  // 改写为IN后结果不再等于逐行查询结果之和的语句
+  private static final Pattern UNSUPPORTED_CLAUSE = Pattern.compile(
+      "\\b(LIMIT|OFFSET|FETCH|TOP|ROWNUM|GROUP|HAVING|UNION|INTERSECT|EXCEPT|MINUS|OR)\\b", Pattern.CASE_INSENSITIVE);
+
+  private final Configuration configuration;
+  private final MappedStatement nestedQuery;
+  private final ParameterMapping keyMapping;
+  private final String sqlBeforeKey;
+  private final String sqlAfterKey;
+  private final String keyProperty;
+  private final List<PendingLoad> pendingLoads = new ArrayList<>();
+
+  private static class PendingLoad {
+    private final MetaObject metaObject;
+    private final String property;
+    private final Class<?> targetType;
+    private final Object parameterObject;
+    private final Object key;
+
+    PendingLoad(MetaObject metaObject, String property, Class<?> targetType, Object parameterObject) {
+      this.metaObject = metaObject;
+      this.property = property;
+      this.targetType = targetType;
+      this.parameterObject = parameterObject;
+      this.key = normalizeKey(parameterObject);
+    }
+  }
+
+  private NestedQueryBatch(Configuration configuration, MappedStatement nestedQuery, ParameterMapping keyMapping,
+      String sqlBeforeKey, String sqlAfterKey, String keyProperty) {
+    this.configuration = configuration;
+    this.nestedQuery = nestedQuery;
+    this.keyMapping = keyMapping;
+    this.sqlBeforeKey = sqlBeforeKey;
+    this.sqlAfterKey = sqlAfterKey;
+    this.keyProperty = keyProperty;
+  }
+
+  /**
+   * Returns a batch for the nested select, or {@code null} when it has to be run row by row.
+   */
+  static NestedQueryBatch create(Configuration configuration, MappedStatement nestedQuery, Object parameterObject,
+      ReflectorFactory reflectorFactory) {
+    if (nestedQuery.getSqlCommandType() != SqlCommandType.SELECT
+        || nestedQuery.getStatementType() != StatementType.PREPARED
+        || nestedQuery.getResultSets() != null
+        || nestedQuery.getResultMaps().size() != 1
+        || !(nestedQuery.getSqlSource() instanceof RawSqlSource || nestedQuery.getSqlSource() instanceof StaticSqlSource)
+        || !configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+      return null;
+    }
+    final BoundSql boundSql = nestedQuery.getBoundSql(parameterObject);
+    final String sql = boundSql.getSql();
+    final int keyIndex = sql.indexOf('?');
+    if (boundSql.getParameterMappings().size() != 1
+        || keyIndex < 0 || keyIndex != sql.lastIndexOf('?')
+        || boundSql.getParameterMappings().get(0).getMode() != ParameterMode.IN
+        || UNSUPPORTED_CLAUSE.matcher(sql).find()) {
+      return null;
+    }
+    final Matcher matcher = KEY_PREDICATE.matcher(sql.substring(0, keyIndex));
+    if (!matcher.find()) {
+      return null;
+    }
+    final String column = matcher.group(1);
+    final String keyProperty = findKeyProperty(configuration, nestedQuery.getResultMaps().get(0), unqualify(column), reflectorFactory);
+    if (keyProperty == null) {
+      return null;
+    }
+    return new NestedQueryBatch(configuration, nestedQuery, boundSql.getParameterMappings().get(0),
+        sql.substring(0, matcher.start(1)) + column + " IN (", ")" + sql.substring(keyIndex + 1), keyProperty);
+  }
+
+  // 取出不带表别名与引号的列名
+  private static String unqualify(String column) {
+    String name = column.substring(column.lastIndexOf('.') + 1);
+    return name.replaceAll("[\"`\\[\\]]", "");
+  }
+
+  private static String findKeyProperty(Configuration configuration, ResultMap resultMap, String column, ReflectorFactory reflectorFactory) {
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (column.equalsIgnoreCase(resultMapping.getColumn())) {
+        if (resultMapping.getProperty() == null || resultMapping.getNestedQueryId() != null
+            || resultMapping.getNestedResultMapId() != null) {
+          return null;
+        }
+        return resultMapping.getProperty();
+      }
+    }
+    final Class<?> type = resultMap.getType();
+    final boolean autoMapping = resultMap.getAutoMapping() != null ? resultMap.getAutoMapping()
+        : configuration.getAutoMappingBehavior() != AutoMappingBehavior.NONE;
+    if (!autoMapping || configuration.getTypeHandlerRegistry().hasTypeHandler(type) || Map.class.isAssignableFrom(type)) {
+      return null;
+    }
+    final MetaClass metaClass = MetaClass.forClass(type, reflectorFactory);
+    final String property = metaClass.findProperty(column, configuration.isMapUnderscoreToCamelCase());
+    return property != null && metaClass.hasGetter(property) ? property : null;
+  }
+
+  // 父对象取出的键与子对象属性的类型可能不同（如Integer与Long、BigDecimal），精确数值统一按数值比较
+  private static Object normalizeKey(Object key) {
+    final BigDecimal decimal;
+    if (key instanceof Byte || key instanceof Short || key instanceof Integer || key instanceof Long) {
+      decimal = BigDecimal.valueOf(((Number) key).longValue());
+    } else if (key instanceof BigInteger) {
+      decimal = new BigDecimal((BigInteger) key);
+    } else if (key instanceof BigDecimal) {
+      decimal = (BigDecimal) key;
+    } else {
+      return key;
+    }
+    return decimal.signum() == 0 ? BigDecimal.ZERO : decimal.stripTrailingZeros();
+  }
+
+  void add(MetaObject metaObject, String property, Class<?> targetType, Object parameterObject) {
+    pendingLoads.add(new PendingLoad(metaObject, property, targetType, parameterObject));
+  }
+
+  /**
+   * Runs the batched queries, at most {@code batchSize} keys each, and sets the results on the parents.
+   */
+  void load(Executor executor, int batchSize) throws SQLException {
+    final Map<Object, List<PendingLoad>> loadsByKey = new LinkedHashMap<>();
+    for (PendingLoad pendingLoad : pendingLoads) {
+      loadsByKey.computeIfAbsent(pendingLoad.key, k -> new ArrayList<>()).add(pendingLoad);
+    }
+    final List<Object> keys = new ArrayList<>(loadsByKey.keySet());
+    for (int start = 0; start < keys.size(); start += batchSize) {
+      final List<Object> chunk = keys.subList(start, Math.min(start + batchSize, keys.size()));
+      final List<Object> values = new ArrayList<>(chunk.size());
+      final List<PendingLoad> chunkLoads = new ArrayList<>();
+      for (Object key : chunk) {
+        final List<PendingLoad> loads = loadsByKey.get(key);
+        // 绑定父对象原始的键值，归一化后的键只用于分配结果
+        values.add(loads.get(0).parameterObject);
+        chunkLoads.addAll(loads);
+      }
+      loadChunk(executor, chunk, values, chunkLoads);
+    }
+    pendingLoads.clear();
+  }
+
+  private void loadChunk(Executor executor, List<Object> keys, List<Object> values, List<PendingLoad> chunkLoads) throws SQLException {
+    final Object parameterObject = chunkLoads.get(0).parameterObject;
+    final BoundSql boundSql = createBoundSql(values, parameterObject);
+    final CacheKey cacheKey = executor.createCacheKey(nestedQuery, parameterObject, RowBounds.DEFAULT, boundSql);
+    // 相同的批量查询正在执行中（循环引用），退回逐行加载，由一级缓存延迟加载
+    if (executor.isCached(nestedQuery, cacheKey)) {
+      loadIndividually(executor, chunkLoads);
+      return;
+    }
+    final List<Object> rows = executor.query(nestedQuery, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+    final Set<Object> requestedKeys = new HashSet<>(keys);
+    final Map<Object, List<Object>> rowsByKey = new HashMap<>();
+    for (Object row : rows) {
+      final Object key = row == null ? null : normalizeKey(configuration.newMetaObject(row).getValue(keyProperty));
+      if (key == null || !requestedKeys.contains(key)) {
+        // 结果中没有键值，或键值与父对象的键类型不一致（如String与数值、Timestamp与Date），无法分配给父对象
+        loadIndividually(executor, chunkLoads);
+        return;
+      }
+      rowsByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+    }
+    final ResultExtractor resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+    for (PendingLoad pendingLoad : chunkLoads) {
+      final List<Object> list = rowsByKey.getOrDefault(pendingLoad.key, Collections.emptyList());
+      setValue(pendingLoad, resultExtractor.extractObjectFromList(new ArrayList<>(list), pendingLoad.targetType));
+    }
+  }
+
+  private BoundSql createBoundSql(List<Object> values, Object parameterObject) {
+    final StringBuilder sql = new StringBuilder(sqlBeforeKey.length() + sqlAfterKey.length() + values.size() * 3);
+    sql.append(sqlBeforeKey);
+    final List<ParameterMapping> parameterMappings = new ArrayList<>(values.size());
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('?');
+      parameterMappings.add(new ParameterMapping.Builder(configuration, KEY_PARAMETER_PREFIX + i, keyMapping.getTypeHandler())
+          .jdbcType(keyMapping.getJdbcType()).build());
+    }
+    sql.append(sqlAfterKey);
+    final BoundSql boundSql = new BoundSql(configuration, sql.toString(), parameterMappings, parameterObject);
+    for (int i = 0; i < values.size(); i++) {
+      boundSql.setAdditionalParameter(KEY_PARAMETER_PREFIX + i, values.get(i));
+    }
+    return boundSql;
+  }
+
+  private void loadIndividually(Executor executor, List<PendingLoad> loads) throws SQLException {
+    for (PendingLoad pendingLoad : loads) {
+      final BoundSql boundSql = nestedQuery.getBoundSql(pendingLoad.parameterObject);
+      final CacheKey cacheKey = executor.createCacheKey(nestedQuery, pendingLoad.parameterObject, RowBounds.DEFAULT, boundSql);
+      if (executor.isCached(nestedQuery, cacheKey)) {
+        executor.deferLoad(nestedQuery, pendingLoad.metaObject, pendingLoad.property, cacheKey, pendingLoad.targetType);
+      } else {
+        final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, pendingLoad.parameterObject,
+            pendingLoad.targetType, cacheKey, boundSql);
+        setValue(pendingLoad, resultLoader.loadResult());
+      }
+    }
+  }
+
+  private void setValue(PendingLoad pendingLoad, Object value) {
+    if (value != null || (configuration.isCallSettersOnNulls() && !pendingLoad.metaObject.getSetterType(pendingLoad.property).isPrimitive())) {
+      pendingLoad.metaObject.setValue(pendingLoad.property, value);
+    }
+  }
+
+}
@@ -113,6 +113,19 @@ public class ResultSetWrapper {
     return null;
   }
 
+  /**
+   * Returns the 1-based index of the first column whose name matches (ignoring case),
+   * or -1 when the result set has no such column.
+   */
+  public int getColumnIndex(String columnName) {
+    for (int i = 0 ; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
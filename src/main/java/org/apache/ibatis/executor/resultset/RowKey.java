@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * Identity of an object built from a row by a nested result map.
+ * <p>
+ * A row key holds the values of the row key columns of the object, preceded by the values of the keys of all its
+ * parents, in a flat array with a precomputed hash. Keys are computed into reusable buffers, one per nesting level,
+ * so looking up an object that is already known does not allocate. Only when a new object is created is the buffer
+ * copied by {@link #freeze()} into an immutable key that can be stored.
+ *
+ * 嵌套结果映射的行键：在每一层复用的缓冲区中计算，只有创建新对象时才复制为不可变的键保存。
+ */
+final class RowKey {
+
+  static final RowKey NULL_ROW_KEY = new RowKey(new Object[0], 0, 0, 0);
+
+  // 父键与本层键值之间的分隔标记，不会与任何列值相等
+  private static final Object SEGMENT = new Object();
+
+  private static final int DEFAULT_CAPACITY = 8;
+
+  private Object[] values;
+  private int size;
+  // 本层键值在values中的起始位置
+  private int ownStart;
+  private int hashcode;
+  // 下一层嵌套结果映射使用的缓冲区
+  private RowKey child;
+
+  RowKey() {
+    this(new Object[DEFAULT_CAPACITY], 0, 0, 1);
+  }
+
+  private RowKey(Object[] values, int size, int ownStart, int hashcode) {
+    this.values = values;
+    this.size = size;
+    this.ownStart = ownStart;
+    this.hashcode = hashcode;
+  }
+
+  /**
+   * Starts a key for a top level object, discarding the previous content of this buffer.
+   */
+  RowKey reset() {
+    size = 0;
+    ownStart = 0;
+    hashcode = 1;
+    return this;
+  }
+
+  /**
+   * Returns the buffer of the nested level, filled with the values of this key.
+   * <p>
+   * The returned buffer belongs to this buffer and is overwritten by the next call.
+   */
+  RowKey child() {
+    if (child == null) {
+      child = new RowKey();
+    }
+    RowKey key = child.reset();
+    key.ensureCapacity(size + 1);
+    System.arraycopy(values, 0, key.values, 0, size);
+    key.size = size;
+    key.hashcode = hashcode;
+    key.update(SEGMENT);
+    key.ownStart = key.size;
+    return key;
+  }
+
+  void update(Object object) {
+    ensureCapacity(size + 1);
+    values[size++] = object;
+    hashcode = 31 * hashcode + ArrayUtil.hashCode(object);
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > values.length) {
+      values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+    }
+  }
+
+  /**
+   * Returns the number of values of this level, as opposed to the values inherited from the parents.
+   */
+  int getUpdateCount() {
+    return size - ownStart;
+  }
+
+  /**
+   * Returns an immutable copy of this key, suitable to be stored.
+   */
+  RowKey freeze() {
+    return new RowKey(Arrays.copyOf(values, size), size, ownStart, hashcode);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (this == object) {
+      return true;
+    }
+    if (!(object instanceof RowKey)) {
+      return false;
+    }
+    final RowKey rowKey = (RowKey) object;
+    if (hashcode != rowKey.hashcode || size != rowKey.size) {
+      return false;
+    }
+    for (int i = size - 1; i >= 0; i--) {
+      // 从本层的键值开始比较，父键值通常相同
+      if (values[i] != rowKey.values[i] && !ArrayUtil.equals(values[i], rowKey.values[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return hashcode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder().append(hashcode);
+    for (int i = 0; i < size; i++) {
+      builder.append(':').append(values[i] == SEGMENT ? "/" : ArrayUtil.toString(values[i]));
+    }
+    return builder.toString();
+  }
+
+}
@@ -18,17 +18,27 @@ package org.apache.ibatis.executor.statement;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.executor.pagination.KeysetSql;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
+import org.apache.ibatis.executor.pagination.PaginationSql;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetBounds;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.type.TypeHandlerRegistry;
@@ -42,6 +52,9 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
  */
 public abstract class BaseStatementHandler implements StatementHandler {
 
+  // 分页下推时追加的参数名前缀
+  private static final String PAGINATION_PARAMETER_PREFIX = "_rowBounds_";
+
   protected final Configuration configuration;
   protected final ObjectFactory objectFactory;
   protected final TypeHandlerRegistry typeHandlerRegistry;
@@ -50,6 +63,7 @@ public abstract class BaseStatementHandler implements StatementHandler {
 
   protected final Executor executor;
   protected final MappedStatement mappedStatement;
+  // 仍需在结果集中跳过和限制的行，分页下推到数据库后为RowBounds.DEFAULT
   protected final RowBounds rowBounds;
 
   protected BoundSql boundSql;
@@ -58,7 +72,6 @@ public abstract class BaseStatementHandler implements StatementHandler {
     this.configuration = mappedStatement.getConfiguration();
     this.executor = executor;
     this.mappedStatement = mappedStatement;
-    this.rowBounds = rowBounds;
 
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.objectFactory = configuration.getObjectFactory();
@@ -70,7 +83,24 @@ public abstract class BaseStatementHandler implements StatementHandler {
       boundSql = mappedStatement.getBoundSql(parameterObject);
     }
 
+    // 将翻页条件下推到数据库，结果集中不再需要跳过行
+    if (rowBounds instanceof KeysetBounds) {
+      boundSql = seek(boundSql, (KeysetBounds) rowBounds);
+      rowBounds = RowBounds.DEFAULT;
+    } else if (canPushDownRowBounds(rowBounds)) {
+      PaginationDialect dialect = configuration.getPaginationDialect();
+      String sql = PaginationSql.trim(boundSql.getSql());
+      // 已有行数限制或锁定子句的语句、方言不支持的语句不能追加分页子句，仍在结果集中跳过行
+      if (dialect != null && PaginationSql.canAppendPagination(sql) && dialect.canPaginate(sql)) {
+        List<Integer> values = new ArrayList<>(2);
+        sql = dialect.getPaginatedSql(sql, rowBounds.getOffset(), rowBounds.getLimit(), values);
+        boundSql = withPaginationParameters(boundSql, sql, values, Integer.class);
+        rowBounds = RowBounds.DEFAULT;
+      }
+    }
+
     this.boundSql = boundSql;
+    this.rowBounds = rowBounds;
 
     this.parameterHandler = configuration.newParameterHandler(mappedStatement, parameterObject, boundSql);
     this.resultSetHandler = configuration.newResultSetHandler(executor, mappedStatement, rowBounds, parameterHandler, resultHandler, boundSql);
@@ -135,6 +165,69 @@ public abstract class BaseStatementHandler implements StatementHandler {
     }
   }
 
+  // 按翻页条件设置最大行数，使未下推的翻页查询也不会读取多余的行
+  protected void setMaxRows(Statement stmt) throws SQLException {
+    if (!configuration.isRowBoundsPushdownEnabled()) {
+      return;
+    }
+    int maxRows = 0;
+    if (canPushDownRowBounds(rowBounds) && rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT) {
+      long rows = (long) rowBounds.getOffset() + rowBounds.getLimit();
+      maxRows = rows > Integer.MAX_VALUE ? 0 : (int) rows;
+    }
+    // 语句可能被ReuseExecutor复用，每次执行前都要恢复
+    if (stmt.getMaxRows() != maxRows) {
+      stmt.setMaxRows(maxRows);
+    }
+  }
+
+  private boolean canPushDownRowBounds(RowBounds rowBounds) {
+    // 嵌套结果映射的行数限制针对的是对象而不是行，多结果集的行数无法在SQL中限制
+    return configuration.isRowBoundsPushdownEnabled()
+        && (rowBounds.getOffset() != RowBounds.NO_ROW_OFFSET || rowBounds.getLimit() != RowBounds.NO_ROW_LIMIT)
+        && mappedStatement.getSqlCommandType() == SqlCommandType.SELECT
+        && mappedStatement.getStatementType() == StatementType.PREPARED
+        && !mappedStatement.hasNestedResultMaps()
+        && mappedStatement.getResultSets() == null;
+  }
+
+  private BoundSql seek(BoundSql boundSql, KeysetBounds keysetBounds) {
+    PaginationDialect dialect = configuration.getPaginationDialect();
+    if (dialect == null) {
+      throw new ExecutorException("Keyset pagination of '" + mappedStatement.getId()
+          + "' requires a pagination dialect, but there is none for database id '" + configuration.getDatabaseId() + "'.");
+    }
+    if (mappedStatement.getSqlCommandType() != SqlCommandType.SELECT
+        || mappedStatement.getStatementType() != StatementType.PREPARED
+        || mappedStatement.hasNestedResultMaps() || mappedStatement.getResultSets() != null) {
+      throw new ExecutorException("Keyset pagination of '" + mappedStatement.getId()
+          + "' requires a prepared select without nested result maps or multiple result sets.");
+    }
+    List<Object> values = new ArrayList<>();
+    String sql = KeysetSql.getKeysetSql(dialect, PaginationSql.trim(boundSql.getSql()), keysetBounds, values);
+    // 键值的类型处理器在设置参数时按实际类型选择
+    return withPaginationParameters(boundSql, sql, values, Object.class);
+  }
+
+  private BoundSql withPaginationParameters(BoundSql boundSql, String sql, List<?> values, Class<?> javaType) {
+    List<ParameterMapping> parameterMappings = new ArrayList<>(boundSql.getParameterMappings().size() + values.size());
+    parameterMappings.addAll(boundSql.getParameterMappings());
+    BoundSql paginatedSql = new BoundSql(configuration, sql, parameterMappings, boundSql.getParameterObject());
+    // 复制动态SQL生成的参数（foreach、bind等）
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      String name = new PropertyTokenizer(parameterMapping.getProperty()).getName();
+      if (boundSql.hasAdditionalParameter(name)) {
+        paginatedSql.setAdditionalParameter(name, boundSql.getAdditionalParameter(name));
+      }
+    }
+    for (int i = 0; i < values.size(); i++) {
+      String name = PAGINATION_PARAMETER_PREFIX + i;
+      parameterMappings.add(new ParameterMapping.Builder(configuration, name, javaType).build());
+      paginatedSql.setAdditionalParameter(name, values.get(i));
+    }
+    return paginatedSql;
+  }
+
   protected void closeStatement(Statement statement) {
     try {
       if (statement != null) {
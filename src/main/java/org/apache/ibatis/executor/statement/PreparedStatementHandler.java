@@ -65,6 +65,7 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    setMaxRows(ps);
     // 执行真正的查询，查询完成后，结果就在ps中了
     ps.execute();
     // 由resultSetHandler继续处理结果
@@ -74,6 +75,7 @@ public class PreparedStatementHandler extends BaseStatementHandler {
   @Override
   public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
     PreparedStatement ps = (PreparedStatement) statement;
+    setMaxRows(ps);
     ps.execute();
     return resultSetHandler.handleCursorResultSets(ps);
   }
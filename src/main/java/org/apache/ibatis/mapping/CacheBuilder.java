@@ -30,6 +30,7 @@ import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -146,6 +147,8 @@ public class CacheBuilder {
    */
   private Cache setStandardDecorators(Cache cache) {
     try {
+      // TinyLfuCache自身是线程安全的，读操作不加锁，因此不再使用同步装饰器
+      boolean synchronizedAccess = !(cache instanceof TinyLfuCache);
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       // 设置缓存大小
       if (size != null && metaCache.hasSetter("size")) {
@@ -163,10 +166,14 @@ public class CacheBuilder {
       // 使用日志装饰器装饰缓存
       cache = new LoggingCache(cache);
       // 使用同步装饰器装饰缓存
-      cache = new SynchronizedCache(cache);
+      if (synchronizedAccess) {
+        cache = new SynchronizedCache(cache);
+      }
       // 如果启用了阻塞功能，则使用阻塞装饰器装饰缓存
       if (blocking) {
         cache = new BlockingCache(cache);
+        // 阻塞装饰器的超时时间、分段锁等也通过缓存属性设置
+        setCacheProperties(cache);
       }
       // 返回被层层装饰的缓存
       return cache;
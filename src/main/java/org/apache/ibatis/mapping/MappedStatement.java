@@ -67,6 +67,8 @@ public final class MappedStatement {
   private boolean flushCacheRequired;
   private boolean useCache;
   private boolean resultOrdered;
+  // 结果集同时按各层嵌套结果映射的id列排序
+  private boolean nestedResultOrdered;
   // 类型，增删改查
   private SqlCommandType sqlCommandType;
   private KeyGenerator keyGenerator;
@@ -167,6 +169,14 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.3
+     */
+    public Builder nestedResultOrdered(boolean nestedResultOrdered) {
+      mappedStatement.nestedResultOrdered = nestedResultOrdered;
+      return this;
+    }
+
     public Builder keyGenerator(KeyGenerator keyGenerator) {
       mappedStatement.keyGenerator = keyGenerator;
       return this;
@@ -284,6 +294,16 @@ public final class MappedStatement {
     return resultOrdered;
   }
 
+  /**
+   * Returns whether the rows are also ordered by the id columns of every nested result map, so that
+   * only the last object of each nested result map has to be remembered while mapping the rows.
+   *
+   * @since 3.5.3
+   */
+  public boolean isNestedResultOrdered() {
+    return nestedResultOrdered;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
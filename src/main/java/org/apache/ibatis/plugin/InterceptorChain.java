@@ -15,9 +15,18 @@
  */
 package org.apache.ibatis.plugin;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
 
 /**
  * @author Clinton Begin
@@ -27,6 +36,23 @@ import java.util.List;
 public class InterceptorChain {
     // 拦截器链
     private final List<Interceptor> interceptors = new ArrayList<>();
+    // 是否用分发器代替层层嵌套的Plugin代理
+    private boolean pipelineEnabled;
+    // 按当前拦截器编译的流水线，增加拦截器时作废
+    private volatile Pipelines pipelines;
+
+    private static class Pipelines {
+        // 有拦截器自定义了plugin方法或拦截了其他类型时，无法展开为流水线
+        private final boolean supported;
+        private InterceptorPipeline executor;
+        private InterceptorPipeline statementHandler;
+        private InterceptorPipeline parameterHandler;
+        private InterceptorPipeline resultSetHandler;
+
+        private Pipelines(boolean supported) {
+            this.supported = supported;
+        }
+    }
 
     // target是支持拦截的几个类的实例。该方法依次向所有拦截器插入这几个类的实例
     // 如果某个插件真的需要发挥作用，则返回一个代理对象即可。如果不需要发挥作用，则返回原对象即可
@@ -37,6 +63,12 @@ public class InterceptorChain {
      * @return 用来替换目标对象的对象
      */
     public Object pluginAll(Object target) {
+        if (pipelineEnabled) {
+            Object dispatcher = pluginPipeline(target);
+            if (dispatcher != null) {
+                return dispatcher;
+            }
+        }
         // 依次交给每个拦截器完成目标对象的替换工作
         for (Interceptor interceptor : interceptors) {
             target = interceptor.plugin(target);
@@ -44,12 +76,98 @@ public class InterceptorChain {
         return target;
     }
 
+    /**
+     * 用一个分发器包装目标对象，代替每个拦截器一层的代理
+     * @param target 目标对象
+     * @return 分发器；不需要拦截时为目标对象本身；无法使用流水线时为null
+     */
+    private Object pluginPipeline(Object target) {
+        int types = (target instanceof Executor ? 1 : 0) + (target instanceof StatementHandler ? 1 : 0)
+            + (target instanceof ParameterHandler ? 1 : 0) + (target instanceof ResultSetHandler ? 1 : 0);
+        Pipelines pipelines = getPipelines();
+        if (types != 1 || !pipelines.supported) {
+            return null;
+        }
+        if (target instanceof Executor) {
+            return pipelines.executor.isEmpty() ? target : new ExecutorDispatcher((Executor) target, pipelines.executor);
+        } else if (target instanceof StatementHandler) {
+            return pipelines.statementHandler.isEmpty() ? target : new StatementHandlerDispatcher((StatementHandler) target, pipelines.statementHandler);
+        } else if (target instanceof ParameterHandler) {
+            return pipelines.parameterHandler.isEmpty() ? target : new ParameterHandlerDispatcher((ParameterHandler) target, pipelines.parameterHandler);
+        } else {
+            return pipelines.resultSetHandler.isEmpty() ? target : new ResultSetHandlerDispatcher((ResultSetHandler) target, pipelines.resultSetHandler);
+        }
+    }
+
+    private Pipelines getPipelines() {
+        Pipelines compiled = pipelines;
+        if (compiled == null) {
+            compiled = compilePipelines();
+            pipelines = compiled;
+        }
+        return compiled;
+    }
+
+    private Pipelines compilePipelines() {
+        Map<Interceptor, Map<Class<?>, Set<Method>>> signatureMaps = new HashMap<>();
+        for (Interceptor interceptor : interceptors) {
+            if (!usesDefaultPlugin(interceptor)) {
+                return new Pipelines(false);
+            }
+            Map<Class<?>, Set<Method>> signatureMap = Plugin.getSignatureMap(interceptor);
+            for (Class<?> type : signatureMap.keySet()) {
+                if (type != Executor.class && type != StatementHandler.class && type != ParameterHandler.class && type != ResultSetHandler.class) {
+                    return new Pipelines(false);
+                }
+            }
+            signatureMaps.put(interceptor, signatureMap);
+        }
+        Pipelines compiled = new Pipelines(true);
+        compiled.executor = InterceptorPipeline.compile(ExecutorDispatcher.METHODS, interceptors, signatureMaps);
+        compiled.statementHandler = InterceptorPipeline.compile(StatementHandlerDispatcher.METHODS, interceptors, signatureMaps);
+        compiled.parameterHandler = InterceptorPipeline.compile(ParameterHandlerDispatcher.METHODS, interceptors, signatureMaps);
+        compiled.resultSetHandler = InterceptorPipeline.compile(ResultSetHandlerDispatcher.METHODS, interceptors, signatureMaps);
+        return compiled;
+    }
+
+    // 自定义了plugin方法的拦截器可能不只是调用Plugin.wrap
+    private static boolean usesDefaultPlugin(Interceptor interceptor) {
+        try {
+            return interceptor.getClass().getMethod("plugin", Object.class).isDefault();
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     /**
      * 向拦截器链增加一个拦截器
      * @param interceptor 要增加的拦截器
      */
     public void addInterceptor(Interceptor interceptor) {
         interceptors.add(interceptor);
+        pipelines = null;
+    }
+
+    /**
+     * Makes {@link #pluginAll(Object)} wrap the targets in a single dispatcher that runs the interceptors of each method
+     * from an array resolved once, instead of one {@link Plugin} proxy per interceptor.
+     * <p>
+     * The interceptors are called in the same order as with the proxies. {@link Invocation#getTarget()} returns the
+     * plugged object itself rather than the next proxy. The proxies are still used when an interceptor overrides
+     * {@link Interceptor#plugin(Object)} or intercepts another type than {@code Executor}, {@code StatementHandler},
+     * {@code ParameterHandler} and {@code ResultSetHandler}.
+     *
+     * @since 3.5.3
+     */
+    public void setPipelineEnabled(boolean pipelineEnabled) {
+        this.pipelineEnabled = pipelineEnabled;
+    }
+
+    /**
+     * @since 3.5.3
+     */
+    public boolean isPipelineEnabled() {
+        return pipelineEnabled;
     }
 
     /**
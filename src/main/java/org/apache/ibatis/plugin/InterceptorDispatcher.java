@@ -0,0 +1,117 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.sql.SQLException;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Base class of the dispatchers that replace the nested {@link Plugin} proxies of a pluggable object when the
+ * interceptor pipeline is enabled.
+ * <p>
+ * A dispatcher implements the pluggable interface itself. Methods without interceptors call the target directly;
+ * the others run the interceptors of the method, resolved in an {@link InterceptorPipeline}, and end with a direct
+ * call of the target selected by {@link #dispatch(int, Object[])}.
+ *
+ * 拦截器分发器：一个对象只包装一层，未被拦截的方法直接调用目标对象，被拦截的方法按流水线依次调用拦截器。
+ *
+ * @since 3.5.3
+ */
+abstract class InterceptorDispatcher {
+
+  private final Object target;
+  private final InterceptorPipeline pipeline;
+
+  protected InterceptorDispatcher(Object target, InterceptorPipeline pipeline) {
+    this.target = target;
+    this.pipeline = pipeline;
+  }
+
+  protected static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      return type.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      throw new PluginException("Could not find method on " + type + " named " + name + ". Cause: " + e, e);
+    }
+  }
+
+  Object getTarget() {
+    return target;
+  }
+
+  protected final boolean isIntercepted(int method) {
+    return pipeline.isIntercepted(method);
+  }
+
+  /**
+   * Calls the method of the target with the given, possibly changed by the interceptors, arguments.
+   */
+  protected abstract Object dispatch(int method, Object[] args) throws Throwable;
+
+  /**
+   * Runs the interceptors of a method that declares {@link SQLException}.
+   */
+  protected final Object intercept(int method, Object... args) throws SQLException {
+    try {
+      return proceed(method, args);
+    } catch (SQLException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new UndeclaredThrowableException(t);
+    }
+  }
+
+  /**
+   * Runs the interceptors of a method that declares no checked exception.
+   */
+  protected final Object interceptUnchecked(int method, Object... args) {
+    try {
+      return proceed(method, args);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new UndeclaredThrowableException(t);
+    }
+  }
+
+  private Object proceed(int method, Object[] args) throws Throwable {
+    final Interceptor[] interceptors = pipeline.getInterceptors(method);
+    try {
+      return interceptors[0].intercept(new PipelineInvocation(this, method, pipeline.getMethod(method), interceptors, 1, args));
+    } catch (Exception e) {
+      throw ExceptionUtil.unwrapThrowable(e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return target.equals(obj);
+  }
+
+  @Override
+  public int hashCode() {
+    return target.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return target.toString();
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The interceptors of each method of one of the pluggable types, resolved once for the whole interceptor chain.
+ * <p>
+ * The interceptors of a method are kept in the order the nested {@link Plugin} proxies would call them: the last
+ * interceptor added to the chain first.
+ *
+ * 拦截器流水线：每个可拦截方法对应的拦截器数组在配置时一次算好，调用时无需查找signatureMap。
+ *
+ * @since 3.5.3
+ */
+final class InterceptorPipeline {
+
+  private static final Interceptor[] NO_INTERCEPTORS = new Interceptor[0];
+
+  private final Method[] methods;
+  private final Interceptor[][] interceptors;
+  private final boolean empty;
+
+  private InterceptorPipeline(Method[] methods, Interceptor[][] interceptors, boolean empty) {
+    this.methods = methods;
+    this.interceptors = interceptors;
+    this.empty = empty;
+  }
+
+  /**
+   * Resolves the interceptors of each of the given methods.
+   *
+   * @param methods the methods of the pluggable type, indexed as in its dispatcher
+   * @param chain the interceptors, in the order they were added
+   * @param signatureMaps the intercepted methods of each interceptor
+   */
+  static InterceptorPipeline compile(Method[] methods, List<Interceptor> chain, Map<Interceptor, Map<Class<?>, Set<Method>>> signatureMaps) {
+    final Interceptor[][] interceptors = new Interceptor[methods.length][];
+    boolean empty = true;
+    for (int i = 0; i < methods.length; i++) {
+      final Method method = methods[i];
+      final List<Interceptor> methodInterceptors = new ArrayList<>();
+      // 最后加入的拦截器包在最外层，最先被调用
+      for (int j = chain.size() - 1; j >= 0; j--) {
+        final Interceptor interceptor = chain.get(j);
+        final Set<Method> signatures = signatureMaps.get(interceptor).get(method.getDeclaringClass());
+        if (signatures != null && signatures.contains(method)) {
+          methodInterceptors.add(interceptor);
+        }
+      }
+      interceptors[i] = methodInterceptors.isEmpty() ? NO_INTERCEPTORS : methodInterceptors.toArray(NO_INTERCEPTORS);
+      empty = empty && methodInterceptors.isEmpty();
+    }
+    return new InterceptorPipeline(methods, interceptors, empty);
+  }
+
+  /**
+   * Returns true if no method of the type is intercepted, so the targets do not need a dispatcher.
+   */
+  boolean isEmpty() {
+    return empty;
+  }
+
+  boolean isIntercepted(int method) {
+    return interceptors[method].length > 0;
+  }
+
+  Method getMethod(int method) {
+    return methods[method];
+  }
+
+  Interceptor[] getInterceptors(int method) {
+    return interceptors[method];
+  }
+
+}
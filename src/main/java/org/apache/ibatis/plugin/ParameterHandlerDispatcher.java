@@ -0,0 +1,70 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+
+/**
+ * @since 3.5.3
+ */
+final class ParameterHandlerDispatcher extends InterceptorDispatcher implements ParameterHandler {
+
+  static final Method[] METHODS = {
+      method(ParameterHandler.class, "getParameterObject"),
+      method(ParameterHandler.class, "setParameters", PreparedStatement.class)
+  };
+  private static final int GET_PARAMETER_OBJECT = 0;
+  private static final int SET_PARAMETERS = 1;
+
+  private final ParameterHandler target;
+
+  ParameterHandlerDispatcher(ParameterHandler target, InterceptorPipeline pipeline) {
+    super(target, pipeline);
+    this.target = target;
+  }
+
+  @Override
+  protected Object dispatch(int method, Object[] args) throws Throwable {
+    switch (method) {
+      case GET_PARAMETER_OBJECT:
+        return target.getParameterObject();
+      case SET_PARAMETERS:
+        target.setParameters((PreparedStatement) args[0]);
+        return null;
+      default:
+        throw new IllegalArgumentException("Unknown method index " + method);
+    }
+  }
+
+  @Override
+  public Object getParameterObject() {
+    return isIntercepted(GET_PARAMETER_OBJECT) ? interceptUnchecked(GET_PARAMETER_OBJECT) : target.getParameterObject();
+  }
+
+  @Override
+  public void setParameters(PreparedStatement ps) throws SQLException {
+    if (isIntercepted(SET_PARAMETERS)) {
+      intercept(SET_PARAMETERS, ps);
+    } else {
+      target.setParameters(ps);
+    }
+  }
+
+}
@@ -0,0 +1,59 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * An invocation of an {@link InterceptorPipeline}: proceeding calls the next interceptor of the method, and after the
+ * last one the target, through its dispatcher rather than by reflection.
+ * <p>
+ * As with a {@link Plugin}, exceptions thrown by the next interceptor or by the target are wrapped in an
+ * {@link InvocationTargetException}.
+ *
+ * @since 3.5.3
+ */
+final class PipelineInvocation extends Invocation {
+
+  private final InterceptorDispatcher dispatcher;
+  private final int method;
+  private final Interceptor[] interceptors;
+  // 下一个要调用的拦截器
+  private final int next;
+
+  PipelineInvocation(InterceptorDispatcher dispatcher, int method, Method reflectedMethod, Interceptor[] interceptors, int next, Object[] args) {
+    super(dispatcher.getTarget(), reflectedMethod, args);
+    this.dispatcher = dispatcher;
+    this.method = method;
+    this.interceptors = interceptors;
+    this.next = next;
+  }
+
+  @Override
+  public Object proceed() throws InvocationTargetException {
+    try {
+      if (next < interceptors.length) {
+        return interceptors[next].intercept(
+            new PipelineInvocation(dispatcher, method, getMethod(), interceptors, next + 1, getArgs()));
+      }
+      return dispatcher.dispatch(method, getArgs());
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+}
@@ -98,7 +98,7 @@ public class Plugin implements InvocationHandler {
    * @param interceptor 拦截器
    * @return 入参拦截器要拦截的所有类和类中的方法
    */
-  private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
+  static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
     // 获取拦截器的Intercepts注解
     Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
     // issue #251
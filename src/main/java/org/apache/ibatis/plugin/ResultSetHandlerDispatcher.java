@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+
+/**
+ * @since 3.5.3
+ */
+final class ResultSetHandlerDispatcher extends InterceptorDispatcher implements ResultSetHandler {
+
+  static final Method[] METHODS = {
+      method(ResultSetHandler.class, "handleResultSets", Statement.class),
+      method(ResultSetHandler.class, "handleCursorResultSets", Statement.class),
+      method(ResultSetHandler.class, "handleOutputParameters", CallableStatement.class)
+  };
+  private static final int HANDLE_RESULT_SETS = 0;
+  private static final int HANDLE_CURSOR_RESULT_SETS = 1;
+  private static final int HANDLE_OUTPUT_PARAMETERS = 2;
+
+  private final ResultSetHandler target;
+
+  ResultSetHandlerDispatcher(ResultSetHandler target, InterceptorPipeline pipeline) {
+    super(target, pipeline);
+    this.target = target;
+  }
+
+  @Override
+  protected Object dispatch(int method, Object[] args) throws Throwable {
+    switch (method) {
+      case HANDLE_RESULT_SETS:
+        return target.handleResultSets((Statement) args[0]);
+      case HANDLE_CURSOR_RESULT_SETS:
+        return target.handleCursorResultSets((Statement) args[0]);
+      case HANDLE_OUTPUT_PARAMETERS:
+        target.handleOutputParameters((CallableStatement) args[0]);
+        return null;
+      default:
+        throw new IllegalArgumentException("Unknown method index " + method);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> List<E> handleResultSets(Statement stmt) throws SQLException {
+    return isIntercepted(HANDLE_RESULT_SETS) ? (List<E>) intercept(HANDLE_RESULT_SETS, stmt) : target.handleResultSets(stmt);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> Cursor<E> handleCursorResultSets(Statement stmt) throws SQLException {
+    return isIntercepted(HANDLE_CURSOR_RESULT_SETS) ? (Cursor<E>) intercept(HANDLE_CURSOR_RESULT_SETS, stmt) : target.handleCursorResultSets(stmt);
+  }
+
+  @Override
+  public void handleOutputParameters(CallableStatement cs) throws SQLException {
+    if (isIntercepted(HANDLE_OUTPUT_PARAMETERS)) {
+      intercept(HANDLE_OUTPUT_PARAMETERS, cs);
+    } else {
+      target.handleOutputParameters(cs);
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * @since 3.5.3
+ */
+final class StatementHandlerDispatcher extends InterceptorDispatcher implements StatementHandler {
+
+  static final Method[] METHODS = {
+      method(StatementHandler.class, "prepare", Connection.class, Integer.class),
+      method(StatementHandler.class, "parameterize", Statement.class),
+      method(StatementHandler.class, "batch", Statement.class),
+      method(StatementHandler.class, "update", Statement.class),
+      method(StatementHandler.class, "query", Statement.class, ResultHandler.class),
+      method(StatementHandler.class, "queryCursor", Statement.class),
+      method(StatementHandler.class, "getBoundSql"),
+      method(StatementHandler.class, "getParameterHandler")
+  };
+  private static final int PREPARE = 0;
+  private static final int PARAMETERIZE = 1;
+  private static final int BATCH = 2;
+  private static final int UPDATE = 3;
+  private static final int QUERY = 4;
+  private static final int QUERY_CURSOR = 5;
+  private static final int GET_BOUND_SQL = 6;
+  private static final int GET_PARAMETER_HANDLER = 7;
+
+  private final StatementHandler target;
+
+  StatementHandlerDispatcher(StatementHandler target, InterceptorPipeline pipeline) {
+    super(target, pipeline);
+    this.target = target;
+  }
+
+  @Override
+  protected Object dispatch(int method, Object[] args) throws Throwable {
+    switch (method) {
+      case PREPARE:
+        return target.prepare((Connection) args[0], (Integer) args[1]);
+      case PARAMETERIZE:
+        target.parameterize((Statement) args[0]);
+        return null;
+      case BATCH:
+        target.batch((Statement) args[0]);
+        return null;
+      case UPDATE:
+        return target.update((Statement) args[0]);
+      case QUERY:
+        return target.query((Statement) args[0], (ResultHandler) args[1]);
+      case QUERY_CURSOR:
+        return target.queryCursor((Statement) args[0]);
+      case GET_BOUND_SQL:
+        return target.getBoundSql();
+      case GET_PARAMETER_HANDLER:
+        return target.getParameterHandler();
+      default:
+        throw new IllegalArgumentException("Unknown method index " + method);
+    }
+  }
+
+  @Override
+  public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
+    return isIntercepted(PREPARE) ? (Statement) intercept(PREPARE, connection, transactionTimeout) : target.prepare(connection, transactionTimeout);
+  }
+
+  @Override
+  public void parameterize(Statement statement) throws SQLException {
+    if (isIntercepted(PARAMETERIZE)) {
+      intercept(PARAMETERIZE, statement);
+    } else {
+      target.parameterize(statement);
+    }
+  }
+
+  @Override
+  public void batch(Statement statement) throws SQLException {
+    if (isIntercepted(BATCH)) {
+      intercept(BATCH, statement);
+    } else {
+      target.batch(statement);
+    }
+  }
+
+  @Override
+  public int update(Statement statement) throws SQLException {
+    return isIntercepted(UPDATE) ? (Integer) intercept(UPDATE, statement) : target.update(statement);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Override
+  public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+    return isIntercepted(QUERY) ? (List<E>) intercept(QUERY, statement, resultHandler) : target.query(statement, resultHandler);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+    return isIntercepted(QUERY_CURSOR) ? (Cursor<E>) intercept(QUERY_CURSOR, statement) : target.queryCursor(statement);
+  }
+
+  @Override
+  public BoundSql getBoundSql() {
+    return isIntercepted(GET_BOUND_SQL) ? (BoundSql) interceptUnchecked(GET_BOUND_SQL) : target.getBoundSql();
+  }
+
+  @Override
+  public ParameterHandler getParameterHandler() {
+    return isIntercepted(GET_PARAMETER_HANDLER) ? (ParameterHandler) interceptUnchecked(GET_PARAMETER_HANDLER) : target.getParameterHandler();
+  }
+
+}
@@ -23,6 +23,7 @@ import java.util.concurrent.ConcurrentMap;
  */
 public class DefaultReflectorFactory implements ReflectorFactory {
   private boolean classCacheEnabled = true;
+  private boolean methodHandleInvokersEnabled;
   private final ConcurrentMap<Class<?>, Reflector> reflectorMap = new ConcurrentHashMap<>();
 
   public DefaultReflectorFactory() {
@@ -38,6 +39,26 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     this.classCacheEnabled = classCacheEnabled;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isMethodHandleInvokersEnabled() {
+    return methodHandleInvokersEnabled;
+  }
+
+  /**
+   * Switches the reflectors created by this factory between reflective and {@code MethodHandle} based invokers.
+   * Reflectors cached with the previous kind of invokers are discarded.
+   *
+   * @since 3.5.3
+   */
+  public void setMethodHandleInvokersEnabled(boolean methodHandleInvokersEnabled) {
+    if (this.methodHandleInvokersEnabled != methodHandleInvokersEnabled) {
+      this.methodHandleInvokersEnabled = methodHandleInvokersEnabled;
+      reflectorMap.clear();
+    }
+  }
+
   /**
    * 生产Reflector对象
    * @param type 目标类型
@@ -47,9 +68,9 @@ public class DefaultReflectorFactory implements ReflectorFactory {
   public Reflector findForClass(Class<?> type) {
     if (classCacheEnabled) { // 允许缓存
       // 生产入参type的反射器对象，并放入缓存
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, t -> new Reflector(t, methodHandleInvokersEnabled));
     } else {
-      return new Reflector(type);
+      return new Reflector(type, methodHandleInvokersEnabled);
     }
   }
 
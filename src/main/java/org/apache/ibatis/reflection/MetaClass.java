@@ -16,6 +16,7 @@
 package org.apache.ibatis.reflection;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -23,6 +24,7 @@ import java.util.Collection;
 
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 
@@ -117,7 +119,14 @@ public class MetaClass {
   private Type getGenericGetterType(String propertyName) {
     try {
       Invoker invoker = reflector.getGetInvoker(propertyName);
-      if (invoker instanceof MethodInvoker) {
+      if (invoker instanceof MethodHandleInvoker) {
+        Member member = ((MethodHandleInvoker) invoker).getMember();
+        if (member instanceof Method) {
+          return TypeParameterResolver.resolveReturnType((Method) member, reflector.getType());
+        } else {
+          return TypeParameterResolver.resolveFieldType((Field) member, reflector.getType());
+        }
+      } else if (invoker instanceof MethodInvoker) {
         Field _method = MethodInvoker.class.getDeclaredField("method");
         _method.setAccessible(true);
         Method method = (Method) _method.get(invoker);
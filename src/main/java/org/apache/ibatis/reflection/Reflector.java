@@ -35,6 +35,7 @@ import java.util.Map.Entry;
 
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
@@ -49,6 +50,8 @@ public class Reflector {
 
   // 要被反射解析的类
   private final Class<?> type;
+  // 是否使用基于MethodHandle的调用器
+  private final boolean useMethodHandles;
   // 能够读的属性列表，即有get方法的属性列表
   private final String[] readablePropertyNames;
   // 能够写的属性列表，即有set方法的属性列表
@@ -71,8 +74,19 @@ public class Reflector {
    * @param clazz 需要被反射处理的目标类
    */
   public Reflector(Class<?> clazz) {
+    this(clazz, false);
+  }
+
+  /**
+   * Reflector的构造方法
+   * @param clazz 需要被反射处理的目标类
+   * @param useMethodHandles 是否使用基于MethodHandle的调用器（无法创建时回退为反射调用器）
+   * @since 3.5.3
+   */
+  public Reflector(Class<?> clazz, boolean useMethodHandles) {
     // 要被反射解析的类
     type = clazz;
+    this.useMethodHandles = useMethodHandles;
     // 设置默认构造器属性
     addDefaultConstructor(clazz);
     // 解析所有的getter
@@ -165,7 +179,7 @@ public class Reflector {
 
   private void addGetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
-      getMethods.put(name, new MethodInvoker(method));
+      getMethods.put(name, newMethodInvoker(method));
       Type returnType = TypeParameterResolver.resolveReturnType(method, type);
       // 这里调用了
       getTypes.put(name, typeToClass(returnType));
@@ -244,7 +258,7 @@ public class Reflector {
 
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
-      setMethods.put(name, new MethodInvoker(method));
+      setMethods.put(name, newMethodInvoker(method));
       Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
       setTypes.put(name, typeToClass(paramTypes[0]));
     }
@@ -296,7 +310,7 @@ public class Reflector {
   // 设置setter方法，参数
   private void addSetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), useMethodHandles ? MethodHandleInvoker.forSetField(field) : new SetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -305,12 +319,16 @@ public class Reflector {
   // 设置getter方法，出参
   private void addGetField(Field field) {
     if (isValidPropertyName(field.getName())) {
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), useMethodHandles ? MethodHandleInvoker.forGetField(field) : new GetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
     }
   }
 
+  private Invoker newMethodInvoker(Method method) {
+    return useMethodHandles ? MethodHandleInvoker.forMethod(method) : new MethodInvoker(method);
+  }
+
   private boolean isValidPropertyName(String name) {
     return !(name.startsWith("$") || "serialVersionUID".equals(name) || "class".equals(name));
   }
@@ -0,0 +1,230 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * An {@link Invoker} backed by a generated accessor or a {@link MethodHandle} instead of core reflection.
+ * <p>
+ * For public getters and setters of public classes visible from this class, a {@link Function} or
+ * {@link BiConsumer} calling the method directly is generated with {@link LambdaMetafactory}. The JIT compiles such
+ * an accessor like a hand written call, whereas a handle kept in an instance field is not a constant and every
+ * {@code invokeExact} goes through the generic method handle linkage. Other methods and fields use a handle adapted
+ * once to a fully generic signature. Instances are obtained through the static factories, which fall back to the
+ * reflective invokers when a handle cannot be created for the member (e.g. inaccessible classes).
+ *
+ * 基于生成的访问器或MethodHandle的调用器，创建失败时回退为基于反射的调用器
+ *
+ * @since 3.5.3
+ */
+public class MethodHandleInvoker implements Invoker {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+  // 生成访问器时函数式接口方法擦除后的签名
+  private static final MethodType APPLY_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType ACCEPT_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  // 被调用的方法或者属性
+  private final Member member;
+  // 入参个数（不含目标对象）
+  private final int arity;
+  // 生成的访问器，为null时使用handle
+  private final Function<Object, Object> getter;
+  private final BiConsumer<Object, Object> setter;
+  private final MethodHandle handle;
+  private final Class<?> type;
+
+  private MethodHandleInvoker(Member member, MethodHandle handle, int arity, Class<?> type) {
+    this.member = member;
+    this.arity = arity;
+    this.type = type;
+    this.getter = null;
+    this.setter = null;
+    // void setters are adapted to return null, primitives are boxed and unboxed
+    this.handle = handle.asType(arity == 0 ? GETTER_TYPE : SETTER_TYPE);
+  }
+
+  private MethodHandleInvoker(Member member, Function<Object, Object> getter, BiConsumer<Object, Object> setter, Class<?> type) {
+    this.member = member;
+    this.arity = getter != null ? 0 : 1;
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+    this.handle = null;
+  }
+
+  /**
+   * Creates an invoker for a getter (no argument) or setter (one argument) method.
+   */
+  public static Invoker forMethod(Method method) {
+    final Class<?>[] parameterTypes = method.getParameterTypes();
+    if (parameterTypes.length > 1) {
+      return new MethodInvoker(method);
+    }
+    try {
+      MethodHandles.Lookup lookup = lookup(method);
+      MethodHandle handle = lookup.unreflect(method);
+      if (canGenerateAccessor(method)) {
+        Invoker invoker = generateAccessor(lookup, handle, method);
+        if (invoker != null) {
+          return invoker;
+        }
+      }
+      if (parameterTypes.length == 1) {
+        return new MethodHandleInvoker(method, handle, 1, parameterTypes[0]);
+      }
+      return new MethodHandleInvoker(method, handle, 0, method.getReturnType());
+    } catch (IllegalAccessException | RuntimeException e) {
+      return new MethodInvoker(method);
+    }
+  }
+
+  /**
+   * The generated class is defined with this class as host, so the method and every type of its signature must be
+   * public and resolve to the same classes from the class loader of MyBatis.
+   */
+  private static boolean canGenerateAccessor(Method method) {
+    if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())
+        || !isAccessible(method.getDeclaringClass()) || !isAccessible(method.getReturnType())) {
+      return false;
+    }
+    for (Class<?> parameterType : method.getParameterTypes()) {
+      if (!isAccessible(parameterType)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAccessible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return false;
+    }
+    try {
+      return Class.forName(type.getName(), false, MethodHandleInvoker.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns an invoker calling the method through a generated {@link Function} or {@link BiConsumer}, or null when
+   * the accessor cannot be generated.
+   */
+  @SuppressWarnings("unchecked")
+  private static Invoker generateAccessor(MethodHandles.Lookup lookup, MethodHandle handle, Method method) {
+    final Class<?> declaringClass = method.getDeclaringClass();
+    try {
+      if (method.getParameterCount() == 0) {
+        CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+            APPLY_TYPE, handle, MethodType.methodType(method.getReturnType(), declaringClass).wrap());
+        Function<Object, Object> getter = (Function<Object, Object>) callSite.getTarget().invokeExact();
+        return new MethodHandleInvoker(method, getter, null, method.getReturnType());
+      }
+      Class<?> parameterType = method.getParameterTypes()[0];
+      CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+          ACCEPT_TYPE, handle, MethodType.methodType(void.class, declaringClass, MethodType.methodType(parameterType).wrap().returnType()));
+      BiConsumer<Object, Object> setter = (BiConsumer<Object, Object>) callSite.getTarget().invokeExact();
+      return new MethodHandleInvoker(method, null, setter, parameterType);
+    } catch (Throwable t) {
+      // 生成失败时仍使用MethodHandle
+      return null;
+    }
+  }
+
+  /**
+   * Creates an invoker reading the given field.
+   */
+  public static Invoker forGetField(Field field) {
+    try {
+      return new MethodHandleInvoker(field, lookup(field).unreflectGetter(field), 0, field.getType());
+    } catch (IllegalAccessException | RuntimeException e) {
+      return new GetFieldInvoker(field);
+    }
+  }
+
+  /**
+   * Creates an invoker writing the given field.
+   */
+  public static Invoker forSetField(Field field) {
+    try {
+      return new MethodHandleInvoker(field, lookup(field).unreflectSetter(field), 1, field.getType());
+    } catch (IllegalAccessException | RuntimeException e) {
+      return new SetFieldInvoker(field);
+    }
+  }
+
+  private static MethodHandles.Lookup lookup(AccessibleObject member) {
+    // private and package-private members of the mapped classes need their accessible flag set
+    if (Reflector.canControlMemberAccessible()) {
+      member.setAccessible(true);
+    }
+    return MethodHandles.lookup();
+  }
+
+  /**
+   * Returns the method or field this invoker was created for.
+   */
+  public Member getMember() {
+    return member;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    try {
+      if (getter != null) {
+        return getter.apply(target);
+      } else if (setter != null) {
+        setter.accept(target, args[0]);
+        return null;
+      } else if (arity == 0) {
+        return (Object) handle.invokeExact(target);
+      } else {
+        return (Object) handle.invokeExact(target, args[0]);
+      }
+    } catch (Throwable t) {
+      // keep the contract of the reflective invokers: callers unwrap the cause
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+}
@@ -0,0 +1,443 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ognl.MapPropertyAccessor;
+import ognl.OgnlContext;
+import ognl.OgnlException;
+import ognl.OgnlOps;
+import ognl.OgnlRuntime;
+
+/**
+ * An OGNL expression of the subset commonly found in dynamic SQL, compiled to a tree of plain Java
+ * evaluators.
+ * <p>
+ * Supported are literals ({@code null}, booleans, integers, decimals, strings and characters), property
+ * paths with no argument method calls ({@code user.name}, {@code list.size()}), parentheses, {@code !}/{@code not},
+ * comparisons ({@code == != < > <= >=} and their {@code eq neq lt gt lte gte} forms) and {@code &&}/{@code and},
+ * {@code ||}/{@code or}. Property reads and method calls go through {@link OgnlRuntime} and operators through
+ * {@link OgnlOps}, so results are the same as when the expression is interpreted by OGNL. Any other expression is
+ * not compiled and {@link #compile(String)} returns null.
+ *
+ * 对动态SQL中常见的OGNL表达式子集进行编译，避免每次求值时解释执行表达式树
+ *
+ * @since 3.5.3
+ */
+abstract class CompiledExpression {
+
+  private static final Set<String> UNSUPPORTED_KEYWORDS = new HashSet<>(Arrays.asList(
+      "in", "instanceof", "shl", "shr", "ushr", "bor", "band", "xor", "new", "this"));
+
+  abstract Object getValue(OgnlContext context, Object root) throws OgnlException;
+
+  /**
+   * Compiles the expression, or returns null if it is not part of the supported subset.
+   */
+  static CompiledExpression compile(String expression) {
+    try {
+      Parser parser = new Parser(tokenize(expression));
+      CompiledExpression compiled = parser.parseOr();
+      return parser.hasNext() ? null : compiled;
+    } catch (UnsupportedExpressionException e) {
+      return null;
+    }
+  }
+
+  private static List<String> tokenize(String expression) {
+    List<String> tokens = new ArrayList<>();
+    int i = 0;
+    final int length = expression.length();
+    while (i < length) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          i++;
+        }
+        tokens.add(expression.substring(start, i));
+      } else if (Character.isDigit(c)) {
+        int start = i;
+        while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+          i++;
+        }
+        if (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+          // 带有类型后缀（如10L）的数值
+          throw new UnsupportedExpressionException();
+        }
+        tokens.add(expression.substring(start, i));
+      } else if (c == '\'' || c == '"') {
+        int end = expression.indexOf(c, i + 1);
+        if (end < 0 || expression.lastIndexOf('\\', end) > i) {
+          throw new UnsupportedExpressionException();
+        }
+        tokens.add(expression.substring(i, end + 1));
+        i = end + 1;
+      } else {
+        String operator = i + 1 < length ? expression.substring(i, i + 2) : null;
+        if ("==".equals(operator) || "!=".equals(operator) || "<=".equals(operator) || ">=".equals(operator)
+            || "&&".equals(operator) || "||".equals(operator)) {
+          tokens.add(operator);
+          i += 2;
+        } else if (c == '<' || c == '>' || c == '!' || c == '(' || c == ')' || c == '.') {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else {
+          throw new UnsupportedExpressionException();
+        }
+      }
+    }
+    return tokens;
+  }
+
+  private static class Parser {
+    private final List<String> tokens;
+    private int position;
+
+    Parser(List<String> tokens) {
+      this.tokens = tokens;
+    }
+
+    boolean hasNext() {
+      return position < tokens.size();
+    }
+
+    private String peek() {
+      return hasNext() ? tokens.get(position) : null;
+    }
+
+    private String next() {
+      if (!hasNext()) {
+        throw new UnsupportedExpressionException();
+      }
+      return tokens.get(position++);
+    }
+
+    private boolean accept(String... candidates) {
+      String token = peek();
+      for (String candidate : candidates) {
+        if (candidate.equals(token)) {
+          position++;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    CompiledExpression parseOr() {
+      List<CompiledExpression> operands = new ArrayList<>();
+      operands.add(parseAnd());
+      while (accept("||", "or")) {
+        operands.add(parseAnd());
+      }
+      return operands.size() == 1 ? operands.get(0) : new Or(operands);
+    }
+
+    private CompiledExpression parseAnd() {
+      List<CompiledExpression> operands = new ArrayList<>();
+      operands.add(parseEquality());
+      while (accept("&&", "and")) {
+        operands.add(parseEquality());
+      }
+      return operands.size() == 1 ? operands.get(0) : new And(operands);
+    }
+
+    private CompiledExpression parseEquality() {
+      CompiledExpression left = parseRelational();
+      while (true) {
+        String operator = peek();
+        if ("==".equals(operator) || "eq".equals(operator)) {
+          position++;
+          left = new Comparison(left, parseRelational(), Comparison.EQ);
+        } else if ("!=".equals(operator) || "neq".equals(operator)) {
+          position++;
+          left = new Comparison(left, parseRelational(), Comparison.NEQ);
+        } else {
+          return left;
+        }
+      }
+    }
+
+    private CompiledExpression parseRelational() {
+      CompiledExpression left = parseUnary();
+      while (true) {
+        String operator = peek();
+        if ("<".equals(operator) || "lt".equals(operator)) {
+          position++;
+          left = new Comparison(left, parseUnary(), Comparison.LT);
+        } else if (">".equals(operator) || "gt".equals(operator)) {
+          position++;
+          left = new Comparison(left, parseUnary(), Comparison.GT);
+        } else if ("<=".equals(operator) || "lte".equals(operator)) {
+          position++;
+          left = new Comparison(left, parseUnary(), Comparison.LTE);
+        } else if (">=".equals(operator) || "gte".equals(operator)) {
+          position++;
+          left = new Comparison(left, parseUnary(), Comparison.GTE);
+        } else {
+          return left;
+        }
+      }
+    }
+
+    private CompiledExpression parseUnary() {
+      if (accept("!", "not")) {
+        return new Not(parseUnary());
+      }
+      return parsePrimary();
+    }
+
+    private CompiledExpression parsePrimary() {
+      String token = next();
+      char first = token.charAt(0);
+      if ("(".equals(token)) {
+        CompiledExpression expression = parseOr();
+        if (!accept(")")) {
+          throw new UnsupportedExpressionException();
+        }
+        return expression;
+      } else if (first == '\'') {
+        String value = token.substring(1, token.length() - 1);
+        // 与OGNL一致，单引号中只有一个字符时为char常量
+        return new Constant(value.length() == 1 ? (Object) value.charAt(0) : value);
+      } else if (first == '"') {
+        return new Constant(token.substring(1, token.length() - 1));
+      } else if (Character.isDigit(first)) {
+        return new Constant(parseNumber(token));
+      } else if ("null".equals(token)) {
+        return new Constant(null);
+      } else if ("true".equals(token) || "false".equals(token)) {
+        return new Constant(Boolean.valueOf(token));
+      } else if (Character.isJavaIdentifierStart(first) && !isKeyword(token) && !"(".equals(peek())) {
+        return parseChain(token);
+      }
+      throw new UnsupportedExpressionException();
+    }
+
+    private CompiledExpression parseChain(String property) {
+      List<String> names = new ArrayList<>();
+      List<Boolean> methods = new ArrayList<>();
+      names.add(property);
+      methods.add(Boolean.FALSE);
+      while (accept(".")) {
+        String name = next();
+        if (!Character.isJavaIdentifierStart(name.charAt(0)) || isKeyword(name)) {
+          throw new UnsupportedExpressionException();
+        }
+        boolean method = accept("(");
+        if (method && !accept(")")) {
+          // 只支持无参方法
+          throw new UnsupportedExpressionException();
+        }
+        names.add(name);
+        methods.add(method);
+      }
+      return new Chain(names.toArray(new String[0]), methods);
+    }
+
+    private static Object parseNumber(String token) {
+      try {
+        if (token.indexOf('.') < 0) {
+          return Integer.valueOf(token);
+        }
+        if (token.endsWith(".")) {
+          throw new UnsupportedExpressionException();
+        }
+        return Double.valueOf(token);
+      } catch (NumberFormatException e) {
+        throw new UnsupportedExpressionException();
+      }
+    }
+
+    private static boolean isKeyword(String token) {
+      return UNSUPPORTED_KEYWORDS.contains(token)
+          || "and".equals(token) || "or".equals(token) || "not".equals(token)
+          || "eq".equals(token) || "neq".equals(token) || "lt".equals(token) || "gt".equals(token)
+          || "lte".equals(token) || "gte".equals(token)
+          || "null".equals(token) || "true".equals(token) || "false".equals(token);
+    }
+  }
+
+  private static class Constant extends CompiledExpression {
+    private final Object value;
+
+    Constant(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object getValue(OgnlContext context, Object root) {
+      return value;
+    }
+  }
+
+  private static class Chain extends CompiledExpression {
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final String[] names;
+    private final boolean[] methods;
+
+    Chain(String[] names, List<Boolean> methods) {
+      this.names = names;
+      this.methods = new boolean[names.length];
+      for (int i = 0; i < names.length; i++) {
+        this.methods[i] = methods.get(i);
+      }
+    }
+
+    @Override
+    Object getValue(OgnlContext context, Object root) throws OgnlException {
+      Object value = root;
+      for (int i = 0; i < names.length; i++) {
+        if (methods[i]) {
+          value = OgnlRuntime.callMethod(context, value, names[i], NO_ARGUMENTS);
+        } else {
+          value = getProperty(context, value, names[i]);
+        }
+      }
+      return value;
+    }
+
+    private static Object getProperty(OgnlContext context, Object target, String name) throws OgnlException {
+      // MapPropertyAccessor依赖OGNL表达式树中的当前节点，因此在这里按其逻辑直接处理
+      if (target instanceof Map && OgnlRuntime.getPropertyAccessor(target.getClass()) instanceof MapPropertyAccessor) {
+        Map<?, ?> map = (Map<?, ?>) target;
+        switch (name) {
+          case "size":
+            return map.size();
+          case "keys":
+          case "keySet":
+            return map.keySet();
+          case "values":
+            return map.values();
+          case "isEmpty":
+            return map.isEmpty() ? Boolean.TRUE : Boolean.FALSE;
+          default:
+            return map.get(name);
+        }
+      }
+      return OgnlRuntime.getProperty(context, target, name);
+    }
+  }
+
+  private static class Not extends CompiledExpression {
+    private final CompiledExpression operand;
+
+    Not(CompiledExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object getValue(OgnlContext context, Object root) throws OgnlException {
+      return OgnlOps.booleanValue(operand.getValue(context, root)) ? Boolean.FALSE : Boolean.TRUE;
+    }
+  }
+
+  private static class And extends CompiledExpression {
+    private final CompiledExpression[] operands;
+
+    And(List<CompiledExpression> operands) {
+      this.operands = operands.toArray(new CompiledExpression[0]);
+    }
+
+    @Override
+    Object getValue(OgnlContext context, Object root) throws OgnlException {
+      Object result = null;
+      for (CompiledExpression operand : operands) {
+        result = operand.getValue(context, root);
+        if (!OgnlOps.booleanValue(result)) {
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  private static class Or extends CompiledExpression {
+    private final CompiledExpression[] operands;
+
+    Or(List<CompiledExpression> operands) {
+      this.operands = operands.toArray(new CompiledExpression[0]);
+    }
+
+    @Override
+    Object getValue(OgnlContext context, Object root) throws OgnlException {
+      Object result = null;
+      for (CompiledExpression operand : operands) {
+        result = operand.getValue(context, root);
+        if (OgnlOps.booleanValue(result)) {
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  private static class Comparison extends CompiledExpression {
+    static final int EQ = 0;
+    static final int NEQ = 1;
+    static final int LT = 2;
+    static final int GT = 3;
+    static final int LTE = 4;
+    static final int GTE = 5;
+
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+    private final int operator;
+
+    Comparison(CompiledExpression left, CompiledExpression right, int operator) {
+      this.left = left;
+      this.right = right;
+      this.operator = operator;
+    }
+
+    @Override
+    Object getValue(OgnlContext context, Object root) throws OgnlException {
+      Object v1 = left.getValue(context, root);
+      Object v2 = right.getValue(context, root);
+      switch (operator) {
+        case EQ:
+          return OgnlOps.equal(v1, v2) ? Boolean.TRUE : Boolean.FALSE;
+        case NEQ:
+          return OgnlOps.equal(v1, v2) ? Boolean.FALSE : Boolean.TRUE;
+        case LT:
+          return OgnlOps.less(v1, v2) ? Boolean.TRUE : Boolean.FALSE;
+        case GT:
+          return OgnlOps.greater(v1, v2) ? Boolean.TRUE : Boolean.FALSE;
+        case LTE:
+          return OgnlOps.greater(v1, v2) ? Boolean.FALSE : Boolean.TRUE;
+        default:
+          return OgnlOps.less(v1, v2) ? Boolean.FALSE : Boolean.TRUE;
+      }
+    }
+  }
+
+  private static class UnsupportedExpressionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedExpressionException() {
+      super(null, null, false, false);
+    }
+  }
+}
@@ -49,6 +49,8 @@ public class DynamicContext {
   private final StringJoiner sqlBuilder = new StringJoiner(" ");
   // 解析时的唯一编号，防止解析混乱
   private int uniqueNumber = 0;
+  // 仅记录SQL形状时使用，记录各节点的执行路径；为null时正常拼接SQL语句
+  private final StringBuilder shapeBuilder;
 
   /**
    * DynamicContext的构造方法
@@ -56,16 +58,28 @@ public class DynamicContext {
    * @param parameterObject 用户传入的查询参数对象
    */
   public DynamicContext(Configuration configuration, Object parameterObject) {
+    this(configuration, parameterObject, false);
+  }
+
+  /**
+   * Creates a context that, when {@code shapeOnly} is true, does not build the SQL but only records
+   * the path taken through the dynamic nodes (see {@link #recordShape(char)}). Bindings are
+   * evaluated exactly as in a regular context.
+   *
+   * @since 3.5.3
+   */
+  public DynamicContext(Configuration configuration, Object parameterObject, boolean shapeOnly) {
+    this.shapeBuilder = shapeOnly ? new StringBuilder() : null;
     if (parameterObject != null && !(parameterObject instanceof Map)) {
       // 获得参数对象的元对象
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       // 判断参数对象本身是否有对应的类型处理器
       boolean existsTypeHandler = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
       // 放入上下文信息
-      bindings = new ContextMap(metaObject, existsTypeHandler);
+      bindings = new ContextMap(metaObject, existsTypeHandler, configuration.isCompiledOgnlExpressionsEnabled());
     } else {
       // 上下文信息为空
-      bindings = new ContextMap(null, false);
+      bindings = new ContextMap(null, false, configuration.isCompiledOgnlExpressionsEnabled());
     }
     // 把参数对象放入上下文信息
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
@@ -86,7 +100,9 @@ public class DynamicContext {
    * @param sql
    */
   public void appendSql(String sql) {
-    sqlBuilder.add(sql);
+    if (shapeBuilder == null) {
+      sqlBuilder.add(sql);
+    }
   }
 
   /**
@@ -101,6 +117,34 @@ public class DynamicContext {
     return uniqueNumber++;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isShapeOnly() {
+    return shapeBuilder != null;
+  }
+
+  /**
+   * Records one step of the path taken through the dynamic nodes, e.g. the outcome of an
+   * {@code <if>} test. Ignored unless this is a shape only context.
+   *
+   * @since 3.5.3
+   */
+  public void recordShape(char step) {
+    if (shapeBuilder != null) {
+      shapeBuilder.append(step);
+    }
+  }
+
+  /**
+   * Returns the recorded shape, or null unless this is a shape only context.
+   *
+   * @since 3.5.3
+   */
+  public String getShape() {
+    return shapeBuilder == null ? null : shapeBuilder.toString();
+  }
+
   /**
    * HashMap的子类
    */
@@ -109,10 +153,21 @@ public class DynamicContext {
     // 这里是用户查询时传入的参数对象的包装
     private final MetaObject parameterMetaObject;
     private final boolean fallbackParameterObject;
+    // 是否使用CompiledExpression对表达式求值
+    private final boolean compiledExpressionsEnabled;
 
     public ContextMap(MetaObject parameterMetaObject, boolean fallbackParameterObject) {
+      this(parameterMetaObject, fallbackParameterObject, false);
+    }
+
+    public ContextMap(MetaObject parameterMetaObject, boolean fallbackParameterObject, boolean compiledExpressionsEnabled) {
       this.parameterMetaObject = parameterMetaObject;
       this.fallbackParameterObject = fallbackParameterObject;
+      this.compiledExpressionsEnabled = compiledExpressionsEnabled;
+    }
+
+    public boolean isCompiledExpressionsEnabled() {
+      return compiledExpressionsEnabled;
     }
 
     /**
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.builder.SqlSourceBuilder;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.SqlSource;
@@ -42,9 +43,24 @@ public class DynamicSqlSource implements SqlSource {
   // ForEachSqlNode：拆解后的foreachSqlNode信息
   private final SqlNode rootSqlNode;
 
+  // 按SQL形状（各节点的执行路径）缓存的解析结果，节点树中含有${}时为null
+  private final ParsedSqlCache shapeCache;
+
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
+    this(configuration, rootSqlNode, false);
+  }
+
+  /**
+   * @param shapeCacheable true if the generated SQL only depends on the outcome of the {@code <if>}/{@code <when>}
+   *        tests and on the number of {@code <foreach>} iterations, i.e. the tree is made of the built-in nodes
+   *        and contains no {@code ${}} substitution. Such sources may reuse the SQL parsed for a previous
+   *        parameter object that took the same path when {@code sqlShapeCacheEnabled} is set.
+   * @since 3.5.3
+   */
+  public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode, boolean shapeCacheable) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.shapeCache = shapeCacheable ? new ParsedSqlCache(configuration.getParsedSqlCache().getMaxSize()) : null;
   }
 
   // 关键方法，获取到sql语句中只含有？，并且整理好参数的boundSql
@@ -56,6 +72,9 @@ public class DynamicSqlSource implements SqlSource {
    */
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
+    if (shapeCache != null && configuration.isSqlShapeCacheEnabled()) {
+      return getBoundSqlByShape(parameterObject);
+    }
     // 创建DynamicSqlSource的辅助类，用来记录DynamicSqlSource解析出来的
     // * SQL片段信息
     // * 参数信息
@@ -71,11 +90,45 @@ public class DynamicSqlSource implements SqlSource {
     // 使用SqlSourceBuilder处理#{}，将其转化为？
     // 相关参数放进了context.bindings
     // *** 最终生成了StaticSqlSource对象，然后由它生成BoundSql
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    // 开启parsedSqlCacheEnabled时，相同的SQL语句只解析一次
+    SqlSource sqlSource = configuration.isParsedSqlCacheEnabled()
+        ? sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings(), configuration.getParsedSqlCache())
+        : sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     // 把context.getBindings()的参数放到boundSql的metaParameters中进行保存
     context.getBindings().forEach(boundSql::setAdditionalParameter);
     return boundSql;
   }
 
+  /**
+   * Evaluates the dynamic nodes without building the SQL and reuses the SQL and parameter mappings parsed for
+   * the first parameter object that took the same path. The SQL is only built on a cache miss.
+   */
+  private BoundSql getBoundSqlByShape(Object parameterObject) {
+    // 仅计算绑定的参数并记录执行路径，不拼接SQL语句
+    DynamicContext context = new DynamicContext(configuration, parameterObject, true);
+    rootSqlNode.apply(context);
+    Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+    String shape = context.getShape();
+    ParsedSqlCache.Entry entry = shapeCache.get(shape, parameterType, configuration.newMetaObject(context.getBindings()));
+    if (entry == null) {
+      context = new DynamicContext(configuration, parameterObject);
+      rootSqlNode.apply(context);
+      entry = new SqlSourceBuilder(configuration).parseEntry(context.getSql(), parameterType, context.getBindings());
+      shapeCache.put(shape, parameterType, entry);
+    }
+    BoundSql boundSql = new BoundSql(configuration, entry.getSql(), entry.getParameterMappings(), parameterObject);
+    context.getBindings().forEach(boundSql::setAdditionalParameter);
+    return boundSql;
+  }
+
+  /**
+   * Returns the cache of SQL parsed per shape, or null when this source is not shape cacheable.
+   *
+   * @since 3.5.3
+   */
+  public ParsedSqlCache getShapeCache() {
+    return shapeCache;
+  }
+
 }
@@ -70,8 +70,11 @@ public class ForEachSqlNode implements SqlNode {
     final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
     if (!iterable.iterator().hasNext()) { // 没有可以迭代的元素
       // 不需要拼接信息，直接返回
+      context.recordShape('[');
+      context.recordShape(']');
       return true;
     }
+    context.recordShape('[');
     boolean first = true;
     // 添加open字符串
     applyOpen(context);
@@ -85,6 +88,7 @@ public class ForEachSqlNode implements SqlNode {
         // 添加间隔符
         context = new PrefixedContext(context, separator);
       }
+      context.recordShape('.');
       int uniqueNumber = context.getUniqueNumber();
       // Issue #709
       if (o instanceof Map.Entry) { // 被迭代对象是Map.Entry
@@ -107,6 +111,7 @@ public class ForEachSqlNode implements SqlNode {
     }
     // 添加close字符串
     applyClose(context);
+    context.recordShape(']');
     // 清理此次操作对环境的影响
     context.getBindings().remove(item);
     context.getBindings().remove(index);
@@ -174,6 +179,9 @@ public class ForEachSqlNode implements SqlNode {
 
     @Override
     public void appendSql(String sql) {
+      if (delegate.isShapeOnly()) {
+        return;
+      }
       GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
         String newContent = content.replaceFirst("^\\s*" + item + "(?![^.,:\\s])", itemizeItem(item, index));
         if (itemIndex != null && newContent.equals(content)) {
@@ -190,6 +198,16 @@ public class ForEachSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
+    @Override
+    public void recordShape(char step) {
+      delegate.recordShape(step);
+    }
+
   }
 
 
@@ -237,6 +255,16 @@ public class ForEachSqlNode implements SqlNode {
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
     }
+
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
+    @Override
+    public void recordShape(char step) {
+      delegate.recordShape(step);
+    }
   }
 
 }
@@ -42,10 +42,12 @@ public class IfSqlNode implements SqlNode {
   public boolean apply(DynamicContext context) {
     // 判断if条件是否成立
     if (evaluator.evaluateBoolean(test, context.getBindings())) {
+      context.recordShape('T');
       // 将contents拼接到context
       contents.apply(context);
       return true;
     }
+    context.recordShape('F');
     return false;
   }
 
@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import ognl.Ognl;
+import ognl.OgnlContext;
 import ognl.OgnlException;
 
 import org.apache.ibatis.builder.BuilderException;
@@ -37,6 +38,9 @@ public final class OgnlCache {
   private static final OgnlClassResolver CLASS_RESOLVER = new OgnlClassResolver();
   // 缓存解析后的OGNL表达式,用以提高效率
   private static final Map<String, Object> expressionCache = new ConcurrentHashMap<>();
+  // 编译后的表达式，不支持编译的表达式对应NOT_COMPILABLE
+  private static final Map<String, Object> compiledExpressionCache = new ConcurrentHashMap<>();
+  private static final Object NOT_COMPILABLE = new Object();
 
   private OgnlCache() {
     // Prevent Instantiation of Static Class
@@ -52,6 +56,17 @@ public final class OgnlCache {
     try {
       // 创建默认的上下文环境
       Map context = Ognl.createDefaultContext(root, MEMBER_ACCESS, CLASS_RESOLVER, null);
+      if (root instanceof DynamicContext.ContextMap && ((DynamicContext.ContextMap) root).isCompiledExpressionsEnabled()) {
+        CompiledExpression compiled = compileExpression(expression);
+        if (compiled != null) {
+          try {
+            return compiled.getValue((OgnlContext) context, root);
+          } catch (RuntimeException e) {
+            // 与解释执行一致，调用属性时抛出的运行时异常也包装为BuilderException
+            throw new BuilderException("Error evaluating expression '" + expression + "'. Cause: " + e, e);
+          }
+        }
+      }
       // 依次传入表达式树、上下文、根，从而获得表达式的结果
       return Ognl.getValue(parseExpression(expression), context, root);
     } catch (OgnlException e) {
@@ -76,4 +91,21 @@ public final class OgnlCache {
     return node;
   }
 
+  /**
+   * 编译表达式，结果会被缓存
+   * @param expression 表达式
+   * @return 编译后的表达式，不支持编译时返回null
+   */
+  private static CompiledExpression compileExpression(String expression) {
+    Object compiled = compiledExpressionCache.get(expression);
+    if (compiled == null) {
+      compiled = CompiledExpression.compile(expression);
+      if (compiled == null) {
+        compiled = NOT_COMPILABLE;
+      }
+      compiledExpressionCache.put(expression, compiled);
+    }
+    return compiled == NOT_COMPILABLE ? null : (CompiledExpression) compiled;
+  }
+
 }
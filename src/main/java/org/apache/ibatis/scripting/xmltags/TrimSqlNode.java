@@ -84,6 +84,9 @@ public class TrimSqlNode implements SqlNode {
     }
 
     public void applyAll() {
+      if (delegate.isShapeOnly()) {
+        return;
+      }
       sqlBuffer = new StringBuilder(sqlBuffer.toString().trim());
       String trimmedUppercaseSql = sqlBuffer.toString().toUpperCase(Locale.ENGLISH);
       if (trimmedUppercaseSql.length() > 0) {
@@ -108,9 +111,21 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public boolean isShapeOnly() {
+      return delegate.isShapeOnly();
+    }
+
+    @Override
+    public void recordShape(char step) {
+      delegate.recordShape(step);
+    }
+
     @Override
     public void appendSql(String sql) {
-      sqlBuffer.append(sql);
+      if (!delegate.isShapeOnly()) {
+        sqlBuffer.append(sql);
+      }
     }
 
     @Override
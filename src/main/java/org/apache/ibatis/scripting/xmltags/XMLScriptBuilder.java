@@ -38,6 +38,8 @@ public class XMLScriptBuilder extends BaseBuilder {
   private final XNode context;
   // 当前节点是否为动态节点
   private boolean isDynamic;
+  // 是否含有${}，含有时生成的SQL语句取决于参数值
+  private boolean hasTextSubstitution;
   // 输入参数的类型
   private final Class<?> parameterType;
   // 节点类型和对应的处理器组成的Map
@@ -79,7 +81,7 @@ public class XMLScriptBuilder extends BaseBuilder {
     SqlSource sqlSource;
     // 根据节点树是否为动态，创建对应的SqlSource对象
     if (isDynamic) {
-      sqlSource = new DynamicSqlSource(configuration, rootSqlNode);
+      sqlSource = new DynamicSqlSource(configuration, rootSqlNode, !hasTextSubstitution);
     } else {
       sqlSource = new RawSqlSource(configuration, rootSqlNode, parameterType);
     }
@@ -107,6 +109,7 @@ public class XMLScriptBuilder extends BaseBuilder {
         if (textSqlNode.isDynamic()) {
           contents.add(textSqlNode);
           isDynamic = true;
+          hasTextSubstitution = true;
         } else {
           contents.add(new StaticTextSqlNode(data));
         }
@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -25,11 +26,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
 import org.apache.ibatis.builder.IncompleteElementException;
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
@@ -37,6 +40,7 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
@@ -45,13 +49,17 @@ import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.PipelinedBatchExecutor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.pagination.PaginationDialect;
+import org.apache.ibatis.executor.pagination.PaginationDialectRegistry;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -110,6 +118,13 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 
 public class Configuration {
 
+  /**
+   * The maximum number of compiled row mappers kept by a configuration.
+   *
+   * @since 3.5.3
+   */
+  public static final int MAX_COMPILED_ROW_MAPPERS = 1024;
+
   // <environment>节点的信息
   protected Environment environment;
 
@@ -125,6 +140,18 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean compiledRowMappingEnabled;
+  protected boolean methodHandleInvokersEnabled;
+  protected boolean parsedSqlCacheEnabled;
+  protected boolean sqlShapeCacheEnabled;
+  protected boolean compiledOgnlExpressionsEnabled;
+  protected boolean batchReorderingEnabled;
+  protected int batchMaxSize;
+  protected int batchFlushSize;
+  protected int batchMultiRowInsertSize;
+  protected int nestedSelectBatchSize;
+  protected boolean rowBoundsPushdownEnabled;
+  protected boolean cursorPrefetchEnabled;
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -166,6 +193,8 @@ public class Configuration {
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   // 语言驱动注册表
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  // 分页方言注册表
+  protected final PaginationDialectRegistry paginationDialectRegistry = new PaginationDialectRegistry();
   // 映射的数据库操作语句
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection")
       .conflictMessageProducer((savedValue, targetValue) ->
@@ -192,6 +221,15 @@ public class Configuration {
   // 用来存储跨namespace的缓存共享设置
   protected final Map<String, String> cacheRefMap = new HashMap<>();
 
+  // 批量执行时的语句顺序约束，键为语句编号，值为必须先于它执行的语句编号
+  protected final Map<String, Set<String>> batchOrderingConstraints = new ConcurrentHashMap<>();
+
+  // 编译后的行映射器，键为resultMap编号、列前缀、结果类型和结果集列签名的组合，数目有上限
+  protected final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
+
+  // 动态SQL的解析结果缓存，键为拼接后的SQL语句和参数类型
+  protected ParsedSqlCache parsedSqlCache = new ParsedSqlCache();
+
   public Configuration(Environment environment) {
     this();
     this.environment = environment;
@@ -208,6 +246,7 @@ public class Configuration {
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
 
@@ -285,6 +324,230 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isParsedSqlCacheEnabled() {
+    return parsedSqlCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setParsedSqlCacheEnabled(boolean parsedSqlCacheEnabled) {
+    this.parsedSqlCacheEnabled = parsedSqlCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isSqlShapeCacheEnabled() {
+    return sqlShapeCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setSqlShapeCacheEnabled(boolean sqlShapeCacheEnabled) {
+    this.sqlShapeCacheEnabled = sqlShapeCacheEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isCompiledOgnlExpressionsEnabled() {
+    return compiledOgnlExpressionsEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setCompiledOgnlExpressionsEnabled(boolean compiledOgnlExpressionsEnabled) {
+    this.compiledOgnlExpressionsEnabled = compiledOgnlExpressionsEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isBatchReorderingEnabled() {
+    return batchReorderingEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setBatchReorderingEnabled(boolean batchReorderingEnabled) {
+    this.batchReorderingEnabled = batchReorderingEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getBatchMaxSize() {
+    return batchMaxSize;
+  }
+
+  /**
+   * Sets the number of parameter sets a reordering batch statement may hold before the pending
+   * statements are executed. Zero or less means no limit.
+   *
+   * @since 3.5.3
+   */
+  public void setBatchMaxSize(int batchMaxSize) {
+    this.batchMaxSize = batchMaxSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  /**
+   * Sets the number of pending calls after which the batch executor executes its statements
+   * without waiting for {@code flushStatements()}. Zero or less means no limit.
+   *
+   * @since 3.5.3
+   */
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getBatchMultiRowInsertSize() {
+    return batchMultiRowInsertSize;
+  }
+
+  /**
+   * Sets the maximum number of rows of the multi-row {@code INSERT ... VALUES (...), (...)} statements
+   * the batch executor sends instead of a JDBC batch of single-row inserts. Less than 2 disables the rewriting.
+   *
+   * @since 3.5.3
+   */
+  public void setBatchMultiRowInsertSize(int batchMultiRowInsertSize) {
+    this.batchMultiRowInsertSize = batchMultiRowInsertSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getNestedSelectBatchSize() {
+    return nestedSelectBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of keys of the {@code IN (...)} queries that load the eager nested selects of all the rows
+   * of a result set at once, instead of one query per row. Less than 2 disables the batching.
+   *
+   * @since 3.5.3
+   */
+  public void setNestedSelectBatchSize(int nestedSelectBatchSize) {
+    this.nestedSelectBatchSize = nestedSelectBatchSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isCursorPrefetchEnabled() {
+    return cursorPrefetchEnabled;
+  }
+
+  /**
+   * Sets whether the rows of a {@link org.apache.ibatis.cursor.Cursor} are read and mapped ahead of the consumer on a
+   * background thread, keeping as many objects as the fetch size of the statement. Cursors whose result maps have
+   * nested selects are read on the calling thread. While a prefetching cursor is being read, the session cannot run
+   * another statement until the cursor has been read to the end or closed.
+   *
+   * @since 3.5.3
+   */
+  public void setCursorPrefetchEnabled(boolean cursorPrefetchEnabled) {
+    this.cursorPrefetchEnabled = cursorPrefetchEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isRowBoundsPushdownEnabled() {
+    return rowBoundsPushdownEnabled;
+  }
+
+  /**
+   * Sets whether the offset and limit of a {@link RowBounds} are applied by the database, through the
+   * {@link PaginationDialect} of the current database id, instead of by skipping and discarding rows.
+   *
+   * @since 3.5.3
+   */
+  public void setRowBoundsPushdownEnabled(boolean rowBoundsPushdownEnabled) {
+    this.rowBoundsPushdownEnabled = rowBoundsPushdownEnabled;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public PaginationDialectRegistry getPaginationDialectRegistry() {
+    return paginationDialectRegistry;
+  }
+
+  /**
+   * Sets the dialect used for database ids that have no registered dialect.
+   *
+   * @param dialect a pagination dialect class
+   * @since 3.5.3
+   */
+  public void setPaginationDialect(Class<? extends PaginationDialect> dialect) {
+    if (dialect == null) {
+      paginationDialectRegistry.setDefaultDialect(null);
+      return;
+    }
+    try {
+      paginationDialectRegistry.setDefaultDialect(dialect.getDeclaredConstructor().newInstance());
+    } catch (Exception e) {
+      throw new IllegalArgumentException("Failed to create pagination dialect " + dialect.getName() + ". Cause: " + e, e);
+    }
+  }
+
+  /**
+   * Returns the dialect of the current database id, or null if there is none.
+   *
+   * @since 3.5.3
+   */
+  public PaginationDialect getPaginationDialect() {
+    return paginationDialectRegistry.getDialect(databaseId);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public ParsedSqlCache getParsedSqlCache() {
+    return parsedSqlCache;
+  }
+
+  /**
+   * Replaces the parsed SQL cache with an empty one holding at most the given number of entries.
+   *
+   * @since 3.5.3
+   */
+  public void setParsedSqlCacheSize(int parsedSqlCacheSize) {
+    this.parsedSqlCache = new ParsedSqlCache(parsedSqlCacheSize);
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -531,6 +794,31 @@ public class Configuration {
 
   public void setReflectorFactory(ReflectorFactory reflectorFactory) {
     this.reflectorFactory = reflectorFactory;
+    applyMethodHandleInvokers();
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isMethodHandleInvokersEnabled() {
+    return methodHandleInvokersEnabled;
+  }
+
+  /**
+   * Enables {@code MethodHandle} based property invokers. Only applies when the reflector factory
+   * is a {@link DefaultReflectorFactory} (or a subclass of it).
+   *
+   * @since 3.5.3
+   */
+  public void setMethodHandleInvokersEnabled(boolean methodHandleInvokersEnabled) {
+    this.methodHandleInvokersEnabled = methodHandleInvokersEnabled;
+    applyMethodHandleInvokers();
+  }
+
+  private void applyMethodHandleInvokers() {
+    if (reflectorFactory instanceof DefaultReflectorFactory) {
+      ((DefaultReflectorFactory) reflectorFactory).setMethodHandleInvokersEnabled(methodHandleInvokersEnabled);
+    }
   }
 
   public ObjectFactory getObjectFactory() {
@@ -556,6 +844,24 @@ public class Configuration {
     return interceptorChain.getInterceptors();
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isInterceptorPipelineEnabled() {
+    return interceptorChain.isPipelineEnabled();
+  }
+
+  /**
+   * Sets whether the plugged executors and handlers are wrapped in a single dispatcher running the interceptors
+   * resolved once per method, instead of one proxy per interceptor.
+   *
+   * @since 3.5.3
+   * @see InterceptorChain#setPipelineEnabled(boolean)
+   */
+  public void setInterceptorPipelineEnabled(boolean interceptorPipelineEnabled) {
+    interceptorChain.setPipelineEnabled(interceptorPipelineEnabled);
+  }
+
   public LanguageDriverRegistry getLanguageRegistry() {
     return languageRegistry;
   }
@@ -640,6 +946,8 @@ public class Configuration {
     // 根据数据操作类型创建实际执行器
     if (ExecutorType.BATCH == executorType) {
       executor = new BatchExecutor(this, transaction);
+    } else if (ExecutorType.PIPELINED_BATCH == executorType) {
+      executor = new PipelinedBatchExecutor(this, transaction);
     } else if (ExecutorType.REUSE == executorType) {
       executor = new ReuseExecutor(this, transaction);
     } else {
@@ -717,6 +1025,38 @@ public class Configuration {
     return resultMaps.containsKey(id);
   }
 
+  /**
+   * Keeps a compiled row mapper for later sessions. When {@link #MAX_COMPILED_ROW_MAPPERS} mappers are kept, an
+   * arbitrary one is evicted first, so that statements returning many different column layouts do not make the
+   * cache grow without bound.
+   *
+   * @since 3.5.3
+   */
+  public void addCompiledRowMapper(String key, CompiledRowMapper rowMapper) {
+    if (compiledRowMappers.size() >= MAX_COMPILED_ROW_MAPPERS && !compiledRowMappers.containsKey(key)) {
+      Iterator<String> iterator = compiledRowMappers.keySet().iterator();
+      if (iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+    compiledRowMappers.putIfAbsent(key, rowMapper);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public CompiledRowMapper getCompiledRowMapper(String key) {
+    return compiledRowMappers.get(key);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  Collection<CompiledRowMapper> getCompiledRowMappers() {
+    return compiledRowMappers.values();
+  }
+
   public void addParameterMap(ParameterMap pm) {
     parameterMaps.put(pm.getId(), pm);
   }
@@ -837,6 +1177,27 @@ public class Configuration {
     cacheRefMap.put(namespace, referencedNamespace);
   }
 
+  /**
+   * Declares that, when batch reordering is enabled, a call to the statement {@code statementId}
+   * must never be grouped into a JDBC batch that executes before a pending call to
+   * {@code precedingStatementId}.
+   *
+   * @since 3.5.3
+   */
+  public void addBatchOrderingConstraint(String statementId, String precedingStatementId) {
+    batchOrderingConstraints.computeIfAbsent(statementId, k -> ConcurrentHashMap.newKeySet()).add(precedingStatementId);
+  }
+
+  /**
+   * Returns the ids of the statements that must execute before the given statement in a batch.
+   *
+   * @since 3.5.3
+   */
+  public Set<String> getBatchOrderingConstraints(String statementId) {
+    Set<String> precedingStatementIds = batchOrderingConstraints.get(statementId);
+    return precedingStatementIds == null ? Collections.emptySet() : precedingStatementIds;
+  }
+
   /*
    * Parses all the unprocessed statement nodes in the cache. It is recommended
    * to call this method once all the mappers are added as it provides fail-fast
@@ -22,5 +22,6 @@ public enum ExecutorType {
 
   SIMPLE, // 为每个语句创建新的预处理语句
   REUSE,  // 复用
-  BATCH   // 执行批量操作
+  BATCH,  // 执行批量操作
+  PIPELINED_BATCH // 执行批量操作，已满的批次交给独占连接的I/O线程执行
 }
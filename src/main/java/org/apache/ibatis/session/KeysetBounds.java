@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Arrays;
+
+/**
+ * Bounds of a keyset (seek) pagination: the rows that follow a given key in the order of the key columns.
+ * <p>
+ * The select statement is wrapped so that it returns, in the order of the key columns, the rows whose key is
+ * greater (or lower, when {@link #descending()}) than the key of the last row of the previous slice, limited by
+ * the pagination dialect of the current database id. Unlike an offset, seeking to a key can use an index on the key
+ * columns, so deep slices are as cheap as the first one.
+ * <p>
+ * The key columns must identify a row, be not null and be columns of the result of the statement. They are written
+ * into the SQL as given and must not come from user input. One more row than the size is fetched to tell whether
+ * there is a next slice; use {@link SqlSession#selectSlice(String, Object, KeysetBounds)} or a mapper method
+ * returning {@link Slice} to get the rows.
+ *
+ * 键集分页（seek分页）的范围：按键列排序，返回键值在上一页最后一行之后的行
+ *
+ * @since 3.5.3
+ */
+public class KeysetBounds extends RowBounds {
+
+  // 键列名，按排序优先级排列
+  private final String[] columns;
+  // 结果对象中与键列对应的属性
+  private final String[] properties;
+  private final boolean descending;
+  // 上一页最后一行的键值，第一页为null
+  private final Object[] after;
+  private final int size;
+
+  private KeysetBounds(int size, String[] columns, String[] properties, boolean descending, Object[] after) {
+    // 多取一行，用于判断是否还有下一页
+    super(NO_ROW_OFFSET, size + 1);
+    if (size <= 0 || size == NO_ROW_LIMIT) {
+      throw new IllegalArgumentException("The size of a keyset slice must be a positive number but was " + size);
+    }
+    if (columns.length == 0 || columns.length != properties.length) {
+      throw new IllegalArgumentException("A keyset needs at least one column and one property per column");
+    }
+    if (after != null && after.length != columns.length) {
+      throw new IllegalArgumentException("Expected a key of " + columns.length + " values but got " + after.length);
+    }
+    this.size = size;
+    this.columns = columns;
+    this.properties = properties;
+    this.descending = descending;
+    this.after = after;
+  }
+
+  /**
+   * Returns the bounds of the first slice, ordered by the given columns, whose values are read from the result
+   * properties of the same name.
+   */
+  public static KeysetBounds of(int size, String... columns) {
+    return new KeysetBounds(size, columns.clone(), columns.clone(), false, null);
+  }
+
+  /**
+   * Returns these bounds reading the key values from the given properties of the results, one per column.
+   */
+  public KeysetBounds properties(String... properties) {
+    return new KeysetBounds(size, columns, properties.clone(), descending, after);
+  }
+
+  /**
+   * Returns these bounds in descending order of the key columns.
+   */
+  public KeysetBounds descending() {
+    return new KeysetBounds(size, columns, properties, true, after);
+  }
+
+  /**
+   * Returns these bounds starting after the given key, usually {@link Slice#getNextKey()} of the previous slice.
+   */
+  public KeysetBounds after(Object... key) {
+    if (key != null) {
+      for (Object value : key) {
+        if (value == null) {
+          throw new IllegalArgumentException("The values of a keyset key must not be null");
+        }
+      }
+    }
+    return new KeysetBounds(size, columns, properties, descending, key == null ? null : key.clone());
+  }
+
+  public String[] getColumns() {
+    return columns.clone();
+  }
+
+  public String[] getProperties() {
+    return properties.clone();
+  }
+
+  public boolean isDescending() {
+    return descending;
+  }
+
+  /**
+   * Returns the key the slice starts after, or null for the first slice.
+   */
+  public Object[] getAfter() {
+    return after == null ? null : after.clone();
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  @Override
+  public String toString() {
+    return "KeysetBounds" + Arrays.toString(columns) + (descending ? " desc" : "") + " after "
+        + Arrays.toString(after) + " size " + size;
+  }
+
+}
@@ -0,0 +1,71 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A slice of the results of a keyset paginated select, see {@link KeysetBounds}.
+ *
+ * @param <E> the result type
+ * @since 3.5.3
+ */
+public class Slice<E> {
+
+  private final List<E> content;
+  private final boolean hasNext;
+  private final Object[] nextKey;
+  private final KeysetBounds bounds;
+
+  public Slice(List<E> content, boolean hasNext, Object[] nextKey, KeysetBounds bounds) {
+    this.content = Collections.unmodifiableList(content);
+    this.hasNext = hasNext;
+    this.nextKey = nextKey;
+    this.bounds = bounds;
+  }
+
+  public List<E> getContent() {
+    return content;
+  }
+
+  /**
+   * Returns whether more rows follow this slice.
+   */
+  public boolean hasNext() {
+    return hasNext;
+  }
+
+  /**
+   * Returns the key of the last row of this slice, to be passed to {@link KeysetBounds#after(Object...)}, or null
+   * if the slice is empty.
+   */
+  public Object[] getNextKey() {
+    return nextKey == null ? null : nextKey.clone();
+  }
+
+  /**
+   * Returns the bounds of the next slice, or null if there is none.
+   */
+  public KeysetBounds nextBounds() {
+    return hasNext ? bounds.after(nextKey) : null;
+  }
+
+  public KeysetBounds getBounds() {
+    return bounds;
+  }
+
+}
@@ -22,6 +22,7 @@ import java.util.Map;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultHandler;
 
 /**
  * The primary Java interface for working with MyBatis.
@@ -143,6 +144,29 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * A Cursor that returns the mapped objects in lists of {@code chunkSize} objects, the last one may be smaller.
+   * Every chunk is a new list that can be kept after the next iteration.
+   * @param <T> the returned chunk element type.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param chunkSize  Number of objects of a chunk
+   * @return Cursor of chunks of mapped objects
+   * @since 3.5.3
+   */
+  <T> Cursor<List<T>> selectCursorChunks(String statement, Object parameter, int chunkSize);
+
+  /**
+   * Retrieve the slice of mapped objects that follows the key of the bounds, in the order of the key columns.
+   * @param <E> the returned slice element type
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param keysetBounds  Key columns, key of the last object of the previous slice and size of the slice
+   * @return Slice of mapped objects
+   * @since 3.5.3
+   */
+  <E> Slice<E> selectSlice(String statement, Object parameter, KeysetBounds keysetBounds);
+
   /**
    * Retrieve a single row mapped from the statement key and parameter
    * using a {@code ResultHandler}.
@@ -250,6 +274,17 @@ public interface SqlSession extends Closeable {
    */
   List<BatchResult> flushStatements();
 
+  /**
+   * Sets the handler that receives the results of batch statements as they are executed, instead of
+   * collecting them for {@link #flushStatements()}. Only used by the {@link ExecutorType#BATCH} and {@link ExecutorType#PIPELINED_BATCH} executors.
+   * Sessions that do not support it ignore the handler and keep returning the results from {@link #flushStatements()}.
+   * @param batchResultHandler handler called once per executed JDBC batch, or null to collect results again
+   * @since 3.5.3
+   */
+  default void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    // 默认不支持回调，结果仍由flushStatements返回
+  }
+
   /**
    * Closes the session.
    */
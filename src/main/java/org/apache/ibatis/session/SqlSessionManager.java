@@ -27,6 +27,7 @@ import java.util.Properties;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultHandler;
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
@@ -232,6 +233,16 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
   }
 
+  @Override
+  public <T> Cursor<List<T>> selectCursorChunks(String statement, Object parameter, int chunkSize) {
+    return sqlSessionProxy.selectCursorChunks(statement, parameter, chunkSize);
+  }
+
+  @Override
+  public <E> Slice<E> selectSlice(String statement, Object parameter, KeysetBounds keysetBounds) {
+    return sqlSessionProxy.selectSlice(statement, parameter, keysetBounds);
+  }
+
   // 通过 Mapper 代理对象，执行数据库操作。
   @Override
   public <E> List<E> selectList(String statement) {
@@ -372,6 +383,15 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSession.flushStatements();
   }
 
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession == null) {
+      throw new SqlSessionException("Error:  Cannot set the batch result handler.  No managed session is started.");
+    }
+    sqlSession.setBatchResultHandler(batchResultHandler);
+  }
+
   @Override
   public void close() {
     final SqlSession sqlSession = localSqlSession.get(); // 获取线程中存储的SqlSession
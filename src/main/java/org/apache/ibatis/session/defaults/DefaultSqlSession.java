@@ -26,17 +26,24 @@ import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.ChunkedCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.BatchResultHandler;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.KeysetBounds;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.Slice;
 import org.apache.ibatis.session.SqlSession;
 
 /**
@@ -122,6 +129,7 @@ public class DefaultSqlSession implements SqlSession {
 
   @Override
   public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+    checkNoPrefetchingCursor();
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
       Cursor<T> cursor = executor.queryCursor(ms, wrapCollection(parameter), rowBounds);
@@ -134,6 +142,30 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  @Override
+  public <T> Cursor<List<T>> selectCursorChunks(String statement, Object parameter, int chunkSize) {
+    // 会话登记并负责关闭的是底层游标
+    return new ChunkedCursor<>(selectCursor(statement, parameter), chunkSize);
+  }
+
+  @Override
+  public <E> Slice<E> selectSlice(String statement, Object parameter, KeysetBounds keysetBounds) {
+    // 多取的一行只用于判断是否还有下一页
+    List<E> list = selectList(statement, parameter, keysetBounds);
+    boolean hasNext = list.size() > keysetBounds.getSize();
+    List<E> content = hasNext ? list.subList(0, keysetBounds.getSize()) : list;
+    Object[] nextKey = null;
+    if (!content.isEmpty()) {
+      MetaObject metaObject = configuration.newMetaObject(content.get(content.size() - 1));
+      String[] properties = keysetBounds.getProperties();
+      nextKey = new Object[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        nextKey[i] = metaObject.getValue(properties[i]);
+      }
+    }
+    return new Slice<>(content, hasNext, nextKey, keysetBounds);
+  }
+
   @Override
   public <E> List<E> selectList(String statement) {
     return this.selectList(statement, null);
@@ -154,6 +186,7 @@ public class DefaultSqlSession implements SqlSession {
    */
   @Override
   public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
+    checkNoPrefetchingCursor();
     try {
       // 获取查询语句
       MappedStatement ms = configuration.getMappedStatement(statement);
@@ -182,6 +215,7 @@ public class DefaultSqlSession implements SqlSession {
   // 通过 Mapper 代理对象，执行数据库操作,当前为具体的执行对象：DefaultSqlSession
   @Override
   public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
+    checkNoPrefetchingCursor();
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
       executor.query(ms, wrapCollection(parameter), rowBounds, handler);
@@ -213,6 +247,7 @@ public class DefaultSqlSession implements SqlSession {
   // 通过 Mapper 代理对象，执行数据库操作,当前为具体的执行对象：DefaultSqlSession
   @Override
   public int update(String statement, Object parameter) {
+    checkNoPrefetchingCursor();
     try {
       dirty = true;
       MappedStatement ms = configuration.getMappedStatement(statement);
@@ -243,6 +278,7 @@ public class DefaultSqlSession implements SqlSession {
 
   @Override
   public void commit(boolean force) {
+    checkNoPrefetchingCursor();
     try {
       executor.commit(isCommitOrRollbackRequired(force));
       dirty = false;
@@ -260,6 +296,7 @@ public class DefaultSqlSession implements SqlSession {
 
   @Override
   public void rollback(boolean force) {
+    checkNoPrefetchingCursor();
     try {
       executor.rollback(isCommitOrRollbackRequired(force));
       dirty = false;
@@ -272,6 +309,7 @@ public class DefaultSqlSession implements SqlSession {
 
   @Override
   public List<BatchResult> flushStatements() {
+    checkNoPrefetchingCursor();
     try {
       return executor.flushStatements();
     } catch (Exception e) {
@@ -284,8 +322,9 @@ public class DefaultSqlSession implements SqlSession {
   @Override
   public void close() {
     try {
-      executor.close(isCommitOrRollbackRequired(false));
+      // 先关闭游标，等预取游标的后台线程停止使用连接后再关闭连接
       closeCursors();
+      executor.close(isCommitOrRollbackRequired(false));
       dirty = false;
     } finally {
       ErrorContext.instance().reset();
@@ -329,6 +368,25 @@ public class DefaultSqlSession implements SqlSession {
     executor.clearLocalCache();
   }
 
+  @Override
+  public void setBatchResultHandler(BatchResultHandler batchResultHandler) {
+    executor.setBatchResultHandler(batchResultHandler);
+  }
+
+  /**
+   * 预取游标的后台线程正在使用连接时，不能在同一连接上执行其他语句
+   */
+  private void checkNoPrefetchingCursor() {
+    if (cursorList != null) {
+      for (Cursor<?> cursor : cursorList) {
+        if (cursor instanceof PrefetchingCursor && ((PrefetchingCursor<?>) cursor).isPrefetching()) {
+          throw new ExecutorException("A prefetching cursor of this session is still reading its rows. "
+              + "Read it to the end or close it before using the session again.");
+        }
+      }
+    }
+  }
+
   private <T> void registerCursor(Cursor<T> cursor) {
     if (cursorList == null) {
       cursorList = new ArrayList<>();
@@ -37,6 +37,7 @@ import org.apache.ibatis.domain.blog.mappers.NestedBlogMapper;
 import org.apache.ibatis.domain.jpetstore.Cart;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
+import org.apache.ibatis.executor.pagination.LimitOffsetDialect;
 import org.apache.ibatis.io.JBoss6VFS;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.logging.slf4j.Slf4jImpl;
@@ -96,6 +97,21 @@ class XmlConfigBuilderTest {
       assertThat(config.isSafeResultHandlerEnabled()).isTrue();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(XMLLanguageDriver.class);
       assertThat(config.isCallSettersOnNulls()).isFalse();
+      assertThat(config.isCompiledRowMappingEnabled()).isFalse();
+      assertThat(config.isMethodHandleInvokersEnabled()).isFalse();
+      assertThat(config.isParsedSqlCacheEnabled()).isFalse();
+      assertThat(config.isSqlShapeCacheEnabled()).isFalse();
+      assertThat(config.isCompiledOgnlExpressionsEnabled()).isFalse();
+      assertThat(config.isBatchReorderingEnabled()).isFalse();
+      assertThat(config.getBatchMaxSize()).isEqualTo(0);
+      assertThat(config.getBatchFlushSize()).isEqualTo(0);
+      assertThat(config.getBatchMultiRowInsertSize()).isEqualTo(0);
+      assertThat(config.getNestedSelectBatchSize()).isEqualTo(0);
+      assertThat(config.isRowBoundsPushdownEnabled()).isFalse();
+      assertNull(config.getPaginationDialectRegistry().getDefaultDialect());
+      assertThat(config.isInterceptorPipelineEnabled()).isFalse();
+      assertThat(config.isCursorPrefetchEnabled()).isFalse();
+      assertThat(config.getParsedSqlCache().getMaxSize()).isEqualTo(1024);
       assertNull(config.getLogPrefix());
       assertNull(config.getLogImpl());
       assertNull(config.getConfigurationFactory());
@@ -190,6 +206,21 @@ class XmlConfigBuilderTest {
       assertThat(config.isSafeResultHandlerEnabled()).isFalse();
       assertThat(config.getDefaultScriptingLanuageInstance()).isInstanceOf(RawLanguageDriver.class);
       assertThat(config.isCallSettersOnNulls()).isTrue();
+      assertThat(config.isCompiledRowMappingEnabled()).isTrue();
+      assertThat(config.isMethodHandleInvokersEnabled()).isTrue();
+      assertThat(config.isParsedSqlCacheEnabled()).isTrue();
+      assertThat(config.isSqlShapeCacheEnabled()).isTrue();
+      assertThat(config.isCompiledOgnlExpressionsEnabled()).isTrue();
+      assertThat(config.isBatchReorderingEnabled()).isTrue();
+      assertThat(config.getBatchMaxSize()).isEqualTo(500);
+      assertThat(config.getBatchFlushSize()).isEqualTo(1000);
+      assertThat(config.getBatchMultiRowInsertSize()).isEqualTo(100);
+      assertThat(config.getNestedSelectBatchSize()).isEqualTo(500);
+      assertThat(config.isRowBoundsPushdownEnabled()).isTrue();
+      assertThat(config.getPaginationDialectRegistry().getDefaultDialect()).isInstanceOf(LimitOffsetDialect.class);
+      assertThat(config.isInterceptorPipelineEnabled()).isTrue();
+      assertThat(config.isCursorPrefetchEnabled()).isTrue();
+      assertThat(config.getParsedSqlCache().getMaxSize()).isEqualTo(64);
       assertThat(config.getLogPrefix()).isEqualTo("mybatis_");
       assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
       assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
@@ -16,6 +16,9 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -27,8 +30,10 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.ParsedSqlCache;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
@@ -38,6 +43,7 @@ import org.apache.ibatis.scripting.xmltags.SetSqlNode;
 import org.apache.ibatis.scripting.xmltags.SqlNode;
 import org.apache.ibatis.scripting.xmltags.TextSqlNode;
 import org.apache.ibatis.scripting.xmltags.WhereSqlNode;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
@@ -376,6 +382,119 @@ class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  void shouldReuseParsedSqlForSameGeneratedSql() {
+    Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheEnabled(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new IfSqlNode(mixedContents(new TextSqlNode("AND ID = #{id}")), "id != null")))));
+    BoundSql first = source.getBoundSql(new Bean("1"));
+    BoundSql second = source.getBoundSql(new Bean("2"));
+    BoundSql other = source.getBoundSql(new Bean(null));
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ?", second.getSql());
+    assertEquals("SELECT * FROM BLOG", other.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals("id", second.getParameterMappings().get(0).getProperty());
+    assertEquals(String.class, second.getParameterMappings().get(0).getJavaType());
+    ParsedSqlCache cache = configuration.getParsedSqlCache();
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getHits());
+    assertEquals(2, cache.getMisses());
+  }
+
+  @Test
+  void shouldNotReuseParsedSqlWhenAdditionalParameterTypeChanges() {
+    Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheEnabled(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",")));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(1, 2));
+    BoundSql integers = source.getBoundSql(param);
+    param.put("list", Arrays.asList("a", "b"));
+    BoundSql strings = source.getBoundSql(param);
+    assertEquals(integers.getSql(), strings.getSql());
+    assertEquals(Integer.class, integers.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, strings.getParameterMappings().get(0).getJavaType());
+    assertEquals(0, configuration.getParsedSqlCache().getHits());
+    param.put("list", Arrays.asList("c", "d"));
+    assertSame(strings.getParameterMappings(), source.getBoundSql(param).getParameterMappings());
+    assertEquals(1, configuration.getParsedSqlCache().getHits());
+  }
+
+  @Test
+  void shouldBoundParsedSqlCache() {
+    Configuration configuration = new Configuration();
+    configuration.setParsedSqlCacheEnabled(true);
+    configuration.setParsedSqlCacheSize(2);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, new TextSqlNode("SELECT * FROM ${id}"));
+    for (int i = 0; i < 5; i++) {
+      source.getBoundSql(new Bean("BLOG" + i));
+    }
+    ParsedSqlCache cache = configuration.getParsedSqlCache();
+    assertEquals(2, cache.getSize());
+    assertEquals(3, cache.getEvictions());
+    assertEquals(5, cache.getMisses());
+  }
+
+  @Test
+  void shouldReuseSqlBuiltForSameShape() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheEnabled(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new IfSqlNode(mixedContents(new TextSqlNode("AND ID = #{id}")), "id != null"),
+            new IfSqlNode(mixedContents(new TextSqlNode("AND ID > 0")), "id == null")))), true);
+    BoundSql first = source.getBoundSql(new Bean("1"));
+    BoundSql second = source.getBoundSql(new Bean("2"));
+    BoundSql other = source.getBoundSql(new Bean(null));
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ?", first.getSql());
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ?", second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals("SELECT * FROM BLOG WHERE  ID > 0", other.getSql());
+    assertEquals(0, other.getParameterMappings().size());
+    ParsedSqlCache shapeCache = source.getShapeCache();
+    assertEquals(2, shapeCache.getSize());
+    assertEquals(1, shapeCache.getHits());
+  }
+
+  @Test
+  void shouldRebindForEachItemsWhenReusingSqlBuiltForSameShape() {
+    Configuration configuration = new Configuration();
+    configuration.setSqlShapeCacheEnabled(true);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", null, "item", "(", ")", ",")), true);
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(1, 2));
+    source.getBoundSql(param);
+    param.put("list", Arrays.asList(3, 4));
+    BoundSql sameSize = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? )", sameSize.getSql());
+    assertEquals(3, sameSize.getAdditionalParameter("__frch_item_0"));
+    assertEquals(4, sameSize.getAdditionalParameter("__frch_item_1"));
+    param.put("list", Arrays.asList(5, 6, 7));
+    BoundSql otherSize = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? , ? )", otherSize.getSql());
+    assertEquals(3, otherSize.getParameterMappings().size());
+    assertEquals(1, source.getShapeCache().getHits());
+    assertEquals(2, source.getShapeCache().getMisses());
+  }
+
+  @Test
+  void shouldNotCacheShapeOfSqlWithTextSubstitution() {
+    Configuration configuration = new Configuration();
+    XMLLanguageDriver driver = new XMLLanguageDriver();
+    SqlSource withIf = driver.createSqlSource(configuration, "<script>SELECT * FROM BLOG <if test='id != null'>WHERE ID = #{id}</if></script>", Bean.class);
+    SqlSource withSubstitution = driver.createSqlSource(configuration, "<script>SELECT * FROM ${table} <if test='id != null'>WHERE ID = #{id}</if></script>", Bean.class);
+    assertNotNull(((DynamicSqlSource) withIf).getShapeCache());
+    assertNull(((DynamicSqlSource) withSubstitution).getShapeCache());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newCachedThreadPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldBlockOtherThreadsUntilMissIsFilled() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    Future<Object> other = executor.submit(() -> cache.getObject("key"));
+    assertThrows(TimeoutException.class, () -> other.get(100, TimeUnit.MILLISECONDS));
+    cache.putObject("key", "value");
+    assertEquals("value", other.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldHashKeysOverFixedNumberOfLocks() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setLockStripes(1);
+    cache.setTimeout(50);
+    assertEquals(1, cache.getLockStripes());
+    // both keys share the single lock, the same thread may still miss both
+    assertNull(cache.getObject("key1"));
+    assertNull(cache.getObject("key2"));
+    cache.putObject("key2", "value2");
+    // key1 is still being loaded, so the stripe stays locked for other threads
+    Future<Object> other = executor.submit(() -> cache.getObject("key2"));
+    assertFailsWithCacheException(other);
+    cache.putObject("key1", "value1");
+    assertEquals("value2", executor.submit(() -> cache.getObject("key2")).get(5, TimeUnit.SECONDS));
+    assertEquals("value1", executor.submit(() -> cache.getObject("key1")).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldNotReleaseStripeLockedForAnotherKey() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setLockStripes(1);
+    cache.setTimeout(50);
+    assertNull(cache.getObject("key1"));
+    // releasing a key that was never locked must keep the lock taken for key1
+    cache.removeObject("key2");
+    assertFailsWithCacheException(executor.submit(() -> cache.getObject("key1")));
+    cache.removeObject("key1");
+    assertNull(executor.submit(() -> cache.getObject("key1")).get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void shouldNotDeadlockWhenMissingStripesInOppositeOrder() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    // keys 0 and 1 hash to different stripes, no timeout
+    cache.setLockStripes(2);
+    CountDownLatch bothMissed = new CountDownLatch(2);
+    Future<Object> first = executor.submit(() -> missBothInOrder(cache, 0, 1, bothMissed));
+    Future<Object> second = executor.submit(() -> missBothInOrder(cache, 1, 0, bothMissed));
+    assertEquals("value1", first.get(5, TimeUnit.SECONDS));
+    assertEquals("value0", second.get(5, TimeUnit.SECONDS));
+    // all stripes have been released
+    assertEquals("value0", executor.submit(() -> cache.getObject(0)).get(5, TimeUnit.SECONDS));
+    assertEquals("value1", executor.submit(() -> cache.getObject(1)).get(5, TimeUnit.SECONDS));
+  }
+
+  private Object missBothInOrder(BlockingCache cache, Object firstKey, Object secondKey, CountDownLatch bothMissed)
+      throws Exception {
+    assertNull(cache.getObject(firstKey));
+    bothMissed.countDown();
+    bothMissed.await();
+    Object value = cache.getObject(secondKey);
+    if (value == null) {
+      cache.putObject(secondKey, "value" + secondKey);
+    }
+    cache.putObject(firstKey, "value" + firstKey);
+    return cache.getObject(secondKey);
+  }
+
+  @Test
+  void shouldLoadMissedKeyOnceInSingleFlightMode() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setSingleFlight(true);
+    int threads = 8;
+    CountDownLatch start = new CountDownLatch(1);
+    CompletableFuture<Void> release = new CompletableFuture<>();
+    Future<?>[] futures = new Future<?>[threads];
+    for (int i = 0; i < threads; i++) {
+      futures[i] = executor.submit(() -> {
+        start.await();
+        Object value = cache.getObject("key");
+        if (value == null) {
+          loads.incrementAndGet();
+          release.get();
+          value = "value";
+          cache.putObject("key", value);
+        }
+        return value;
+      });
+    }
+    start.countDown();
+    Thread.sleep(100);
+    release.complete(null);
+    for (Future<?> future : futures) {
+      assertEquals("value", future.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void shouldHandOverLoadingWhenLoaderGivesUpInSingleFlightMode() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setSingleFlight(true);
+    assertTrue(cache.isSingleFlight());
+    assertNull(cache.getObject("key"));
+    // the loading thread may query the same key again without waiting for itself
+    assertNull(cache.getObject("key"));
+    Future<Object> other = executor.submit(() -> cache.getObject("key"));
+    assertThrows(TimeoutException.class, () -> other.get(100, TimeUnit.MILLISECONDS));
+    // nothing was cached: the waiting thread becomes the loader
+    cache.removeObject("key");
+    assertNull(other.get(5, TimeUnit.SECONDS));
+  }
+
+  private void assertFailsWithCacheException(Future<?> future) throws Exception {
+    ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+    assertTrue(e.getCause() instanceof CacheException, e.getCause().toString());
+  }
+}
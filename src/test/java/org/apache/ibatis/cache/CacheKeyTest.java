@@ -88,6 +88,47 @@ class CacheKeyTest {
     assertEquals(key1, key2);
   }
 
+  @Test
+  void shouldBuildSameKeyAsUpdates() {
+    CacheKey key1 = new CacheKey(new Object[] { "select", 1, null });
+    CacheKey key2 = new CacheKey.Builder(3).update("select").update(1).update(null).build();
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+  }
+
+  @Test
+  void shouldUpdateBuiltKeyBeyondExpectedCount() throws Exception {
+    CacheKey key1 = new CacheKey.Builder(1).update("select").build();
+    CacheKey key2 = key1.clone();
+    key1.update(1);
+    key1.update(2);
+    assertEquals(3, key1.getUpdateCount());
+    assertEquals(1, key2.getUpdateCount());
+    assertNotEquals(key1, key2);
+    key2.update(1);
+    key2.update(2);
+    assertEquals(key1, key2);
+  }
+
+  @Test
+  void shouldHashStringContentsIntoSixtyFourBits() {
+    // "Aa"和"BB"的32位hashCode相同
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    CacheKey key1 = new CacheKey(new Object[] { "Aa" });
+    CacheKey key2 = new CacheKey(new Object[] { "BB" });
+    assertNotEquals(key1, key2);
+    assertNotEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  void shouldNotUpdateBuilderAfterBuild() {
+    CacheKey.Builder builder = new CacheKey.Builder(1).update("select");
+    builder.build();
+    assertThrows(IllegalStateException.class, () -> builder.update(1));
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
   @Test
   void serializationExceptionTest() {
     CacheKey cacheKey = new CacheKey();
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfCachedValues() {
+    OffHeapCache cache = new OffHeapCache("default");
+    List<Author> authors = new ArrayList<>();
+    authors.add(new Author(1, "jim", "secret", "jim@example.com", "bio", Section.NEWS));
+    cache.putObject("key", authors);
+    Object cached = cache.getObject("key");
+    assertEquals(authors, cached);
+    assertNotSame(authors, cached);
+    assertNotSame(cached, cache.getObject("key"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldStoreValuesLargerThanOneBlock() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(16);
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(i);
+    }
+    cache.putObject("key", values);
+    cache.putObject("other", "value");
+    assertEquals(values, cache.getObject("key"));
+    assertEquals("value", cache.getObject("other"));
+    assertTrue(cache.getMemoryUsed() > 4000);
+    assertEquals(cache.getSlabSize(), cache.getMemoryAllocated());
+  }
+
+  @Test
+  void shouldEvictLeastRecentlyUsedWhenMemoryIsFull() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setBlockSize(64);
+    cache.setMaxMemory(1024);
+    char[] chars = new char[300];
+    Arrays.fill(chars, 'x');
+    String value = new String(chars);
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, value);
+    }
+    // 0 is used again, 1 becomes the least recently used entry
+    assertEquals(value, cache.getObject(0));
+    cache.putObject(3, value);
+    assertNull(cache.getObject(1));
+    assertEquals(value, cache.getObject(0));
+    assertEquals(value, cache.getObject(3));
+    assertEquals(1024, cache.getMemoryAllocated());
+    assertTrue(cache.getMemoryUsed() <= 1024);
+  }
+
+  @Test
+  void shouldNotCacheValuesLargerThanMaxMemory() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setMaxMemory(1024);
+    cache.putObject("key", "small");
+    cache.putObject("key", new byte[2048]);
+    assertNull(cache.getObject("key"));
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getMemoryUsed());
+  }
+
+  @Test
+  void shouldRemoveAndFlushItemsOnDemand() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(4, cache.getSize());
+    // null values are put for keys that were missed in the cache
+    cache.putObject(4, null);
+    assertNull(cache.getObject(4));
+    long allocated = cache.getMemoryAllocated();
+    cache.clear();
+    assertNull(cache.getObject(1));
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getMemoryUsed());
+    assertEquals(allocated, cache.getMemoryAllocated());
+    cache.putObject(1, 1);
+    assertEquals(1, cache.getObject(1));
+  }
+
+  @Test
+  void shouldValidateSizesWhateverTheOrderTheyAreSetIn() {
+    OffHeapCache cache = new OffHeapCache("default");
+    // larger than the default slab size, valid once the slab size is set as well
+    cache.setBlockSize(8 * 1024 * 1024);
+    cache.setSlabSize(16 * 1024 * 1024);
+    cache.setMaxMemory(32 * 1024 * 1024);
+    cache.initialize();
+    assertEquals(16 * 1024 * 1024, cache.getSlabSize());
+
+    Properties props = new Properties();
+    props.setProperty("maxMemory", "1024");
+    props.setProperty("blockSize", "2048");
+    CacheBuilder builder = new CacheBuilder("test").implementation(OffHeapCache.class).properties(props);
+    CacheException e = assertThrows(CacheException.class, builder::build);
+    assertTrue(e.getCause().getMessage().contains("Invalid max memory 1024"));
+  }
+
+  @Test
+  void shouldBeConfiguredByCacheBuilder() {
+    Properties props = new Properties();
+    props.setProperty("maxMemory", "1048576");
+    props.setProperty("blockSize", "128");
+    props.setProperty("serializer", JdkCacheSerializer.class.getName());
+    Cache cache = new CacheBuilder("test").implementation(OffHeapCache.class).properties(props).build();
+    assertTrue(cache instanceof LoggingCache);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+}
@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTest {
+
+  @Test
+  void shouldNotGrowBeyondMaximumSize() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(100, cache.getWeight());
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedItemsDuringScan() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(100);
+    for (int round = 0; round < 20; round++) {
+      for (int hot = 0; hot < 20; hot++) {
+        if (cache.getObject("hot" + hot) == null) {
+          cache.putObject("hot" + hot, hot);
+        }
+      }
+    }
+    // a scan of keys read only once must not flush the hot keys
+    for (int i = 0; i < 10000; i++) {
+      if (cache.getObject(i) == null) {
+        cache.putObject(i, i);
+      }
+    }
+    int hits = 0;
+    for (int hot = 0; hot < 20; hot++) {
+      if (cache.getObject("hot" + hot) != null) {
+        hits++;
+      }
+    }
+    assertTrue(hits >= 18, "hot keys kept: " + hits);
+  }
+
+  @Test
+  void shouldBoundTotalWeight() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setMaximumWeight(10);
+    cache.putObject(0, Arrays.asList(1, 2, 3, 4));
+    cache.putObject(1, Arrays.asList(1, 2, 3, 4));
+    assertEquals(8, cache.getWeight());
+    cache.putObject(2, Arrays.asList(1, 2, 3, 4));
+    assertEquals(2, cache.getSize());
+    assertEquals(8, cache.getWeight());
+    cache.setWeigher(value -> 5);
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(2, cache.getSize());
+    assertEquals(10, cache.getWeight());
+  }
+
+  @Test
+  void shouldRemoveItemOnDemand() {
+    Cache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    assertEquals(0, cache.removeObject(0));
+    assertNull(cache.getObject(0));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  void shouldFlushAllItemsOnDemand() {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    assertEquals(0, cache.getWeight());
+    cache.putObject(0, 0);
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  void shouldStayConsistentUnderConcurrentAccess() throws Exception {
+    TinyLfuCache cache = new TinyLfuCache(new PerpetualCache("default"));
+    cache.setSize(50);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        final long seed = t;
+        futures.add(executor.submit(() -> {
+          Random random = new Random(seed);
+          for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(200);
+            Object value = cache.getObject(key);
+            if (value == null) {
+              cache.putObject(key, key);
+            } else {
+              assertEquals(key, value);
+            }
+            if (i % 1000 == 0) {
+              cache.removeObject(random.nextInt(200));
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertTrue(cache.getSize() <= 50);
+    assertEquals(cache.getSize(), cache.getWeight());
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheSerializerTest {
+
+  private final CompactCacheSerializer serializer = new CompactCacheSerializer();
+
+  @Test
+  void shouldRoundTripRowsOfMaps() {
+    List<Object> rows = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      row.put("ID", i);
+      row.put("NAME", "name é" + i);
+      row.put("PRICE", new BigDecimal("12.34"));
+      row.put("BIG", BigInteger.TEN.pow(30));
+      row.put("CREATED", new Date(1000L * i));
+      Timestamp timestamp = new Timestamp(5000L);
+      timestamp.setNanos(123456789);
+      row.put("UPDATED", timestamp);
+      row.put("SQL_DATE", new java.sql.Date(86400000L));
+      row.put("TIME", new java.sql.Time(3600000L));
+      row.put("FLAGS", new byte[] { 1, 2, 3 });
+      row.put("LONG", 7L);
+      row.put("SHORT", (short) 8);
+      row.put("BYTE", (byte) 9);
+      row.put("DOUBLE", 1.5d);
+      row.put("FLOAT", 2.5f);
+      row.put("BOOLEAN", true);
+      row.put("CHAR", 'c');
+      row.put("NULL", null);
+      rows.add(row);
+    }
+    HashMap<Object, Object> map = new HashMap<>();
+    map.put(1, "one");
+    rows.add(map);
+
+    @SuppressWarnings("unchecked")
+    List<Object> copy = (List<Object>) serializer.deserialize(serializer.serialize(rows));
+    assertEquals(rows.size(), copy.size());
+    for (int i = 0; i < 3; i++) {
+      Map<?, ?> row = (Map<?, ?>) rows.get(i);
+      Map<?, ?> copiedRow = (Map<?, ?>) copy.get(i);
+      assertEquals(LinkedHashMap.class, copiedRow.getClass());
+      assertEquals(new ArrayList<>(row.keySet()), new ArrayList<>(copiedRow.keySet()));
+      for (Map.Entry<?, ?> entry : row.entrySet()) {
+        Object copied = copiedRow.get(entry.getKey());
+        if (entry.getValue() instanceof byte[]) {
+          assertArrayEquals((byte[]) entry.getValue(), (byte[]) copied);
+        } else {
+          assertEquals(entry.getValue(), copied);
+          if (entry.getValue() != null) {
+            assertEquals(entry.getValue().getClass(), copied.getClass());
+          }
+        }
+      }
+    }
+    assertEquals(HashMap.class, copy.get(3).getClass());
+    assertEquals(map, copy.get(3));
+  }
+
+  @Test
+  void shouldBeSmallerThanJavaSerialization() {
+    List<Object> rows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      Map<String, Object> row = new HashMap<>();
+      row.put("ID", i);
+      row.put("NAME", "name" + i);
+      rows.add(row);
+    }
+    assertTrue(serializer.serialize(rows).length < new JdkCacheSerializer().serialize(rows).length);
+  }
+
+  @Test
+  void shouldFallBackToJavaSerializationForOtherTypes() {
+    List<Object> authors = new ArrayList<>();
+    authors.add(new Author(1, "jim", "secret", "jim@example.com", "bio", Section.NEWS));
+    Object copy = serializer.deserialize(serializer.serialize(authors));
+    assertEquals(authors, copy);
+    assertNotSame(authors.get(0), ((List<?>) copy).get(0));
+  }
+
+  @Test
+  void shouldWriteUnsupportedValuesWithJavaSerializationOnly() {
+    List<Object> values = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      values.add("name" + i);
+    }
+    values.add(new Author(1, "jim", "secret", "jim@example.com", "bio", Section.NEWS));
+    byte[] bytes = serializer.serialize(values);
+    byte[] serialized = new JdkCacheSerializer().serialize(values);
+    assertEquals(serialized.length + 1, bytes.length);
+    assertArrayEquals(serialized, Arrays.copyOfRange(bytes, 1, bytes.length));
+    assertEquals(values, serializer.deserialize(bytes));
+  }
+
+  @Test
+  void shouldFallBackToJavaSerializationForDeeplyNestedValues() {
+    List<Object> root = new ArrayList<>();
+    List<Object> current = root;
+    for (int i = 0; i < 100; i++) {
+      List<Object> child = new ArrayList<>();
+      current.add(child);
+      current = child;
+    }
+    assertEquals(root, serializer.deserialize(serializer.serialize(root)));
+  }
+
+  @Test
+  void shouldRejectNonSerializableValues() {
+    List<Object> values = new ArrayList<>();
+    values.add(new Object());
+    assertThrows(CacheException.class, () -> serializer.serialize(values));
+  }
+
+}
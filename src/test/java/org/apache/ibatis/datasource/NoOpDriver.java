@@ -0,0 +1,156 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver whose connections and statements do nothing, for benchmarks that must not measure a database.
+ * <p>
+ * The url is {@code jdbc:noop:} optionally followed by a number of microseconds that every {@code executeBatch} and
+ * {@code executeUpdate} waits, to stand for the round trip to a database server (e.g. {@code jdbc:noop:500}).
+ *
+ * 不执行任何操作的JDBC驱动，用于基准测试
+ */
+public class NoOpDriver implements Driver {
+
+  public static final String URL_PREFIX = "jdbc:noop:";
+
+  @Override
+  public Connection connect(String url, Properties info) {
+    if (!acceptsURL(url)) {
+      return null;
+    }
+    String latency = url.substring(URL_PREFIX.length());
+    return newConnection(latency.isEmpty() ? 0L : TimeUnit.MICROSECONDS.toNanos(Long.parseLong(latency)));
+  }
+
+  @Override
+  public boolean acceptsURL(String url) {
+    return url != null && url.startsWith(URL_PREFIX);
+  }
+
+  @Override
+  public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+    return new DriverPropertyInfo[0];
+  }
+
+  @Override
+  public int getMajorVersion() {
+    return 1;
+  }
+
+  @Override
+  public int getMinorVersion() {
+    return 0;
+  }
+
+  @Override
+  public boolean jdbcCompliant() {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  private static Connection newConnection(long latencyNanos) {
+    boolean[] state = { true, false }; // autoCommit, closed
+    return (Connection) Proxy.newProxyInstance(NoOpDriver.class.getClassLoader(), new Class<?>[] { Connection.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "prepareStatement":
+              return newStatement(latencyNanos);
+            case "setAutoCommit":
+              state[0] = (Boolean) args[0];
+              return null;
+            case "getAutoCommit":
+              return state[0];
+            case "close":
+              state[1] = true;
+              return null;
+            case "isClosed":
+              return state[1];
+            case "isValid":
+              return !state[1];
+            case "getTransactionIsolation":
+              return Connection.TRANSACTION_READ_COMMITTED;
+            default:
+              return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+          }
+        });
+  }
+
+  private static PreparedStatement newStatement(long latencyNanos) {
+    int[] batchSize = { 0 };
+    return (PreparedStatement) Proxy.newProxyInstance(NoOpDriver.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "addBatch":
+              batchSize[0]++;
+              return null;
+            case "executeBatch":
+              roundTrip(latencyNanos);
+              int[] updateCounts = new int[batchSize[0]];
+              Arrays.fill(updateCounts, 1);
+              batchSize[0] = 0;
+              return updateCounts;
+            case "executeUpdate":
+              roundTrip(latencyNanos);
+              return 1;
+            case "getUpdateCount":
+              return -1;
+            default:
+              return defaultValue(proxy, method.getName(), method.getReturnType(), args);
+          }
+        });
+  }
+
+  private static void roundTrip(long latencyNanos) {
+    if (latencyNanos > 0) {
+      LockSupport.parkNanos(latencyNanos);
+    }
+  }
+
+  private static Object defaultValue(Object proxy, String name, Class<?> type, Object[] args) {
+    if ("equals".equals(name)) {
+      return proxy == args[0];
+    } else if ("hashCode".equals(name)) {
+      return System.identityHashCode(proxy);
+    } else if ("toString".equals(name)) {
+      return "NoOp@" + Integer.toHexString(System.identityHashCode(proxy));
+    } else if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+}
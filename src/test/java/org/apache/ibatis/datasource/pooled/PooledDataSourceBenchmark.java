@@ -0,0 +1,80 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.datasource.NoOpDriver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 比较经典模式与高并发模式下借出、归还连接的吞吐量，使用{@link NoOpDriver}以免测到数据库本身。
+ * 不属于单元测试，需要手动运行 {@link #main(String[])}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class PooledDataSourceBenchmark {
+
+  @Param({"false", "true"})
+  public boolean highConcurrency;
+
+  private PooledDataSource dataSource;
+
+  @Setup
+  public void setup() throws Exception {
+    dataSource = new PooledDataSource(NoOpDriver.class.getName(), NoOpDriver.URL_PREFIX, null, null);
+    dataSource.setPoolHighConcurrencyEnabled(highConcurrency);
+    dataSource.setPoolMaximumActiveConnections(10);
+    dataSource.setPoolMaximumIdleConnections(10);
+  }
+
+  @TearDown
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  public Connection checkoutAndReturn() throws Exception {
+    Connection connection = dataSource.getConnection();
+    connection.close();
+    return connection;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(PooledDataSourceBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
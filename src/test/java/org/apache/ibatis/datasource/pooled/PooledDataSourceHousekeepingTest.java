@@ -0,0 +1,178 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+
+import org.apache.ibatis.BaseDataTest;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceHousekeepingTest extends BaseDataTest {
+
+  @Test
+  void shouldFillMinimumIdleConnections() throws Exception {
+    for (boolean highConcurrency : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(highConcurrency);
+      try {
+        ds.setPoolMinimumIdleConnections(3);
+        ds.housekeep();
+        assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+        assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldNotFillMoreThanMaximumActiveConnections() throws Exception {
+    for (boolean highConcurrency : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(highConcurrency);
+      try {
+        ds.setPoolMaximumActiveConnections(3);
+        ds.setPoolMinimumIdleConnections(3);
+        Connection c1 = ds.getConnection();
+        Connection c2 = ds.getConnection();
+        ds.housekeep();
+        assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+        c1.close();
+        c2.close();
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldEvictIdleConnectionsDownToMinimum() throws Exception {
+    for (boolean highConcurrency : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(highConcurrency);
+      try {
+        ds.setPoolMinimumIdleConnections(1);
+        ds.setPoolIdleTimeout(10);
+        Connection c1 = ds.getConnection();
+        Connection c2 = ds.getConnection();
+        Connection c3 = ds.getConnection();
+        c1.close();
+        c2.close();
+        c3.close();
+        assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+        Thread.sleep(50);
+        ds.housekeep();
+        assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldEvictConnectionsPastMaximumLifetime() throws Exception {
+    for (boolean highConcurrency : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(highConcurrency);
+      try {
+        ds.setPoolMaximumLifetime(20);
+        Connection idle = ds.getConnection();
+        Connection active = ds.getConnection();
+        Connection realActive = PooledDataSource.unwrapConnection(active);
+        idle.close();
+        Thread.sleep(50);
+        ds.housekeep();
+        assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+        // an expired connection is closed instead of being returned to the pool
+        active.close();
+        assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+        assertTrue(realActive.isClosed());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldDiscardBrokenIdleConnections() throws Exception {
+    for (boolean highConcurrency : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(highConcurrency);
+      try {
+        ds.setPoolPingEnabled(true);
+        ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+        ds.setPoolPingConnectionsNotUsedFor(0);
+        Connection c = ds.getConnection();
+        Connection broken = PooledDataSource.unwrapConnection(c);
+        c.close();
+        Thread.sleep(10);
+        broken.close();
+        ds.housekeep();
+        assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+        c = ds.getConnection();
+        assertNotSame(broken, PooledDataSource.unwrapConnection(c));
+        c.close();
+        assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldNotPingOnCheckoutWhenHousekeepingIsEnabled() throws Exception {
+    PooledDataSource ds = createDataSource(false);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM NO_SUCH_TABLE");
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      ds.setPoolHousekeepingInterval(60000);
+      // let the first run, on the empty pool, complete
+      Thread.sleep(100);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      Thread.sleep(10);
+      c = ds.getConnection();
+      assertSame(realConnection, PooledDataSource.unwrapConnection(c));
+      c.close();
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRunHousekeepingInBackground() throws Exception {
+    PooledDataSource ds = createDataSource(true);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolHousekeepingInterval(10);
+      long deadline = System.currentTimeMillis() + 10000;
+      while (ds.getPoolState().getIdleConnectionCount() < 2 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingInterval(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  private PooledDataSource createDataSource(boolean highConcurrency) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolHighConcurrencyEnabled(highConcurrency);
+    return ds;
+  }
+}
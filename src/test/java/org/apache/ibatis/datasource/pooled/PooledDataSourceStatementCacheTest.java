@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.junit.jupiter.api.Test;
+
+class PooledDataSourceStatementCacheTest extends BaseDataTest {
+
+  private static final String SQL = "SELECT * FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+
+  @Test
+  void shouldReuseStatementsAcrossCheckouts() throws Exception {
+    for (boolean highConcurrency : new boolean[] { false, true }) {
+      PooledDataSource ds = createDataSource(highConcurrency, 10);
+      try {
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(SQL)) {
+          ps.setMaxRows(1);
+          ps.executeQuery().close();
+        }
+        try (Connection c = ds.getConnection(); PreparedStatement ps = c.prepareStatement(SQL)) {
+          assertSame(c, ps.getConnection());
+          // settings changed by the previous session are reset
+          assertEquals(0, ps.getMaxRows());
+          try (ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+          }
+        }
+        assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+        assertEquals(1, ds.getPoolState().getStatementCacheMissCount());
+        assertEquals(0.5, ds.getPoolState().getStatementCacheHitRatio());
+      } finally {
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  @Test
+  void shouldNotShareStatementsInUse() throws Exception {
+    PooledDataSource ds = createDataSource(false, 10);
+    try (Connection c = ds.getConnection()) {
+      PreparedStatement ps1 = c.prepareStatement(SQL);
+      PreparedStatement ps2 = c.prepareStatement(SQL);
+      assertNotSame(PooledDataSource.unwrapStatement(ps1), PooledDataSource.unwrapStatement(ps2));
+      ps1.close();
+      ps2.close();
+      assertTrue(ps1.isClosed());
+      assertThrows(SQLException.class, ps1::executeQuery);
+      assertEquals(0, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseLeastRecentlyUsedStatements() throws Exception {
+    PooledDataSource ds = createDataSource(false, 1);
+    try (Connection c = ds.getConnection()) {
+      PreparedStatement ps1 = c.prepareStatement(SQL);
+      PreparedStatement real1 = PooledDataSource.unwrapStatement(ps1);
+      ps1.close();
+      assertFalse(real1.isClosed());
+      c.prepareStatement(SQL + " WHERE 1 = 1").close();
+      assertTrue(real1.isClosed());
+      assertEquals(1, ds.getPoolState().getStatementCacheEvictionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotCacheWhenDisabled() throws Exception {
+    PooledDataSource ds = createDataSource(false, 0);
+    try (Connection c = ds.getConnection()) {
+      PreparedStatement ps = c.prepareStatement(SQL);
+      PreparedStatement real = PooledDataSource.unwrapStatement(ps);
+      ps.close();
+      assertTrue(real.isClosed());
+      assertEquals(0, ds.getPoolState().getStatementCacheMissCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private PooledDataSource createDataSource(boolean highConcurrency, int statementCacheSize) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolHighConcurrencyEnabled(highConcurrency);
+    ds.setPoolPreparedStatementCacheSize(statementCacheSize);
+    return ds;
+  }
+}
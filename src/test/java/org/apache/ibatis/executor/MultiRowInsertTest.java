@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class MultiRowInsertTest {
+
+  @Test
+  void shouldRepeatValuesRow() {
+    MultiRowInsert insert = MultiRowInsert.parse("insert into users (id, name) values (?, upper(?))", 2);
+    assertNotNull(insert);
+    assertEquals("insert into users (id, name) values (?, upper(?))", insert.getSql(1));
+    assertEquals("insert into users (id, name) values (?, upper(?)), (?, upper(?)), (?, upper(?))", insert.getSql(3));
+  }
+
+  @Test
+  void shouldIgnoreParenthesesAndPlaceholdersInLiterals() {
+    MultiRowInsert insert = MultiRowInsert.parse("INSERT INTO users(id, name) VALUES(?, ':)?')", 1);
+    assertNotNull(insert);
+    assertEquals("INSERT INTO users(id, name) VALUES(?, ':)?'), (?, ':)?')", insert.getSql(2));
+  }
+
+  @Test
+  void shouldNotRewriteOtherStatements() {
+    assertNull(MultiRowInsert.parse("update users set name = ? where id = ?", 2));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) select id, name from users2 where id = ?", 1));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?), (?, ?)", 4));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?) on conflict do nothing", 2));
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, (select max(name) from users2))", 1));
+    // 参数个数与占位符个数不一致
+    assertNull(MultiRowInsert.parse("insert into users (id, name) values (?, ?)", 3));
+  }
+
+}
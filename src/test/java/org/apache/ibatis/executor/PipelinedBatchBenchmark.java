@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.datasource.NoOpDriver;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 比较BATCH与PIPELINED_BATCH执行器插入一批行的耗时。驱动不做任何操作，每次executeBatch等待latencyMicros微秒，
+ * 代表与数据库服务器之间的往返时间。
+ * 不属于单元测试，需要手动运行 {@link #main(String[])}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelinedBatchBenchmark {
+
+  private static final int ROWS = 10000;
+
+  @Param({"BATCH", "PIPELINED_BATCH"})
+  public ExecutorType executorType;
+
+  @Param({"0", "2000"})
+  public int latencyMicros;
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<Row> rows = new ArrayList<>();
+
+  @Setup
+  public void setup() {
+    UnpooledDataSource dataSource = new UnpooledDataSource(NoOpDriver.class.getName(), NoOpDriver.URL_PREFIX + latencyMicros, null, null);
+    Configuration configuration = new Configuration(new Environment("benchmark", new JdbcTransactionFactory(), dataSource));
+    configuration.setBatchFlushSize(1000);
+    String sql = "insert into row (id, name, amount, created, active) values (#{id}, #{name}, #{amount}, #{created}, #{active})";
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "insertRow",
+        new SqlSourceBuilder(configuration).parse(sql, Row.class, new HashMap<>()), SqlCommandType.INSERT).build());
+    sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
+    for (int i = 0; i < ROWS; i++) {
+      rows.add(new Row(i, "Row" + i, BigDecimal.valueOf(i, 2), new Date(i * 1000L), i % 2 == 0));
+    }
+  }
+
+  @Benchmark
+  public int insertRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(executorType)) {
+      for (Row row : rows) {
+        sqlSession.insert("insertRow", row);
+      }
+      int batches = sqlSession.flushStatements().size();
+      sqlSession.commit();
+      return batches;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(PipelinedBatchBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  public static class Row {
+    private final int id;
+    private final String name;
+    private final BigDecimal amount;
+    private final Date created;
+    private final boolean active;
+
+    Row(int id, String name, BigDecimal amount, Date created, boolean active) {
+      this.id = id;
+      this.name = name;
+      this.amount = amount;
+      this.created = created;
+      this.active = active;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public BigDecimal getAmount() {
+      return amount;
+    }
+
+    public Date getCreated() {
+      return created;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+  }
+
+}
@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.pagination;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PaginationSqlTest {
+
+  @Test
+  void shouldTrimTrailingSemicolonsAndComments() {
+    assertEquals("select id from users order by id", PaginationSql.trim("select id from users order by id -- all users\n"));
+    assertEquals("select id from users", PaginationSql.trim("select id from users; -- done"));
+    assertEquals("select id from users", PaginationSql.trim("select id from users /* all */ ;  "));
+    assertEquals("select id from users where name = 'a -- b'", PaginationSql.trim("select id from users where name = 'a -- b'"));
+  }
+
+  @Test
+  void shouldNotAppendPaginationAfterLockingClause() {
+    assertFalse(PaginationSql.canAppendPagination("select id from users order by id for update"));
+    assertFalse(PaginationSql.canAppendPagination("select id from users for share"));
+    assertFalse(PaginationSql.canAppendPagination("select id from users lock in share mode"));
+  }
+
+  @Test
+  void shouldNotAppendPaginationToLimitedStatement() {
+    assertFalse(PaginationSql.canAppendPagination("select id from users order by id limit 4"));
+    assertFalse(PaginationSql.canAppendPagination("select id from users order by id offset 2 rows"));
+    assertFalse(PaginationSql.canAppendPagination("select id from users order by id fetch first 4 rows only"));
+    assertFalse(PaginationSql.canAppendPagination("select top 4 id from users order by id"));
+  }
+
+  @Test
+  void shouldIgnoreKeywordsInLiteralsCommentsAndSubqueries() {
+    assertTrue(PaginationSql.canAppendPagination("select id from users where name = 'for update' order by id"));
+    assertTrue(PaginationSql.canAppendPagination("select \"limit\" from users /* limit */ order by id"));
+    assertTrue(PaginationSql.canAppendPagination("select id from users where id in (select id from admins limit 1)"));
+  }
+
+  @Test
+  void shouldFindTopLevelOrderBy() {
+    assertTrue(PaginationSql.hasOrderBy("select id from users order by id"));
+    assertFalse(PaginationSql.hasOrderBy("select id from users"));
+    assertFalse(PaginationSql.hasOrderBy("select id, row_number() over (order by id) from users"));
+    assertFalse(PaginationSql.hasOrderBy("select id from users where name = 'order by'"));
+  }
+
+  @Test
+  void shouldNotPaginateWithoutOrderByForSqlServer() {
+    PaginationDialect dialect = new PaginationDialectRegistry().getDialect("sqlserver");
+    assertFalse(dialect.canPaginate("select id from users"));
+    assertTrue(dialect.canPaginate("select id from users order by id"));
+    assertTrue(new PaginationDialectRegistry().getDialect("db2").canPaginate("select id from users"));
+  }
+
+}
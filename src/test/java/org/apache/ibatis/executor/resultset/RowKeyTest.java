@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  @Test
+  void shouldMatchFrozenKeyWithBuffer() {
+    RowKey buffer = new RowKey();
+    buffer.reset().update("orderResult");
+    buffer.update("ID");
+    buffer.update(1);
+    RowKey frozen = buffer.freeze();
+
+    buffer.reset().update("orderResult");
+    buffer.update("ID");
+    buffer.update(1);
+    assertEquals(frozen, buffer);
+    assertEquals(buffer, frozen);
+    assertEquals(frozen.hashCode(), buffer.hashCode());
+
+    buffer.reset().update("orderResult");
+    buffer.update("ID");
+    buffer.update(2);
+    assertNotEquals(frozen, buffer);
+  }
+
+  @Test
+  void shouldNotBeChangedByReusingTheBuffer() {
+    RowKey buffer = new RowKey();
+    buffer.reset().update("orderResult");
+    buffer.update(new byte[] { 1, 2 });
+    RowKey frozen = buffer.freeze();
+    String description = frozen.toString();
+
+    buffer.reset().update("lineResult");
+    buffer.update(new byte[] { 3 });
+    assertEquals(description, frozen.toString());
+
+    buffer.reset().update("orderResult");
+    buffer.update(new byte[] { 1, 2 });
+    assertEquals(frozen, buffer);
+  }
+
+  @Test
+  void shouldCombineChildWithParent() {
+    RowKey parent = new RowKey();
+    parent.reset().update("orderResult");
+    parent.update(1);
+
+    RowKey child = parent.child();
+    assertEquals(0, child.getUpdateCount());
+    child.update("lineResult");
+    child.update(10);
+    assertEquals(2, child.getUpdateCount());
+    RowKey frozen = child.freeze();
+
+    // 相同的子键值挂在不同的父键下时不相等
+    parent.reset().update("orderResult");
+    parent.update(2);
+    RowKey otherChild = parent.child();
+    assertSame(child, otherChild);
+    otherChild.update("lineResult");
+    otherChild.update(10);
+    assertNotEquals(frozen, otherChild);
+
+    parent.reset().update("orderResult");
+    parent.update(1);
+    RowKey sameChild = parent.child();
+    sameChild.update("lineResult");
+    sameChild.update(10);
+    assertEquals(frozen, sameChild);
+    assertEquals(frozen.hashCode(), sameChild.hashCode());
+  }
+
+  @Test
+  void shouldSeparateParentAndChildValues() {
+    RowKey parent = new RowKey();
+    parent.reset().update("a");
+    parent.update("b");
+    RowKey child = parent.child();
+    child.update("c");
+    RowKey combined = child.freeze();
+
+    RowKey flat = new RowKey();
+    flat.reset().update("a");
+    flat.update("b");
+    flat.update("c");
+    assertNotEquals(combined, flat);
+  }
+
+}
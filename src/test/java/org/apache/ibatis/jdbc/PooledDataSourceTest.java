@@ -24,7 +24,14 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
@@ -75,6 +82,161 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainPoolInHighConcurrencyMode() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolHighConcurrencyEnabled(true);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(3, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertTrue(ds.isPoolHighConcurrencyEnabled());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+    assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldHandBackLastReturnedConnectionToSameThreadInHighConcurrencyMode() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolHighConcurrencyEnabled(true);
+      Connection first = ds.getConnection();
+      Connection second = ds.getConnection();
+      Connection realSecond = PooledDataSource.unwrapConnection(second);
+      first.close();
+      second.close();
+      Connection c = ds.getConnection();
+      assertSame(realSecond, PooledDataSource.unwrapConnection(c));
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      c.close();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueConnectionInHighConcurrencyMode() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolHighConcurrencyEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(50);
+      ds.setPoolTimeToWait(10);
+      Connection leaked = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(leaked);
+      Connection c = ds.getConnection();
+      assertSame(realConnection, PooledDataSource.unwrapConnection(c));
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      // the overdue connection has been taken over, closing it must not free a second slot
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNeverHandOutMoreThanMaximumActiveConnectionsInHighConcurrencyMode() throws Exception {
+    final int threads = 16;
+    final int iterations = 200;
+    final int maxActive = 4;
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      ds.setPoolHighConcurrencyEnabled(true);
+      ds.setPoolMaximumActiveConnections(maxActive);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolTimeToWait(100);
+      final Set<Connection> inUse = ConcurrentHashMap.newKeySet();
+      final AtomicInteger borrowed = new AtomicInteger();
+      final AtomicInteger maxBorrowed = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < iterations; j++) {
+            try (Connection c = ds.getConnection()) {
+              Connection realConnection = PooledDataSource.unwrapConnection(c);
+              // a physical connection must never be shared by two threads
+              assertTrue(inUse.add(realConnection));
+              maxBorrowed.accumulateAndGet(borrowed.incrementAndGet(), Math::max);
+              Thread.yield();
+              borrowed.decrementAndGet();
+              inUse.remove(realConnection);
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      assertTrue(maxBorrowed.get() <= maxActive);
+      assertEquals(threads * iterations, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 2);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReportInterruptionWhileWaitingForConnection() throws Exception {
+    assertInterruptedWhileWaiting(false);
+  }
+
+  @Test
+  void shouldReportInterruptionWhileWaitingForConnectionInHighConcurrencyMode() throws Exception {
+    assertInterruptedWhileWaiting(true);
+  }
+
+  private void assertInterruptedWhileWaiting(boolean highConcurrency) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolHighConcurrencyEnabled(highConcurrency);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolTimeToWait(10000);
+      try (Connection ignored = ds.getConnection()) {
+        Thread.currentThread().interrupt();
+        SQLException e = assertThrows(SQLException.class, ds::getConnection);
+        assertTrue(e.getMessage().contains("Interrupted while waiting for a connection"));
+        assertTrue(e.getCause() instanceof InterruptedException);
+        // the interrupt must be preserved for the caller
+        assertTrue(Thread.interrupted());
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      Thread.interrupted();
+      ds.forceCloseAll();
+    }
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
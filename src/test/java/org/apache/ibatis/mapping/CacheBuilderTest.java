@@ -18,11 +18,16 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Field;
+import java.util.Properties;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +48,30 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void testBlockingCacheProperties() {
+    Properties props = new Properties();
+    props.setProperty("timeout", "100");
+    props.setProperty("lockStripes", "10");
+    Cache cache = new CacheBuilder("test").blocking(true).properties(props).build();
+
+    Assertions.assertThat(cache).isInstanceOf(BlockingCache.class);
+    BlockingCache blockingCache = (BlockingCache) cache;
+    Assertions.assertThat(blockingCache.getTimeout()).isEqualTo(100L);
+    Assertions.assertThat(blockingCache.getLockStripes()).isEqualTo(16);
+    Assertions.assertThat(blockingCache.isSingleFlight()).isFalse();
+  }
+
+  @Test
+  void testTinyLfuCacheIsNotSynchronized() {
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).size(10).build();
+
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    TinyLfuCache tinyLfuCache = unwrap(cache);
+    Assertions.assertThat(tinyLfuCache.getSize()).isEqualTo(0);
+    Assertions.assertThat(new Configuration().getTypeAliasRegistry().resolveAlias("TINYLFU")).isEqualTo(TinyLfuCache.class);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
     Field field;
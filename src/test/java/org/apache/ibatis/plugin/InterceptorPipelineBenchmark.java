@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.sql.PreparedStatement;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 比较拦截器流水线与层层嵌套的Plugin代理在包装目标对象、调用被拦截方法时的开销。
+ * 不属于单元测试，需要手动运行 {@link #main(String[])}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorPipelineBenchmark {
+
+  @Param({"false", "true"})
+  public boolean pipelineEnabled;
+
+  @Param({"1", "4", "8"})
+  public int interceptorCount;
+
+  private final ParameterHandler target = new NoOpParameterHandler();
+  private InterceptorChain chain;
+  private ParameterHandler plugged;
+
+  @Setup
+  public void setup() {
+    chain = new InterceptorChain();
+    chain.setPipelineEnabled(pipelineEnabled);
+    for (int i = 0; i < interceptorCount; i++) {
+      chain.addInterceptor(new PassThroughInterceptor());
+    }
+    plugged = (ParameterHandler) chain.pluginAll(target);
+  }
+
+  // 每条语句都会为新的处理器包装一次
+  @Benchmark
+  public Object pluginAll() {
+    return chain.pluginAll(target);
+  }
+
+  @Benchmark
+  public Object invoke() throws Exception {
+    plugged.setParameters(null);
+    return plugged;
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(InterceptorPipelineBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  @Intercepts(@Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class))
+  public static class PassThroughInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+  }
+
+  private static class NoOpParameterHandler implements ParameterHandler {
+    @Override
+    public Object getParameterObject() {
+      return null;
+    }
+
+    @Override
+    public void setParameters(PreparedStatement ps) {
+    }
+  }
+
+}
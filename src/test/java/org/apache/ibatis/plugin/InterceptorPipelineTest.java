@@ -0,0 +1,197 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.junit.jupiter.api.Test;
+
+class InterceptorPipelineTest {
+
+  private final List<String> calls = new ArrayList<>();
+
+  @Test
+  void shouldCallInterceptorsInTheOrderOfTheProxies() throws Exception {
+    PreparedStatement ps = mock(PreparedStatement.class);
+
+    ParameterHandler proxied = (ParameterHandler) newChain(false).pluginAll(new RecordingParameterHandler(false));
+    proxied.setParameters(ps);
+    List<String> proxiedCalls = new ArrayList<>(calls);
+    calls.clear();
+
+    ParameterHandler pipelined = (ParameterHandler) newChain(true).pluginAll(new RecordingParameterHandler(false));
+    assertFalse(Proxy.isProxyClass(pipelined.getClass()));
+    pipelined.setParameters(ps);
+    assertEquals(Arrays.asList("second", "first", "target"), calls);
+    assertEquals(proxiedCalls, calls);
+  }
+
+  @Test
+  void shouldCallMethodsWithoutInterceptorsDirectly() {
+    RecordingParameterHandler target = new RecordingParameterHandler(false);
+    ParameterHandler pipelined = (ParameterHandler) newChain(true).pluginAll(target);
+    assertSame(target, pipelined.getParameterObject());
+    assertTrue(calls.isEmpty());
+  }
+
+  @Test
+  void shouldPassChangedArgumentsToTheTarget() throws Exception {
+    PreparedStatement replacement = mock(PreparedStatement.class);
+    InterceptorChain chain = new InterceptorChain();
+    chain.setPipelineEnabled(true);
+    chain.addInterceptor(new ReplacingInterceptor(replacement));
+    RecordingParameterHandler target = new RecordingParameterHandler(false);
+    ((ParameterHandler) chain.pluginAll(target)).setParameters(mock(PreparedStatement.class));
+    assertSame(replacement, target.statement);
+  }
+
+  @Test
+  void shouldThrowTheExceptionOfTheTarget() {
+    ParameterHandler pipelined = (ParameterHandler) newChain(true).pluginAll(new RecordingParameterHandler(true));
+    SQLException e = assertThrows(SQLException.class, () -> pipelined.setParameters(mock(PreparedStatement.class)));
+    assertEquals("target", e.getMessage());
+  }
+
+  @Test
+  void shouldNotWrapTypesWithoutInterceptors() {
+    ResultSetHandler target = mock(ResultSetHandler.class);
+    assertSame(target, newChain(true).pluginAll(target));
+  }
+
+  @Test
+  void shouldUseProxiesWhenAnInterceptorOverridesPlugin() {
+    InterceptorChain chain = newChain(true);
+    chain.addInterceptor(new CustomPluginInterceptor());
+    Object plugged = chain.pluginAll(new RecordingParameterHandler(false));
+    assertTrue(Proxy.isProxyClass(plugged.getClass()));
+  }
+
+  @Test
+  void shouldDispatchEveryMethodOfThePluggableTypes() {
+    assertDispatchesAllMethods(Executor.class, ExecutorDispatcher.METHODS);
+    assertDispatchesAllMethods(StatementHandler.class, StatementHandlerDispatcher.METHODS);
+    assertDispatchesAllMethods(ParameterHandler.class, ParameterHandlerDispatcher.METHODS);
+    assertDispatchesAllMethods(ResultSetHandler.class, ResultSetHandlerDispatcher.METHODS);
+  }
+
+  // 接口新增方法而分发器未同步时，该方法无法被拦截
+  private void assertDispatchesAllMethods(Class<?> type, Method[] methods) {
+    Set<Method> expected = new HashSet<>();
+    for (Method method : type.getMethods()) {
+      if (!Modifier.isStatic(method.getModifiers())) {
+        expected.add(method);
+      }
+    }
+    Set<Method> actual = new HashSet<>(Arrays.asList(methods));
+    assertEquals(methods.length, actual.size(), type.getSimpleName() + " has duplicate methods");
+    assertEquals(expected, actual, type.getSimpleName());
+  }
+
+  private InterceptorChain newChain(boolean pipelineEnabled) {
+    InterceptorChain chain = new InterceptorChain();
+    chain.setPipelineEnabled(pipelineEnabled);
+    chain.addInterceptor(new NamedInterceptor("first"));
+    chain.addInterceptor(new NamedInterceptor("second"));
+    return chain;
+  }
+
+  @Intercepts(@Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class))
+  private class NamedInterceptor implements Interceptor {
+    private final String name;
+
+    NamedInterceptor(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      calls.add(name);
+      return invocation.proceed();
+    }
+  }
+
+  @Intercepts(@Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class))
+  private static class ReplacingInterceptor implements Interceptor {
+    private final PreparedStatement replacement;
+
+    ReplacingInterceptor(PreparedStatement replacement) {
+      this.replacement = replacement;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      invocation.getArgs()[0] = replacement;
+      return invocation.proceed();
+    }
+  }
+
+  @Intercepts(@Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class))
+  private static class CustomPluginInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+  }
+
+  private class RecordingParameterHandler implements ParameterHandler {
+    private final boolean failing;
+    private PreparedStatement statement;
+
+    RecordingParameterHandler(boolean failing) {
+      this.failing = failing;
+    }
+
+    @Override
+    public Object getParameterObject() {
+      return this;
+    }
+
+    @Override
+    public void setParameters(PreparedStatement ps) throws SQLException {
+      calls.add("target");
+      if (failing) {
+        throw new SQLException("target");
+      }
+      statement = ps;
+    }
+  }
+
+}
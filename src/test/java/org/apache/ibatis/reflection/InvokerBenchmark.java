@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 比较基于反射的调用器与MethodHandleInvoker为一行结果调用setter和getter的开销。
+ * 不属于单元测试，需要手动运行 {@link #main(String[])}。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvokerBenchmark {
+
+  @Param({"false", "true"})
+  public boolean methodHandleInvokersEnabled;
+
+  private final Row row = new Row();
+  private final Object[] id = {1L};
+  private final Object[] name = {"name"};
+  private final Object[] amount = {42};
+  private Invoker setId;
+  private Invoker setName;
+  private Invoker setAmount;
+  private Invoker getName;
+
+  @Setup
+  public void setup() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setMethodHandleInvokersEnabled(methodHandleInvokersEnabled);
+    Reflector reflector = reflectorFactory.findForClass(Row.class);
+    setId = reflector.getSetInvoker("id");
+    setName = reflector.getSetInvoker("name");
+    setAmount = reflector.getSetInvoker("amount");
+    getName = reflector.getGetInvoker("name");
+  }
+
+  @Benchmark
+  public Object mapRow() throws Exception {
+    setId.invoke(row, id);
+    setName.invoke(row, name);
+    setAmount.invoke(row, amount);
+    return getName.invoke(row, null);
+  }
+
+  public static void main(String[] args) throws Exception {
+    new Runner(new OptionsBuilder().include(InvokerBenchmark.class.getSimpleName()).build()).run();
+  }
+
+  public static class Row {
+    private Long id;
+    private String name;
+    private int amount;
+
+    public Long getId() {
+      return id;
+    }
+
+    public void setId(Long id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getAmount() {
+      return amount;
+    }
+
+    public void setAmount(int amount) {
+      this.amount = amount;
+    }
+  }
+
+}
@@ -18,8 +18,11 @@ package org.apache.ibatis.reflection;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
+import org.apache.ibatis.reflection.invoker.MethodHandleInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
@@ -218,4 +221,60 @@ class ReflectorTest {
     Reflector reflector = reflectorFactory.findForClass(Bean.class);
     assertTrue((Boolean)reflector.getGetInvoker("bool").invoke(new Bean(), new Byte[0]));
   }
+
+  @Test
+  void shouldInvokeAccessorsThroughMethodHandles() throws Exception {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setMethodHandleInvokersEnabled(true);
+    Reflector reflector = reflectorFactory.findForClass(Child.class);
+    assertTrue(reflector.getSetInvoker("id") instanceof MethodHandleInvoker);
+    assertTrue(reflector.getGetInvoker("fld") instanceof MethodHandleInvoker);
+
+    Child child = new Child();
+    reflector.getSetInvoker("id").invoke(child, new Object[] {"1"});
+    reflector.getSetInvoker("fld").invoke(child, new Object[] {"private"});
+    reflector.getSetInvoker("pubFld").invoke(child, new Object[] {"public"});
+    assertEquals("1", reflector.getGetInvoker("id").invoke(child, new Object[0]));
+    assertEquals("private", reflector.getGetInvoker("fld").invoke(child, new Object[0]));
+    assertEquals("public", reflector.getGetInvoker("pubFld").invoke(child, new Object[0]));
+  }
+
+  @Test
+  void shouldUnboxPrimitivesThroughMethodHandles() throws Exception {
+    class Bean {
+      private int count;
+      public int getCount() {return count;}
+      public void setCount(int count) {this.count = count;}
+    }
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setMethodHandleInvokersEnabled(true);
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    Bean bean = new Bean();
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {7});
+    assertEquals(7, reflector.getGetInvoker("count").invoke(bean, new Object[0]));
+  }
+
+  @Test
+  void shouldWrapExceptionsThrownByMethodHandles() {
+    class Bean {
+      public void setValue(String value) {throw new IllegalStateException("boom");}
+    }
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setMethodHandleInvokersEnabled(true);
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    InvocationTargetException e = assertThrows(InvocationTargetException.class,
+        () -> reflector.getSetInvoker("value").invoke(new Bean(), new Object[] {"x"}));
+    assertTrue(e.getCause() instanceof IllegalStateException);
+  }
+
+  @Test
+  void shouldDiscardCachedReflectorsWhenSwitchingInvokers() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflective = reflectorFactory.findForClass(Section.class);
+    assertTrue(reflective.getSetInvoker("id") instanceof MethodInvoker);
+    reflectorFactory.setMethodHandleInvokersEnabled(true);
+    Reflector methodHandles = reflectorFactory.findForClass(Section.class);
+    assertNotSame(reflective, methodHandles);
+    assertTrue(methodHandles.getSetInvoker("id") instanceof MethodHandleInvoker);
+  }
 }
@@ -0,0 +1,149 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private static final List<String> EXPRESSIONS = Arrays.asList(
+      "username != null",
+      "username != null and username != ''",
+      "username == 'cbegin'",
+      "username eq \"cbegin\"",
+      "password == null || password == ''",
+      "bio == 'N'",
+      "!(id > 1) && id >= 1",
+      "not favouriteSection",
+      "id lt 2 and id lte 1 and id gt 0 and id gte 1",
+      "id == 1.0",
+      "username.length() > 3",
+      "username.trim().length() == 6",
+      "favouriteSection == 'NEWS'",
+      "_parameter != null",
+      "_databaseId == null",
+      "ids != null and ids.size() > 0",
+      "ids.isEmpty()",
+      "ids.size",
+      "names.size() == 0",
+      "map.key == 'value'",
+      "map.missing",
+      "map.size == 1",
+      "true",
+      "null",
+      "id && username",
+      "password || bio");
+
+  @Test
+  void shouldCompileCommonExpressions() {
+    for (String expression : EXPRESSIONS) {
+      assertNotNull(CompiledExpression.compile(expression), expression);
+    }
+  }
+
+  @Test
+  void shouldNotCompileOtherExpressions() {
+    for (String expression : Arrays.asList("id + 1 > 2", "ids[0] == 1", "username.indexOf('b') > 0", "@java.lang.Math@abs(id)",
+        "username in {'a', 'b'}", "#this", "10L > id", "-1 < id", "name = 'a'", "username == 'it\\'s'", "size()", "id > ")) {
+      assertNull(CompiledExpression.compile(expression), expression);
+    }
+  }
+
+  @Test
+  void shouldReturnSameValuesAsOgnl() {
+    for (Object parameterObject : parameterObjects()) {
+      for (String expression : EXPRESSIONS) {
+        assertThat(evaluate(expression, parameterObject, true))
+            .as(expression + " on " + parameterObject)
+            .isEqualTo(evaluate(expression, parameterObject, false));
+      }
+    }
+  }
+
+  @Test
+  void shouldFallBackToOgnlForOtherExpressions() {
+    Map<String, Object> bindings = bindings(new Author(1, "cbegin", null, null, null, Section.NEWS), true);
+    assertThat(OgnlCache.getValue("username.indexOf('b')", bindings)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldWrapExceptionsOfCompiledExpressions() {
+    for (boolean compiled : new boolean[] { false, true }) {
+      Map<String, Object> bindings = bindings(new FailingBean(), compiled);
+      assertThrows(BuilderException.class, () -> OgnlCache.getValue("name != null", bindings));
+      assertThrows(BuilderException.class, () -> OgnlCache.getValue("name.length() > 0", bindings));
+    }
+  }
+
+  public static class FailingBean {
+    public String getName() {
+      throw new IllegalStateException("failing getter");
+    }
+  }
+
+  private List<Object> parameterObjects() {
+    List<Object> parameterObjects = new ArrayList<>();
+    parameterObjects.add(new Author(1, "cbegin", "******", "cbegin@apache.org", "N", Section.NEWS));
+    parameterObjects.add(new Author(2, "  norm  ", "", null, "NA", null));
+    Map<String, Object> map = new HashMap<>();
+    map.put("ids", Arrays.asList(1, 2));
+    map.put("names", Collections.emptyList());
+    map.put("map", Collections.singletonMap("key", "value"));
+    map.put("id", 1);
+    map.put("username", "cbegin");
+    parameterObjects.add(map);
+    Map<String, Object> other = new HashMap<>(map);
+    other.put("ids", Collections.emptyList());
+    other.put("id", 0);
+    other.put("map", new HashMap<>());
+    parameterObjects.add(other);
+    return parameterObjects;
+  }
+
+  private Object evaluate(String expression, Object parameterObject, boolean compiled) {
+    try {
+      return OgnlCache.getValue(expression, bindings(parameterObject, compiled));
+    } catch (BuilderException e) {
+      // 两种方式需要抛出相同的异常
+      return e.getCause().getClass();
+    } catch (RuntimeException e) {
+      return e.getClass();
+    }
+  }
+
+  private Map<String, Object> bindings(Object parameterObject, boolean compiled) {
+    Configuration configuration = new Configuration();
+    configuration.setCompiledOgnlExpressionsEnabled(compiled);
+    return new DynamicContext(configuration, parameterObject).getBindings();
+  }
+
+}
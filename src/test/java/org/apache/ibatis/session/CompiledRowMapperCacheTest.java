@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.resultset.CompiledRowMapper;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.submitted.compiled_row_mapping.Mapper;
+import org.apache.ibatis.submitted.compiled_row_mapping.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMapperCacheTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldCacheCompiledMapperOfAutoMappedColumns() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsersAutoMapped();
+    }
+    assertTrue(sqlSessionFactory.getConfiguration().getCompiledRowMappers().stream()
+        .anyMatch(rowMapper -> rowMapper.getType() == User.class && rowMapper.size() == 4));
+  }
+
+  @Test
+  void shouldReuseCompiledMapperAcrossSessions() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsersWithResultMap();
+    }
+    int compiled = configuration.getCompiledRowMappers().size();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsersWithResultMap();
+    }
+    assertEquals(compiled, configuration.getCompiledRowMappers().size());
+  }
+
+  @Test
+  void shouldNotCompileNestedProperties() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      int before = configuration.getCompiledRowMappers().size();
+      sqlSession.getMapper(Mapper.class).getUsersWithNestedProperty();
+      assertEquals(before, configuration.getCompiledRowMappers().size());
+    }
+  }
+
+  @Test
+  void shouldBoundNumberOfCompiledMappers() {
+    Configuration configuration = new Configuration();
+    CompiledRowMapper rowMapper = new CompiledRowMapper.Builder(User.class).build();
+    for (int i = 0; i < Configuration.MAX_COMPILED_ROW_MAPPERS + 10; i++) {
+      configuration.addCompiledRowMapper("key" + i, rowMapper);
+    }
+    assertEquals(Configuration.MAX_COMPILED_ROW_MAPPERS, configuration.getCompiledRowMappers().size());
+    // 最近加入的映射器总能取到
+    assertNotNull(configuration.getCompiledRowMapper("key" + (Configuration.MAX_COMPILED_ROW_MAPPERS + 9)));
+  }
+
+}
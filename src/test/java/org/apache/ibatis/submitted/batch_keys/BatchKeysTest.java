@@ -16,6 +16,7 @@
 package org.apache.ibatis.submitted.batch_keys;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.Reader;
 import java.sql.Connection;
@@ -23,9 +24,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
 import org.junit.jupiter.api.Assertions;
 
 import org.apache.ibatis.io.Resources;
@@ -149,6 +153,45 @@ class BatchKeysTest {
     }
   }
 
+  @Test
+  void testInsertJdbc3WithBatchFlushSize() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    List<Integer> chunkSizes = new ArrayList<>();
+    List<Integer> idsAtCallback = new ArrayList<>();
+    List<BatchResult> batchResults = new ArrayList<>();
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      sqlSession.setBatchResultHandler(batchResult -> {
+        chunkSizes.add(batchResult.getUpdateCounts().length);
+        for (Object parameter : batchResult.getParameterObjects()) {
+          idsAtCallback.add(((User) parameter).getId());
+        }
+        batchResults.add(batchResult);
+      });
+      Mapper userMapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        User user = new User(null, "User" + i);
+        users.add(user);
+        userMapper.insertIdentity(user);
+      }
+      assertEquals(Arrays.asList(2, 2), chunkSizes);
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      assertEquals(Arrays.asList(2, 2, 1), chunkSizes);
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList(0, 1, 2, 3, 4), idsAtCallback);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(Integer.valueOf(i), users.get(i).getId());
+    }
+    // 回调结束后参数对象即被释放
+    for (BatchResult batchResult : batchResults) {
+      assertTrue(batchResult.getParameterObjects().isEmpty());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(5, sqlSession.<User>selectList("selectIdentity").size());
+    }
+  }
+
   @Test
   void testInsertMapperNoBatchJdbc3() {
     try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
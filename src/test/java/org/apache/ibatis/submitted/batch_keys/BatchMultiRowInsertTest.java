@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_keys;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchMultiRowInsertTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<String> preparedSql = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_keys/Config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().setBatchMultiRowInsertSize(3);
+    sqlSessionFactory.getConfiguration().addInterceptor(new PrepareInterceptor());
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_keys/CreateDB.sql");
+  }
+
+  @Test
+  void shouldInsertRowsWithMultiRowStatementsAndAssignKeys() {
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 7; i++) {
+        User user = new User(null, "User" + i);
+        users.add(user);
+        mapper.insertIdentity(user);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+      sqlSession.commit();
+    }
+    assertEquals(3, preparedSql.size());
+    assertEquals("insert into users2 (name) values(?), (?), (?)", preparedSql.get(0).trim());
+    assertEquals("insert into users2 (name) values(?)", preparedSql.get(2).trim());
+    for (int i = 0; i < users.size(); i++) {
+      assertEquals(Integer.valueOf(i), users.get(i).getId());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> saved = sqlSession.selectList("selectIdentity");
+      assertEquals(7, saved.size());
+      assertEquals("User6", saved.get(6).getName());
+    }
+  }
+
+  @Test
+  void shouldNotRewriteInsertWithSelectKey() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      User user1 = new User(null, "Pocoyo");
+      mapper.insert(user1);
+      User user2 = new User(null, "Valentina");
+      mapper.insert(user2);
+      sqlSession.flushStatements();
+      assertEquals(Integer.valueOf(50), user1.getId());
+      assertEquals(Integer.valueOf(50), user2.getId());
+      sqlSession.commit();
+    }
+    assertEquals("insert into users values(?, ?)", preparedSql.get(0).trim());
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  private class PrepareInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      preparedSql.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_keys;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PipelinedBatchTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_keys/Config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_keys/CreateDB.sql");
+  }
+
+  @Test
+  void shouldExecuteFullBatches() {
+    List<Integer> chunkSizes = new ArrayList<>();
+    List<User> users = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.PIPELINED_BATCH)) {
+      sqlSession.setBatchResultHandler(batchResult -> chunkSizes.add(batchResult.getUpdateCounts().length));
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 2500; i++) {
+        User user = new User(null, "User" + i);
+        users.add(user);
+        mapper.insertIdentity(user);
+      }
+      sqlSession.commit();
+    }
+    assertEquals(Arrays.asList(1000, 1000, 500), chunkSizes);
+    for (int i = 0; i < users.size(); i++) {
+      assertEquals(Integer.valueOf(i), users.get(i).getId());
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(2500, sqlSession.<User>selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  void shouldReturnResultsInOrderWithoutHandler() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.PIPELINED_BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        mapper.insertIdentity(new User(null, "User" + i));
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      // 自动执行的批次不再持有参数对象
+      assertTrue(results.get(0).getParameterObjects().isEmpty());
+      assertEquals("User4", ((User) results.get(2).getParameterObjects().get(0)).getName());
+      // 查询前会等待后台批次执行完成
+      mapper.insertIdentity(new User(null, "User5"));
+      assertEquals(6, sqlSession.<User>selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  void shouldUseConnectionOnIoThreadOnly() {
+    ThreadRecorder recorder = new ThreadRecorder();
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(10);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.PIPELINED_BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 25; i++) {
+        mapper.insertIdentity(new User(null, "User" + i));
+      }
+      sqlSession.commit();
+    }
+    // 参数在调用线程上转换，语句只在I/O线程上创建和执行
+    assertEquals(Collections.singleton("mybatis-pipelined-batch"), recorder.statementThreads);
+    assertEquals(Collections.singleton(Thread.currentThread().getName()), recorder.parameterThreads);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(25, sqlSession.<User>selectList("selectIdentity").size());
+    }
+  }
+
+  @Test
+  void shouldThrowErrorOfFullBatch() {
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.PIPELINED_BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertIdentity(new User(null, "Pocoyo"));
+      // 超过列长度，批次满后在I/O线程上执行失败，等待该批次时抛出异常
+      mapper.insertIdentity(new User(null, "Valentina-Pocoyo-Pato"));
+      PersistenceException e = assertThrows(PersistenceException.class, sqlSession::flushStatements);
+      assertTrue(e.getCause() instanceof BatchExecutorException);
+      sqlSession.rollback();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertTrue(sqlSession.<User>selectList("selectIdentity").isEmpty());
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+      @Signature(type = StatementHandler.class, method = "batch", args = Statement.class),
+      @Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class) })
+  private static class ThreadRecorder implements Interceptor {
+    private final Set<String> statementThreads = ConcurrentHashMap.newKeySet();
+    private final Set<String> parameterThreads = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      String thread = Thread.currentThread().getName();
+      if (invocation.getTarget() instanceof StatementHandler) {
+        statementThreads.add(thread);
+      } else {
+        parameterThreads.add(thread);
+      }
+      return invocation.proceed();
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_reordering;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchReorderingTest {
+
+  private static final String INSERT_ORDER_LINE = Mapper.class.getName() + ".insertOrderLine";
+  private static final String DELETE_ORDER_LINES = Mapper.class.getName() + ".deleteOrderLines";
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_reordering/Config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/batch_reordering/CreateDB.sql");
+  }
+
+  @Test
+  void shouldGroupInterleavedStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertOrder(i, "order" + i);
+        mapper.insertOrderLine(i * 10, i, "a");
+        mapper.insertOrderLine(i * 10 + 1, i, "b");
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(3, results.get(0).getParameterObjects().size());
+      assertEquals(6, results.get(1).getParameterObjects().size());
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(6, sqlSession.getMapper(Mapper.class).countOrderLines());
+    }
+  }
+
+  @Test
+  void shouldFlushWhenBatchMaxSizeIsReached() {
+    sqlSessionFactory.getConfiguration().setBatchMaxSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= 3; i++) {
+        mapper.insertOrder(i, "order" + i);
+        mapper.insertOrderLine(i * 10, i, "a");
+        mapper.insertOrderLine(i * 10 + 1, i, "b");
+      }
+      mapper.insertOrder(4, "order4");
+      List<BatchResult> results = sqlSession.flushStatements();
+      // 每个订单的两条明细都会触发一次自动执行
+      assertEquals(7, results.size());
+      assertEquals(1, results.get(6).getParameterObjects().size());
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(6, sqlSession.getMapper(Mapper.class).countOrderLines());
+    }
+  }
+
+  @Test
+  void shouldReturnAutoFlushedResultsWithoutHandler() {
+    sqlSessionFactory.getConfiguration().setBatchReorderingEnabled(false);
+    sqlSessionFactory.getConfiguration().setBatchFlushSize(4);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertOrder(1, "order1");
+      for (int i = 0; i < 6; i++) {
+        mapper.insertOrderLine(i, 1, "item" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      // 自动执行订单和前3条明细，flushStatements执行剩余3条明细
+      assertEquals(3, results.size());
+      assertEquals(3, results.get(1).getUpdateCounts().length);
+      // 自动执行的批次不再持有参数对象
+      assertTrue(results.get(1).getParameterObjects().isEmpty());
+      assertEquals(3, results.get(2).getParameterObjects().size());
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(6, sqlSession.getMapper(Mapper.class).countOrderLines());
+    }
+  }
+
+  @Test
+  void shouldNotMoveStatementAheadOfDeclaredPredecessor() {
+    sqlSessionFactory.getConfiguration().addBatchOrderingConstraint(INSERT_ORDER_LINE, DELETE_ORDER_LINES);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertOrder(1, "order1");
+      mapper.insertOrderLine(10, 1, "a");
+      mapper.deleteOrderLines(1);
+      mapper.insertOrderLine(10, 1, "b");
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(4, results.size());
+      sqlSession.commit();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(1, sqlSession.getMapper(Mapper.class).countOrderLines());
+    }
+  }
+
+  @Test
+  void shouldReorderWithoutDeclaredConstraint() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertOrder(1, "order1");
+      mapper.insertOrderLine(10, 1, "a");
+      mapper.deleteOrderLines(1);
+      // 与第一条明细共用同一个批次，先于删除语句执行，导致主键冲突
+      mapper.insertOrderLine(10, 1, "b");
+      PersistenceException e = assertThrows(PersistenceException.class, sqlSession::flushStatements);
+      BatchExecutorException cause = (BatchExecutorException) e.getCause();
+      assertEquals(INSERT_ORDER_LINE, cause.getFailingStatementId());
+      assertEquals(1, cause.getSuccessfulBatchResults().size());
+    }
+  }
+
+}
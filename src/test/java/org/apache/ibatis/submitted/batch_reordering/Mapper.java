@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_reordering;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert("insert into orders (id, name) values (#{id}, #{name})")
+  void insertOrder(@Param("id") int id, @Param("name") String name);
+
+  @Insert("insert into order_lines (id, order_id, item) values (#{id}, #{orderId}, #{item})")
+  void insertOrderLine(@Param("id") int id, @Param("orderId") int orderId, @Param("item") String item);
+
+  @Delete("delete from order_lines where order_id = #{orderId}")
+  void deleteOrderLines(int orderId);
+
+  @Select("select count(*) from order_lines")
+  int countOrderLines();
+
+}
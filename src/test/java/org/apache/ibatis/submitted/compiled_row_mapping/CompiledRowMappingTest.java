@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetSettings() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(false);
+    sqlSessionFactory.getConfiguration().setReturnInstanceForEmptyRow(false);
+  }
+
+  @Test
+  void shouldMapAutoMappedColumnsWithCompiledMapper() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<User> users = mapper.getUsersAutoMapped();
+      assertEquals(3, users.size());
+      assertEquals(Integer.valueOf(1), users.get(0).getId());
+      assertEquals("User1", users.get(0).getName());
+      assertEquals(21, users.get(0).getAge());
+      assertEquals("one", users.get(0).getNick());
+      assertNull(users.get(1).getNick());
+      assertNull(users.get(2).getName());
+      assertEquals(0, users.get(2).getAge());
+    }
+  }
+
+  @Test
+  void shouldMapWithResultMapAcrossSessions() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getMapper(Mapper.class).getUsersWithResultMap();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithResultMap();
+      assertEquals("User2", users.get(1).getName());
+      assertEquals(22, users.get(1).getAge());
+    }
+  }
+
+  @Test
+  void shouldFallBackForNestedProperties() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithNestedProperty();
+      assertEquals("one", users.get(0).getProfile().getNick());
+    }
+  }
+
+  @Test
+  void shouldFallBackForMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> users = sqlSession.getMapper(Mapper.class).getUsersAsMaps();
+      assertEquals("User1", users.get(0).get("USER_NAME"));
+    }
+  }
+
+  @Test
+  void shouldReturnNullForEmptyRow() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertNull(sqlSession.getMapper(Mapper.class).getNameOnly(3));
+    }
+  }
+
+  @Test
+  void shouldReturnInstanceForEmptyRowWhenEnabled() {
+    sqlSessionFactory.getConfiguration().setReturnInstanceForEmptyRow(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      User user = sqlSession.getMapper(Mapper.class).getNameOnly(3);
+      assertNotNull(user);
+      assertNull(user.getName());
+    }
+  }
+
+  @Test
+  void shouldCallSettersOnNullsWhenEnabled() {
+    sqlSessionFactory.getConfiguration().setCallSettersOnNulls(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersAutoMapped();
+      assertNull(users.get(2).getName());
+      assertEquals(0, users.get(2).getAge());
+    }
+  }
+}
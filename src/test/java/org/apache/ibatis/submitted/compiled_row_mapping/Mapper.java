@@ -0,0 +1,42 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Select("select id, user_name as name, age, nick from users order by id")
+  List<User> getUsersAutoMapped();
+
+  @ResultMap("userRM")
+  @Select("select id, user_name, age from users order by id")
+  List<User> getUsersWithResultMap();
+
+  @ResultMap("nestedPropertyRM")
+  @Select("select id, user_name, nick from users order by id")
+  List<User> getUsersWithNestedProperty();
+
+  @Select("select user_name from users where id = #{id}")
+  User getNameOnly(Integer id);
+
+  @Select("select id, user_name from users order by id")
+  List<Map<String, Object>> getUsersAsMaps();
+}
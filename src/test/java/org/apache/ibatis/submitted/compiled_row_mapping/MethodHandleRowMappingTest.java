@@ -0,0 +1,73 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvoker;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class MethodHandleRowMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create an SqlSessionFactory
+    try (Reader reader = Resources
+        .getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapping/mybatis-config-method-handles.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+            "org/apache/ibatis/submitted/compiled_row_mapping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapWithMethodHandleInvokers() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertTrue(configuration.isMethodHandleInvokersEnabled());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersAutoMapped();
+      assertEquals(3, users.size());
+      assertEquals("User1", users.get(0).getName());
+      assertEquals(21, users.get(0).getAge());
+      assertNull(users.get(1).getNick());
+    }
+    Reflector reflector = configuration.getReflectorFactory().findForClass(User.class);
+    assertTrue(reflector.getSetInvoker("name") instanceof MethodHandleInvoker);
+  }
+
+  @Test
+  void shouldMapNestedPropertiesWithMethodHandleInvokers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsersWithNestedProperty();
+      assertEquals("one", users.get(0).getProfile().getNick());
+    }
+  }
+}
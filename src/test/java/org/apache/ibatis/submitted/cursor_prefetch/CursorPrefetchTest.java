@@ -0,0 +1,192 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CursorPrefetchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    // create a SqlSessionFactory
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_prefetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    // populate in-memory database
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cursor_prefetch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldGetAllUsers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      Assertions.assertTrue(usersCursor instanceof PrefetchingCursor);
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertEquals(-1, usersCursor.getCurrentIndex());
+
+      List<String> names = new ArrayList<>();
+      for (User user : usersCursor) {
+        names.add(user.getName());
+        Assertions.assertEquals(names.size() - 1, usersCursor.getCurrentIndex());
+      }
+      Assertions.assertEquals(5, names.size());
+      Assertions.assertEquals("User1", names.get(0));
+      Assertions.assertEquals("User5", names.get(4));
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers", null, new RowBounds(1, 3))) {
+      Iterator<User> iterator = usersCursor.iterator();
+      Assertions.assertEquals("User2", iterator.next().getName());
+      Assertions.assertEquals(1, usersCursor.getCurrentIndex());
+      Assertions.assertEquals("User3", iterator.next().getName());
+      Assertions.assertEquals("User4", iterator.next().getName());
+      Assertions.assertEquals(3, usersCursor.getCurrentIndex());
+      Assertions.assertFalse(iterator.hasNext());
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldStopPrefetchingOnSessionClose() {
+    Cursor<User> usersCursor;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      Iterator<User> iterator = usersCursor.iterator();
+      Assertions.assertEquals("User1", iterator.next().getName());
+      Assertions.assertTrue(usersCursor.isOpen());
+      Assertions.assertFalse(usersCursor.isConsumed());
+    }
+    Assertions.assertFalse(usersCursor.isOpen());
+    Assertions.assertFalse(usersCursor.isConsumed());
+  }
+
+  @Test
+  void shouldFailFastWhenTheSessionIsUsedWhilePrefetching() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      Iterator<User> iterator = usersCursor.iterator();
+      Assertions.assertEquals("User1", iterator.next().getName());
+      // the buffer holds two users, so the background thread is still reading
+      Assertions.assertThrows(ExecutorException.class, () -> sqlSession.selectOne("getUser", 1));
+      Assertions.assertThrows(ExecutorException.class, sqlSession::commit);
+      usersCursor.close();
+      User user = sqlSession.selectOne("getUser", 1);
+      Assertions.assertEquals("User1", user.getName());
+    }
+  }
+
+  @Test
+  void shouldRethrowErrorOfTheBackgroundThread() throws Exception {
+    FailingCursor delegate = new FailingCursor(new OutOfMemoryError("simulated"));
+    Cursor<String> cursor = new PrefetchingCursor<>(delegate, 2);
+    Iterator<String> iterator = cursor.iterator();
+    Assertions.assertEquals("row", iterator.next());
+    OutOfMemoryError e = Assertions.assertThrows(OutOfMemoryError.class, iterator::hasNext);
+    Assertions.assertEquals("simulated", e.getMessage());
+    Assertions.assertFalse(cursor.isOpen());
+    Assertions.assertTrue(delegate.closed);
+    cursor.close();
+  }
+
+  @Test
+  void shouldNotPrefetchWithNestedSelects() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsersWithManager()) {
+      Assertions.assertTrue(usersCursor instanceof DefaultCursor);
+      Iterator<User> iterator = usersCursor.iterator();
+      Assertions.assertNull(iterator.next().getManager());
+      Assertions.assertEquals("User1", iterator.next().getManager().getName());
+    }
+  }
+
+  // 读出一行后抛出指定的错误
+  private static class FailingCursor implements Cursor<String> {
+    private final Error error;
+    private volatile boolean closed;
+
+    FailingCursor(Error error) {
+      this.error = error;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !closed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return false;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return -1;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      Iterator<String> rows = Collections.singletonList("row").iterator();
+      return new Iterator<String>() {
+        @Override
+        public boolean hasNext() {
+          return true;
+        }
+
+        @Override
+        public String next() {
+          if (rows.hasNext()) {
+            return rows.next();
+          }
+          throw error;
+        }
+      };
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+}
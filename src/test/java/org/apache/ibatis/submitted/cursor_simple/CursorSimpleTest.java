@@ -17,6 +17,8 @@ package org.apache.ibatis.submitted.cursor_simple;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.CursorPublisher;
+import org.apache.ibatis.cursor.defaults.ChunkedCursor;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
@@ -25,13 +27,18 @@ import org.apache.ibatis.session.SqlSessionFactoryBuilder;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 class CursorSimpleTest {
 
@@ -387,4 +394,159 @@ class CursorSimpleTest {
 
   }
 
+  @Test
+  void shouldStreamAllUsers() {
+    Cursor<User> usersCursor;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      try (Stream<User> users = usersCursor.stream()) {
+        Assertions.assertEquals("User1,User2,User3,User4,User5",
+            users.map(User::getName).collect(Collectors.joining(",")));
+      }
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldCloseCursorWhenStreamIsClosed() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      try (Stream<User> users = usersCursor.stream()) {
+        Assertions.assertEquals("User1", users.findFirst().get().getName());
+      }
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertFalse(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldStreamAllUsersInParallel() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Stream<User> users = sqlSession.getMapper(Mapper.class).getAllUsers().stream()) {
+      Assertions.assertEquals(15, users.parallel().mapToInt(User::getId).sum());
+    }
+  }
+
+  @Test
+  void shouldPublishUsersOnDemand() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      List<String> events = new ArrayList<>();
+      Subscription[] subscription = new Subscription[1];
+      new CursorPublisher<>(usersCursor).subscribe(new Subscriber<User>() {
+        @Override
+        public void onSubscribe(Subscription s) {
+          subscription[0] = s;
+        }
+
+        @Override
+        public void onNext(User user) {
+          events.add(user.getName());
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          events.add("error");
+        }
+
+        @Override
+        public void onComplete() {
+          events.add("complete");
+        }
+      });
+      Assertions.assertFalse(usersCursor.isOpen());
+
+      subscription[0].request(2);
+      Assertions.assertEquals(Arrays.asList("User1", "User2"), events);
+      Assertions.assertEquals(1, usersCursor.getCurrentIndex());
+
+      subscription[0].request(Long.MAX_VALUE);
+      Assertions.assertEquals(Arrays.asList("User1", "User2", "User3", "User4", "User5", "complete"), events);
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldCloseCursorWhenSubscriptionIsCancelled() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.getMapper(Mapper.class).getAllUsers();
+      List<String> events = new ArrayList<>();
+      new CursorPublisher<>(usersCursor).subscribe(new Subscriber<User>() {
+        private Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription s) {
+          subscription = s;
+          s.request(3);
+        }
+
+        @Override
+        public void onNext(User user) {
+          events.add(user.getName());
+          subscription.cancel();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+          events.add("error");
+        }
+
+        @Override
+        public void onComplete() {
+          events.add("complete");
+        }
+      });
+      Assertions.assertEquals(Arrays.asList("User1"), events);
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertFalse(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldGetAllUsersInChunks() throws IOException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<List<User>> chunks = sqlSession.selectCursorChunks("getAllUsers", null, 2)) {
+      List<List<String>> names = new ArrayList<>();
+      for (List<User> chunk : chunks) {
+        List<String> chunkNames = new ArrayList<>();
+        chunk.forEach(user -> chunkNames.add(user.getName()));
+        names.add(chunkNames);
+        Assertions.assertEquals(names.size() - 1, chunks.getCurrentIndex());
+      }
+      Assertions.assertEquals(Arrays.asList(Arrays.asList("User1", "User2"), Arrays.asList("User3", "User4"),
+          Arrays.asList("User5")), names);
+      Assertions.assertTrue(chunks.isConsumed());
+      Assertions.assertFalse(chunks.isOpen());
+    }
+  }
+
+  @Test
+  void shouldCollectChunksThroughStream() throws IOException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<List<User>> chunks = sqlSession.selectCursorChunks("getAllUsers", null, 2)) {
+      List<List<User>> collected = chunks.stream().collect(Collectors.toList());
+      Assertions.assertEquals(3, collected.size());
+      List<List<String>> names = new ArrayList<>();
+      for (List<User> chunk : collected) {
+        names.add(chunk.stream().map(User::getName).collect(Collectors.toList()));
+      }
+      Assertions.assertEquals(Arrays.asList(Arrays.asList("User1", "User2"), Arrays.asList("User3", "User4"),
+          Arrays.asList("User5")), names);
+    }
+  }
+
+  @Test
+  void shouldStopChunksAtRowBoundsLimit() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers", null, new RowBounds(1, 3));
+      Iterator<List<User>> chunks = new ChunkedCursor<>(usersCursor, 2).iterator();
+      Assertions.assertEquals("User2", chunks.next().get(0).getName());
+      List<User> last = chunks.next();
+      Assertions.assertEquals(1, last.size());
+      Assertions.assertEquals("User4", last.get(0).getName());
+      Assertions.assertFalse(chunks.hasNext());
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
 }
@@ -0,0 +1,67 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table notes if exists;
+drop table tags if exists;
+drop table lines if exists;
+drop table orders if exists;
+
+create table orders (
+id int,
+name varchar(16)
+);
+
+create table lines (
+id int,
+order_id int,
+item varchar(16)
+);
+
+create table notes (
+id int,
+order_id int,
+text varchar(16)
+);
+
+create table tags (
+id int,
+line_id int,
+name varchar(16)
+);
+
+insert into orders values (1, 'order1');
+insert into orders values (2, 'order2');
+insert into orders values (3, 'order3');
+
+insert into lines values (1, 1, 'item1');
+insert into lines values (2, 1, 'item2');
+insert into lines values (3, 2, 'item3');
+insert into lines values (4, 3, 'item4');
+insert into lines values (5, 3, 'item5');
+insert into lines values (6, 3, 'item6');
+
+insert into tags values (1, 1, 'red');
+insert into tags values (2, 1, 'blue');
+insert into tags values (1, 2, 'red');
+insert into tags values (1, 4, 'red');
+insert into tags values (2, 4, 'blue');
+insert into tags values (3, 4, 'green');
+insert into tags values (2, 5, 'blue');
+
+insert into notes values (1, 1, 'urgent');
+insert into notes values (2, 1, 'gift');
+insert into notes values (3, 3, 'fragile');
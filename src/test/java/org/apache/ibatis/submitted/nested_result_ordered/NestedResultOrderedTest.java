@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_result_ordered;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class NestedResultOrderedTest {
+
+  private static final String EXPECTED = "[1:order1[1:item1[red, blue], 2:item2[red]], "
+      + "2:order2[3:item3[]], 3:order3[4:item4[red, blue, green], 5:item5[blue], 6:item6[]]]";
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_result_ordered/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_result_ordered/CreateDB.sql");
+  }
+
+  @Test
+  void shouldMapSameObjectsAsUnorderedMapping() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(EXPECTED, mapper.getOrders().toString());
+      assertEquals(EXPECTED, mapper.getOrdersStreaming().toString());
+    }
+  }
+
+  @Test
+  void shouldNotDuplicateChildrenOfSiblingCollections() {
+    String expected = "[1:order1[1:item1[red, blue], 2:item2[red]][urgent, gift], "
+        + "2:order2[3:item3[]][], 3:order3[4:item4[red, blue, green], 5:item5[blue], 6:item6[]][fragile]]";
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(expected, mapper.getOrdersWithNotes().toString());
+      // 兄弟集合的行交错出现，退回按行键记录全部对象
+      assertEquals(expected, mapper.getOrdersWithNotesStreaming().toString());
+    }
+  }
+
+  @Test
+  void shouldHandOverCompleteOrders() {
+    List<String> handled = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      // 回调时订单的所有明细都已映射完成
+      sqlSession.select("getOrdersStreaming", context -> handled.add(context.getResultObject().toString()));
+    }
+    assertEquals(EXPECTED, handled.toString());
+  }
+
+  @Test
+  void shouldStreamOrdersWithCursor() throws Exception {
+    List<Order> orders = new ArrayList<>();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+         Cursor<Order> cursor = sqlSession.selectCursor("getOrdersStreaming")) {
+      for (Order order : cursor) {
+        orders.add(order);
+      }
+    }
+    assertEquals(EXPECTED, orders.toString());
+  }
+
+}
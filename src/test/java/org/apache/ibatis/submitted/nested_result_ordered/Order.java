@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_result_ordered;
+
+import java.util.List;
+
+public class Order {
+  private Integer id;
+  private String name;
+  private List<Line> lines;
+  private List<String> notes;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public List<Line> getLines() {
+    return lines;
+  }
+
+  public void setLines(List<Line> lines) {
+    this.lines = lines;
+  }
+
+  public List<String> getNotes() {
+    return notes;
+  }
+
+  public void setNotes(List<String> notes) {
+    this.notes = notes;
+  }
+
+  @Override
+  public String toString() {
+    return id + ":" + name + lines + (notes == null ? "" : notes);
+  }
+}
@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_select_batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class NestedSelectBatchTest {
+
+  private static final String EXPECTED_BLOGS = "[1:Blog1 by 1:Author1 [10:Post10, 11:Post11], "
+      + "2:Blog2 by 2:Author2 [12:Post12], "
+      + "3:Blog3 by 1:Author1 [], "
+      + "4:Blog4 by null [13:Post13]]";
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<String> preparedSql = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_select_batch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(new PrepareInterceptor());
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_select_batch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldLoadNestedSelectsInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(EXPECTED_BLOGS, mapper.getBlogs().toString());
+    }
+    assertEquals(4, preparedSql.size());
+    assertEquals("select id, title, author_id from blog order by id", preparedSql.get(0).trim());
+    assertEquals("select id, name from author where id IN (?, ?)", preparedSql.get(1).trim());
+    assertEquals("select id, blog_id, subject from post where blog_id IN (?, ?, ?) order by id", preparedSql.get(2).trim());
+    assertEquals("select id, blog_id, subject from post where blog_id IN (?) order by id", preparedSql.get(3).trim());
+  }
+
+  @Test
+  void shouldLoadNestedSelectsRowByRowWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setNestedSelectBatchSize(0);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(EXPECTED_BLOGS, mapper.getBlogs().toString());
+    }
+    // the second query for author 1 is served by the local cache
+    assertEquals(7, preparedSql.size());
+    assertEquals("select id, name from author where id = ?", preparedSql.get(1).trim());
+  }
+
+  @Test
+  void shouldFallBackToRowByRowWhenTheKeyIsNotSelected() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("[1:Blog1 by null:Author1 null, 2:Blog2 by null:Author2 null, "
+          + "3:Blog3 by null:Author1 null, 4:Blog4 by null null]", mapper.getBlogsWithAuthorNames().toString());
+    }
+    assertEquals(4, preparedSql.size());
+    assertEquals("select name from author where id IN (?, ?)", preparedSql.get(1).trim());
+    assertEquals("select name from author where id = ?", preparedSql.get(2).trim());
+    assertEquals("select name from author where id = ?", preparedSql.get(3).trim());
+  }
+
+  @Test
+  void shouldMatchKeysOfDifferentNumericTypes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(EXPECTED_BLOGS, mapper.getBlogsWithDecimalIds().toString());
+    }
+    assertEquals(4, preparedSql.size());
+    assertEquals("select id, blog_id, subject from post where blog_id IN (?, ?, ?) order by id", preparedSql.get(2).trim());
+    assertEquals("select id, blog_id, subject from post where blog_id IN (?) order by id", preparedSql.get(3).trim());
+  }
+
+  @Test
+  void shouldFallBackToRowByRowWhenTheKeyTypesDoNotMatch() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Blog> blogs = mapper.getBlogsWithPostSubjects();
+      assertEquals(4, blogs.size());
+      assertEquals("[1:Post10, 1:Post11]", blogs.get(0).getPostSubjects().toString());
+      assertEquals("[2:Post12]", blogs.get(1).getPostSubjects().toString());
+      assertEquals("[]", blogs.get(2).getPostSubjects().toString());
+      assertEquals("[4:Post13]", blogs.get(3).getPostSubjects().toString());
+    }
+    assertEquals(7, preparedSql.size());
+    assertEquals("select blog_id, subject from post where blog_id IN (?, ?, ?) order by id", preparedSql.get(1).trim());
+    assertEquals("select blog_id, subject from post where blog_id = ? order by id", preparedSql.get(2).trim());
+    assertEquals("select blog_id, subject from post where blog_id IN (?) order by id", preparedSql.get(5).trim());
+    assertEquals("select blog_id, subject from post where blog_id = ? order by id", preparedSql.get(6).trim());
+  }
+
+  @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }))
+  private class PrepareInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      preparedSql.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+      return invocation.proceed();
+    }
+  }
+
+}
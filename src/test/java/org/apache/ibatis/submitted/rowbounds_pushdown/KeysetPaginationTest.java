@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.rowbounds_pushdown;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.pagination.OffsetFetchDialect;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.KeysetBounds;
+import org.apache.ibatis.session.Slice;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class KeysetPaginationTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/rowbounds_pushdown/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/rowbounds_pushdown/CreateDB.sql");
+  }
+
+  @Test
+  void shouldSeekThroughSlices() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Slice<User> slice = mapper.getUserSlice(1, KeysetBounds.of(2, "id"));
+      assertEquals("[2:User2, 3:User3]", slice.getContent().toString());
+      assertTrue(slice.hasNext());
+      assertArrayEquals(new Object[] { 3 }, slice.getNextKey());
+
+      slice = mapper.getUserSlice(1, slice.nextBounds());
+      assertEquals("[4:User4, 5:User5]", slice.getContent().toString());
+      assertTrue(slice.hasNext());
+
+      slice = mapper.getUserSlice(1, slice.nextBounds());
+      assertEquals("[6:User6]", slice.getContent().toString());
+      assertFalse(slice.hasNext());
+      assertNull(slice.nextBounds());
+    }
+  }
+
+  @Test
+  void shouldSeekDescendingOnCompositeKey() {
+    KeysetBounds bounds = KeysetBounds.of(4, "name", "id").descending();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Slice<User> slice = sqlSession.selectSlice("getUserSlice", 0, bounds);
+      assertEquals("[6:User6, 5:User5, 4:User4, 3:User3]", slice.getContent().toString());
+      assertArrayEquals(new Object[] { "User3", 3 }, slice.getNextKey());
+      slice = sqlSession.selectSlice("getUserSlice", 0, slice.nextBounds());
+      assertEquals("[2:User2, 1:User1]", slice.getContent().toString());
+      assertFalse(slice.hasNext());
+    }
+  }
+
+  @Test
+  void shouldSeekWithoutRowValueComparison() {
+    sqlSessionFactory.getConfiguration().getPaginationDialectRegistry().register("hsqldb", new OffsetFetchDialect());
+    KeysetBounds bounds = KeysetBounds.of(3, "name", "id").after("User2", 2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Slice<User> slice = sqlSession.getMapper(Mapper.class).getAllUsersSlice(bounds);
+      assertEquals("[3:User3, 4:User4, 5:User5]", slice.getContent().toString());
+      assertTrue(slice.hasNext());
+    }
+  }
+
+  @Test
+  void shouldRequireDialect() {
+    sqlSessionFactory.getConfiguration().setDatabaseId("unknown");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertThrows(PersistenceException.class, () -> mapper.getUserSlice(0, KeysetBounds.of(2, "id")));
+    }
+  }
+
+}
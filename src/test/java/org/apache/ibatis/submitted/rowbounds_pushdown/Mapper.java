@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.rowbounds_pushdown;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.session.KeysetBounds;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.Slice;
+
+public interface Mapper {
+
+  List<User> getUsers(RowBounds rowBounds);
+
+  List<User> getUsersByIds(List<Integer> ids, RowBounds rowBounds);
+
+  List<User> getFirstUsers(RowBounds rowBounds);
+
+  List<User> getUsersWithComment(RowBounds rowBounds);
+
+  Slice<User> getUserSlice(@Param("minId") int minId, KeysetBounds keysetBounds);
+
+  @Select("select id, name from users")
+  Slice<User> getAllUsersSlice(KeysetBounds keysetBounds);
+
+}
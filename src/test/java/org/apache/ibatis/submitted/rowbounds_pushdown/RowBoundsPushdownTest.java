@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.rowbounds_pushdown;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RowBoundsPushdownTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private final List<String> preparedSql = new ArrayList<>();
+  private final List<Integer> maxRows = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/rowbounds_pushdown/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionFactory.getConfiguration().addInterceptor(new PrepareInterceptor());
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/rowbounds_pushdown/CreateDB.sql");
+  }
+
+  @Test
+  void shouldPushOffsetAndLimitDown() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("[3:User3, 4:User4]", mapper.getUsers(new RowBounds(2, 2)).toString());
+      assertEquals("[1:User1, 2:User2, 3:User3]", mapper.getUsers(new RowBounds(0, 3)).toString());
+      assertEquals("[5:User5, 6:User6]", mapper.getUsers(new RowBounds(4, RowBounds.NO_ROW_LIMIT)).toString());
+      assertEquals("[1:User1, 2:User2, 3:User3, 4:User4, 5:User5, 6:User6]", mapper.getUsers(RowBounds.DEFAULT).toString());
+    }
+    assertEquals("select id, name from users order by id LIMIT ? OFFSET ?", preparedSql.get(0).trim());
+    assertEquals("select id, name from users order by id LIMIT ?", preparedSql.get(1).trim());
+    assertEquals("select id, name from users order by id LIMIT ? OFFSET ?", preparedSql.get(2).trim());
+    assertEquals("select id, name from users order by id", preparedSql.get(3).trim());
+  }
+
+  @Test
+  void shouldKeepDynamicParameters() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("[4:User4, 5:User5]", mapper.getUsersByIds(Arrays.asList(2, 4, 5, 6), new RowBounds(1, 2)).toString());
+    }
+  }
+
+  @Test
+  void shouldNotPushDownIntoLimitedStatement() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("[2:User2, 3:User3]", mapper.getFirstUsers(new RowBounds(1, 2)).toString());
+    }
+    // 语句已有LIMIT，只在结果集中跳过行
+    assertEquals("select id, name from users order by id limit 4", preparedSql.get(0).trim());
+    assertEquals(Arrays.asList(3), maxRows);
+  }
+
+  @Test
+  void shouldPushDownAfterTrailingComment() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("[3:User3, 4:User4]", mapper.getUsersWithComment(new RowBounds(2, 2)).toString());
+    }
+    assertEquals("select id, name from users order by id LIMIT ? OFFSET ?", preparedSql.get(0).trim());
+  }
+
+  @Test
+  void shouldLimitRowsWithoutDialect() {
+    sqlSessionFactory.getConfiguration().setDatabaseId("unknown");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.REUSE)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("[3:User3, 4:User4]", mapper.getUsers(new RowBounds(2, 2)).toString());
+      assertEquals("[1:User1, 2:User2, 3:User3, 4:User4, 5:User5, 6:User6]", mapper.getUsers(RowBounds.DEFAULT).toString());
+    }
+    assertEquals("select id, name from users order by id", preparedSql.get(0).trim());
+    // 复用的语句在下一次查询前恢复了最大行数
+    assertEquals(Arrays.asList(4, 0), maxRows);
+  }
+
+  @Intercepts({
+      @Signature(type = StatementHandler.class, method = "prepare", args = { Connection.class, Integer.class }),
+      @Signature(type = StatementHandler.class, method = "query", args = { Statement.class, ResultHandler.class }) })
+  private class PrepareInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      if ("prepare".equals(invocation.getMethod().getName())) {
+        preparedSql.add(((StatementHandler) invocation.getTarget()).getBoundSql().getSql());
+        return invocation.proceed();
+      }
+      Object result = invocation.proceed();
+      maxRows.add(((Statement) invocation.getArgs()[0]).getMaxRows());
+      return result;
+    }
+  }
+
+}